@@ -0,0 +1,26 @@
+#!/usr/bin/env bash
+# Builds the benchmarks and runs them at each thread count, writing one JMH JSON file per count.
+# Usage: ./run-benchmarks.sh [label] [thread counts...]
+#   label defaults to the current git commit; thread counts default to 1 2 4 8.
+# Compare two runs with:
+#   java -cp target/benchmarks.jar ticketsystem.bench.BaselineDiff baseline/<file>.json results/<file>.json
+# Extra JMH options can be passed in JMH_OPTS, e.g. JMH_OPTS="-p events=20 -i 3".
+set -euo pipefail
+
+cd "$(dirname "$0")"
+label="${1:-$(git rev-parse --short HEAD 2>/dev/null || echo local)}"
+shift || true
+threads=("${@:-1 2 4 8}")
+threads=(${threads[*]})
+
+mvn -B -q package
+mkdir -p results
+
+for t in "${threads[@]}"; do
+    echo "Running with ${t} thread(s)..."
+    # shellcheck disable=SC2086
+    java -jar target/benchmarks.jar TicketPoolBenchmark -t "${t}" ${JMH_OPTS:-} \
+        -rf json -rff "results/${label}-t${t}.json"
+done
+
+echo "Results written to $(pwd)/results/${label}-t*.json"
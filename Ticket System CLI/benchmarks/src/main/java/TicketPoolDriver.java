@@ -0,0 +1,60 @@
+import ticketsystem.bench.PoolDriver;
+
+/**
+ * Default-package side of {@link PoolDriver}: builds a configured {@link TicketPool}
+ * on an {@link InMemoryDatabase} and forwards the benchmark operations to it.
+ */
+public class TicketPoolDriver implements PoolDriver {
+    private static final double PRICE = 25.0;
+
+    private final TicketPool ticketPool;
+    private final String[] eventNames;
+
+    /**
+     * Constructs a driver. Logging is switched off and full-pool releases are shed
+     * before the pool reads its settings.
+     *
+     * @param events    the number of events
+     * @param maxPerBuy the customer retrieval rate
+     * @param capacity  the max ticket capacity
+     */
+    public TicketPoolDriver(int events, int maxPerBuy, int capacity) {
+        System.setProperty("ticket.log.mode", "off");
+        System.setProperty("ticket.capacity.policy", "SHED");
+
+        TicketPoolConfiguration configuration = new TicketPoolConfiguration();
+        configuration.setTotalTickets(Integer.MAX_VALUE);
+        configuration.setMaxTicketCapacity(capacity);
+        configuration.setTicketReleaseRate(1);
+        configuration.setCustomerRetrievalRate(maxPerBuy);
+        eventNames = new String[events];
+        for (int i = 0; i < events; i++) {
+            eventNames[i] = "Event " + i;
+            configuration.addEventPrice(eventNames[i], PRICE);
+        }
+        configuration.setConfigured(true);
+
+        ticketPool = new TicketPool(new InMemoryDatabase(), configuration);
+        ticketPool.prepareInventories();
+    }
+
+    @Override
+    public boolean add(int eventIndex, int vendorId, int count) {
+        return ticketPool.addTickets(eventNames[eventIndex], vendorId, count, PRICE);
+    }
+
+    @Override
+    public boolean purchase(int customerId) {
+        return ticketPool.tryPurchaseTickets(customerId);
+    }
+
+    @Override
+    public long available() {
+        return ticketPool.getCurrentTickets();
+    }
+
+    @Override
+    public void close() {
+        ticketPool.close();
+    }
+}
@@ -0,0 +1,223 @@
+package ticketsystem.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files, such as a committed baseline and a new run,
+ * and prints the change in every score they have in common.
+ * Usage: {@code java -cp benchmarks.jar ticketsystem.bench.BaselineDiff baseline.json current.json}
+ */
+public final class BaselineDiff {
+
+    private BaselineDiff() {
+        // Command-line tool only
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BaselineDiff <baseline.json> <current.json>");
+            System.exit(2);
+        }
+        Map<String, double[]> baseline = readScores(Path.of(args[0]));
+        Map<String, double[]> current = readScores(Path.of(args[1]));
+
+        System.out.printf("%-70s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (Map.Entry<String, double[]> entry : current.entrySet()) {
+            double[] before = baseline.get(entry.getKey());
+            double[] after = entry.getValue();
+            if (before == null) {
+                System.out.printf("%-70s %14s %14.3f %9s%n", entry.getKey(), "-", after[0], "new");
+                continue;
+            }
+            double change = (after[0] - before[0]) / before[0] * 100;
+            // Flag changes that are larger than the combined error bars
+            boolean significant = Math.abs(after[0] - before[0]) > before[1] + after[1];
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%%%s%n", entry.getKey(), before[0], after[0],
+                    change, significant ? " *" : "");
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.printf("%-70s %14.3f %14s %9s%n", key, baseline.get(key)[0], "-", "missing");
+            }
+        }
+        System.out.println("* change exceeds the combined score error");
+    }
+
+    /**
+     * Reads the primary and secondary scores of a JMH result file, keyed by benchmark, parameters and threads.
+     *
+     * @return score and score error for every key
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, double[]> readScores(Path file) throws IOException {
+        Object json = new JsonReader(Files.readString(file, StandardCharsets.UTF_8)).read();
+        Map<String, double[]> scores = new TreeMap<>();
+        for (Object item : (List<Object>) json) {
+            Map<String, Object> result = (Map<String, Object>) item;
+            String name = (String) result.get("benchmark");
+            name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+            StringBuilder key = new StringBuilder(name);
+            Object params = result.get("params");
+            if (params != null) {
+                ((Map<String, Object>) params).forEach((param, value) -> key.append(' ').append(param).append('=').append(value));
+            }
+            key.append(" t=").append(((Number) result.get("threads")).intValue());
+
+            scores.put(key.toString(), score((Map<String, Object>) result.get("primaryMetric")));
+            Object secondary = result.get("secondaryMetrics");
+            if (secondary != null) {
+                ((Map<String, Object>) secondary).forEach((metric, value) ->
+                        scores.put(key + " :" + metric, score((Map<String, Object>) value)));
+            }
+        }
+        return scores;
+    }
+
+    private static double[] score(Map<String, Object> metric) {
+        Object error = metric.get("scoreError");
+        return new double[]{
+                ((Number) metric.get("score")).doubleValue(),
+                error instanceof Number ? ((Number) error).doubleValue() : 0.0
+        };
+    }
+
+    /**
+     * Minimal JSON reader for JMH's result format: objects, arrays, strings, numbers, booleans and null.
+     */
+    private static final class JsonReader {
+        private final String text;
+        private int position;
+
+        JsonReader(String text) {
+            this.text = text;
+        }
+
+        Object read() {
+            skipWhitespace();
+            char c = text.charAt(position);
+            switch (c) {
+                case '{':
+                    return readObject();
+                case '[':
+                    return readArray();
+                case '"':
+                    return readString();
+                case 't':
+                    return literal("true", Boolean.TRUE);
+                case 'f':
+                    return literal("false", Boolean.FALSE);
+                case 'n':
+                    return literal("null", null);
+                default:
+                    return readNumber();
+            }
+        }
+
+        private Map<String, Object> readObject() {
+            Map<String, Object> object = new LinkedHashMap<>();
+            position++;
+            skipWhitespace();
+            if (text.charAt(position) == '}') {
+                position++;
+                return object;
+            }
+            while (true) {
+                skipWhitespace();
+                String name = readString();
+                skipWhitespace();
+                expect(':');
+                object.put(name, read());
+                skipWhitespace();
+                if (text.charAt(position++) == '}') {
+                    return object;
+                }
+            }
+        }
+
+        private List<Object> readArray() {
+            List<Object> array = new ArrayList<>();
+            position++;
+            skipWhitespace();
+            if (text.charAt(position) == ']') {
+                position++;
+                return array;
+            }
+            while (true) {
+                array.add(read());
+                skipWhitespace();
+                if (text.charAt(position++) == ']') {
+                    return array;
+                }
+            }
+        }
+
+        private String readString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c == '\\') {
+                    char escaped = text.charAt(position++);
+                    switch (escaped) {
+                        case 'n': value.append('\n'); break;
+                        case 't': value.append('\t'); break;
+                        case 'r': value.append('\r'); break;
+                        case 'b': value.append('\b'); break;
+                        case 'f': value.append('\f'); break;
+                        case 'u':
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                            position += 4;
+                            break;
+                        default: value.append(escaped);
+                    }
+                } else {
+                    value.append(c);
+                }
+            }
+        }
+
+        private Object readNumber() {
+            int start = position;
+            while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+                position++;
+            }
+            String number = text.substring(start, position);
+            if (number.isEmpty()) {
+                // JMH writes NaN scores as a string; anything else here is malformed
+                throw new IllegalArgumentException("Unexpected character at " + start + ": " + text.charAt(start));
+            }
+            return Double.parseDouble(number);
+        }
+
+        private Object literal(String word, Object value) {
+            if (!text.startsWith(word, position)) {
+                throw new IllegalArgumentException("Unexpected token at " + position);
+            }
+            position += word.length();
+            return value;
+        }
+
+        private void expect(char c) {
+            if (text.charAt(position++) != c) {
+                throw new IllegalArgumentException("Expected '" + c + "' at " + (position - 1));
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package ticketsystem.bench;
+
+/**
+ * Operations the benchmarks run against a ticket pool.
+ * The application classes live in the default package, which named packages cannot import,
+ * so the benchmarks reach them through this interface and {@link #create}.
+ */
+public interface PoolDriver {
+
+    /**
+     * Adds tickets for one event.
+     *
+     * @param eventIndex the event to add to, from 0 to the event count minus one
+     * @param vendorId   the vendor adding the tickets
+     * @param count      the number of tickets
+     * @return false once the ticket limit is reached; a release shed because the pool is full still returns true
+     */
+    boolean add(int eventIndex, int vendorId, int count);
+
+    /**
+     * Makes one non-blocking purchase attempt across all events.
+     *
+     * @param customerId the customer buying
+     * @return true if any tickets were bought
+     */
+    boolean purchase(int customerId);
+
+    /**
+     * Returns the number of tickets currently on sale.
+     */
+    long available();
+
+    /**
+     * Stops the pool's background threads.
+     */
+    void close();
+
+    /**
+     * Creates a driver around a fresh pool with an in-memory database and logging off.
+     * The ticket limit is effectively unbounded so the pool never sells out; releases that
+     * would exceed the capacity are shed instead of waiting.
+     *
+     * @param events     the number of events
+     * @param maxPerBuy  the customer retrieval rate, which bounds the tickets taken per purchase
+     * @param capacity   the most tickets on sale at once
+     * @return a driver for the new pool
+     */
+    static PoolDriver create(int events, int maxPerBuy, int capacity) {
+        try {
+            return (PoolDriver) Class.forName("TicketPoolDriver")
+                    .getConstructor(int.class, int.class, int.class)
+                    .newInstance(events, maxPerBuy, capacity);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create the ticket pool driver", e);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package ticketsystem.bench;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the ticket pool's add and purchase paths, measured without I/O:
+ * the pool runs on an in-memory database with logging off.
+ * Run with {@code -t} to vary the thread count; the mixed group splits its threads
+ * evenly between vendors and customers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TicketPoolBenchmark {
+    // The retrieval rate; the pool buys between 1 and this many tickets, so every purchase takes exactly one
+    private static final int TICKETS_PER_PURCHASE = 1;
+
+    /**
+     * A fresh pool per iteration, pre-filled to the requested depth.
+     * The capacity is twice the depth; the add-only benchmark sells the pool back down
+     * before it gets there, and the mixed vendors shed what does not fit.
+     */
+    @State(Scope.Benchmark)
+    public static class Pool {
+        @Param({"1", "20"})
+        public int events;
+
+        @Param({"1000", "100000"})
+        public int depth;
+
+        PoolDriver driver;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            driver = PoolDriver.create(events, TICKETS_PER_PURCHASE, 2 * depth);
+            refill();
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            driver.close();
+        }
+
+        /**
+         * Spreads {@code depth} tickets evenly over the events.
+         */
+        void refill() {
+            for (int event = 0; event < events; event++) {
+                int share = depth / events + (event < depth % events ? 1 : 0);
+                driver.add(event, 0, share);
+            }
+        }
+
+        /**
+         * Buys tickets until the pool is back to {@code depth}.
+         */
+        void sellDown(Actor actor) {
+            while (driver.available() > depth && driver.purchase(actor.customerId++)) {
+                // Keep buying
+            }
+        }
+    }
+
+    /**
+     * Per-thread identity: a vendor ID, a customer ID, the event to add to next
+     * and the tickets this thread has added since it last checked the pool size.
+     */
+    @State(Scope.Thread)
+    public static class Actor {
+        int vendorId;
+        int customerId;
+        int nextEvent;
+        int addedSinceCheck;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            vendorId = random.nextInt(1, 1000);
+            customerId = random.nextInt(1, Integer.MAX_VALUE);
+        }
+
+        int nextEvent(int events) {
+            int event = nextEvent;
+            nextEvent = event + 1 == events ? 0 : event + 1;
+            return event;
+        }
+    }
+
+    /**
+     * Outcomes of the mixed workload's purchase attempts, reported per microsecond next to the
+     * operation rate. The pool is bounded, so a purchase thread that runs while the pool is empty
+     * makes many cheap empty attempts; {@code bought} is the rate that reflects the purchase path.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Purchases {
+        public long bought;
+        public long empty;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bought = 0;
+            empty = 0;
+        }
+    }
+
+    /**
+     * Vendors only: each operation releases one ticket, rotating over the events.
+     * Every {@code depth / 16} adds a thread checks the pool size and, past 1.5 x depth,
+     * sells it back down to {@code depth}, amortising the purchases like the purchase-only refill.
+     * Up to 8 threads stay under the capacity, so no release is shed.
+     */
+    @Benchmark
+    public boolean addOnly(Pool pool, Actor actor) {
+        boolean added = pool.driver.add(actor.nextEvent(pool.events), actor.vendorId, 1);
+        if (++actor.addedSinceCheck >= pool.depth / 16) {
+            actor.addedSinceCheck = 0;
+            if (pool.driver.available() > pool.depth + pool.depth / 2) {
+                pool.sellDown(actor);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Customers only: each operation buys from the pool. When a buyer finds it empty it
+     * refills it to {@code depth}, so deeper pools amortise the refill over more purchases.
+     */
+    @Benchmark
+    public boolean purchaseOnly(Pool pool, Actor actor) {
+        if (pool.driver.purchase(actor.customerId++)) {
+            return true;
+        }
+        pool.refill();
+        return false;
+    }
+
+    /**
+     * Mixed workload, vendor side: releases as many tickets per operation as a purchase takes.
+     * Once the pool reaches its capacity the release is shed.
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public boolean mixedAdd(Pool pool, Actor actor) {
+        return pool.driver.add(actor.nextEvent(pool.events), actor.vendorId, TICKETS_PER_PURCHASE);
+    }
+
+    /**
+     * Mixed workload, customer side: a non-blocking purchase that may find the pool empty.
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public boolean mixedPurchase(Pool pool, Actor actor, Purchases purchases) {
+        boolean bought = pool.driver.purchase(actor.customerId++);
+        if (bought) {
+            purchases.bought++;
+        } else {
+            purchases.empty++;
+        }
+        return bought;
+    }
+}
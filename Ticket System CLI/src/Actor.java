@@ -0,0 +1,28 @@
+/**
+ * Interface representing a vendor or customer driven by an {@link ActorRunner}.
+ * An actor can run as its own loop, or be stepped one iteration at a time by a shared pool.
+ */
+public interface Actor extends Runnable {
+    /**
+     * Performs one iteration without blocking for tickets.
+     *
+     * @return false once the actor has nothing more to do
+     */
+    boolean step();
+
+    /**
+     * Returns how often the actor steps, following the current configured rate.
+     *
+     * @return steps per second, which may be fractional
+     */
+    double stepsPerSecond();
+
+    /**
+     * Returns the pause before the next iteration, for runners that sleep between steps.
+     *
+     * @return the pause in milliseconds
+     */
+    default long pauseMillis() {
+        return Math.round(1000 / stepsPerSecond());
+    }
+}
@@ -0,0 +1,227 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs vendor and customer actors in the configured {@link ExecutionMode}.
+ * PLATFORM and VIRTUAL modes give every actor its own thread running {@link Actor#run()};
+ * BOUNDED mode steps all actors on a fixed-size scheduled pool, re-scheduling each actor
+ * after its pause. None of the pool's blocking points use monitors: the semaphores, locks and
+ * queues are all {@code java.util.concurrent} types, so virtual threads unmount while waiting
+ * instead of pinning their carrier. Run with {@code -Djdk.tracePinnedThreads=full} to verify;
+ * the synchronous log handlers do synchronize, so use {@code ticket.log.mode=async} with virtual threads.
+ * SCHEDULED mode hands every actor to a {@link RateScheduler}, which paces them all from a few timer threads.
+ * PLATFORM mode gives at most {@code ticket.exec.maxVendorThreads} (default 64) vendors their own OS thread,
+ * however many events are configured; the vendors of a larger catalog are paced by a RateScheduler as well.
+ * Stopping waits for every actor's thread to finish, so nothing an actor was in the middle of, such as
+ * a purchase whose order is still to be queued, is cut off by whatever the caller shuts down next.
+ */
+public class ActorRunner {
+    private final ExecutionMode mode;
+    private final int poolSize;
+
+    // How long stopping waits for actors to finish what they are doing
+    private static final long STOP_TIMEOUT_MILLIS = Long.getLong("ticket.exec.stopTimeoutMillis", 10000);
+
+    // Vendors given their own platform thread; one vendor per event would mean thousands of threads for a large catalog
+    private static final int MAX_VENDOR_THREADS = Integer.getInteger("ticket.exec.maxVendorThreads", 64);
+
+    private final List<Thread> threads = new ArrayList<>();
+    // Threads of the BOUNDED pool, and threads told to stop but not yet seen to finish
+    private final List<Thread> poolThreads = Collections.synchronizedList(new ArrayList<>());
+    private final List<Thread> stopping = new ArrayList<>();
+    private ThreadFactory vendorFactory;
+    private ThreadFactory customerFactory;
+    private ScheduledThreadPoolExecutor scheduler;
+    private RateScheduler rateScheduler;
+    // PLATFORM vendors past the thread limit, and the timer threads stepping them
+    private int vendorThreads;
+    private RateScheduler vendorScheduler;
+    private volatile List<Thread> vendorSchedulerThreads = List.of();
+    private volatile boolean running = false;
+
+    /**
+     * Constructs a runner.
+     *
+     * @param mode     how actors are run
+     * @param poolSize the number of pool threads in BOUNDED mode
+     */
+    public ActorRunner(ExecutionMode mode, int poolSize) {
+        this.mode = mode;
+        this.poolSize = poolSize;
+    }
+
+    /**
+     * Prepares the threads or pool for a new run.
+     */
+    public synchronized void start() {
+        if (mode == ExecutionMode.SIMULATED) {
+            throw new IllegalStateException("SIMULATED actors are run by TicketSystem --simulate, not started live");
+        }
+        running = true;
+        vendorThreads = 0;
+        if (mode == ExecutionMode.BOUNDED) {
+            ThreadFactory poolFactory = ExecutionMode.PLATFORM.threadFactory("actor-");
+            scheduler = new ScheduledThreadPoolExecutor(poolSize, runnable -> {
+                Thread thread = poolFactory.newThread(runnable);
+                thread.setDaemon(true);
+                poolThreads.add(thread);
+                return thread;
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+        } else if (mode == ExecutionMode.SCHEDULED) {
+            rateScheduler = RateScheduler.fromSystemProperties();
+        } else {
+            vendorFactory = mode.threadFactory("vendor-");
+            customerFactory = mode.threadFactory("customer-");
+        }
+    }
+
+    /**
+     * Starts a vendor actor.
+     *
+     * @param vendor the vendor to run
+     */
+    public synchronized void startVendor(Actor vendor) {
+        if (mode == ExecutionMode.PLATFORM && vendorThreads >= MAX_VENDOR_THREADS) {
+            if (vendorScheduler == null) {
+                vendorScheduler = RateScheduler.fromSystemProperties();
+                vendorSchedulerThreads = vendorScheduler.getThreads();
+                TicketSystemLogger.info("More than " + MAX_VENDOR_THREADS + " vendors; the rest are paced by " +
+                        vendorSchedulerThreads.size() + " timer thread(s) instead of a thread each (ticket.exec.maxVendorThreads)");
+            }
+            vendorScheduler.schedule(vendor);
+            return;
+        }
+        vendorThreads++;
+        launch(vendor, vendorFactory);
+    }
+
+    /**
+     * Starts a customer actor.
+     *
+     * @param customer the customer to run
+     */
+    public void startCustomer(Actor customer) {
+        launch(customer, customerFactory);
+    }
+
+    /**
+     * Stops every actor: interrupts per-actor threads or shuts the pool down, then waits for
+     * them to finish. An actor calling this, such as the customer that sold the last ticket,
+     * is not waited for; see {@link #awaitStopped()}.
+     */
+    public void stop() {
+        synchronized (this) {
+            running = false;
+            threads.forEach(Thread::interrupt);
+            stopping.addAll(threads);
+            threads.clear();
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+                scheduler = null;
+                synchronized (poolThreads) {
+                    stopping.addAll(poolThreads);
+                    poolThreads.clear();
+                }
+            }
+            if (rateScheduler != null) {
+                rateScheduler.stop();
+                stopping.addAll(rateScheduler.getThreads());
+                TicketSystemLogger.info(rateScheduler.describe());
+                rateScheduler = null;
+            }
+            if (vendorScheduler != null) {
+                vendorScheduler.stop();
+                stopping.addAll(vendorSchedulerThreads);
+                vendorScheduler = null;
+                vendorSchedulerThreads = List.of();
+            }
+        }
+        awaitStopped();
+    }
+
+    /**
+     * Waits up to {@code ticket.exec.stopTimeoutMillis} (default 10000) for the threads of stopped
+     * actors to finish, other than the calling thread. Called again from another thread, it also
+     * waits for an actor that stopped the runner itself.
+     *
+     * @return true if every stopped thread other than the caller has finished
+     */
+    public boolean awaitStopped() {
+        List<Thread> pending;
+        synchronized (this) {
+            pending = new ArrayList<>(stopping);
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STOP_TIMEOUT_MILLIS);
+        boolean interrupted = Thread.interrupted();
+        for (Thread thread : pending) {
+            while (thread != Thread.currentThread() && thread.isAlive() && deadline - System.nanoTime() > 0) {
+                try {
+                    thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        long unfinished;
+        synchronized (this) {
+            stopping.removeIf(thread -> !thread.isAlive());
+            unfinished = stopping.stream().filter(thread -> thread != Thread.currentThread()).count();
+        }
+        if (unfinished > 0) {
+            TicketSystemLogger.warning(unfinished + " actor thread(s) still running " +
+                    STOP_TIMEOUT_MILLIS + " ms after being stopped");
+            return false;
+        }
+        return true;
+    }
+
+    public ExecutionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Checks whether the calling actor runs on a thread of its own, where it may block, rather than
+     * being stepped by a shared thread that must never block.
+     *
+     * @return true if the caller may block
+     */
+    public boolean mayBlock() {
+        return !mode.isStepped() && !vendorSchedulerThreads.contains(Thread.currentThread());
+    }
+
+    private synchronized void launch(Actor actor, ThreadFactory factory) {
+        if (mode == ExecutionMode.BOUNDED) {
+            scheduleStep(scheduler, actor, 0);
+        } else if (mode == ExecutionMode.SCHEDULED) {
+            rateScheduler.schedule(actor);
+        } else {
+            Thread thread = factory.newThread(actor);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    /**
+     * Runs one step of an actor and schedules the next one after the actor's current pause.
+     */
+    private void scheduleStep(ScheduledThreadPoolExecutor pool, Actor actor, long delayMillis) {
+        try {
+            pool.schedule(() -> {
+                if (running && actor.step()) {
+                    scheduleStep(pool, actor, actor.pauseMillis());
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The pool was shut down between steps
+        }
+    }
+}
@@ -0,0 +1,273 @@
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Asynchronous back end for {@link TicketSystemLogger}.
+ * Logging threads claim a slot in a pre-allocated, lock-free ring with a CAS and store the
+ * level, timestamp, message template and arguments there. A single consumer thread formats the
+ * events and hands them to the handlers, so disk and console I/O never run on a buyer's thread.
+ * When the ring is full the configured {@link OverflowPolicy} decides whether to wait or drop.
+ */
+public class AsyncLogger {
+
+    /**
+     * What a logging thread does when the ring is full.
+     */
+    public enum OverflowPolicy {
+        // Wait for the consumer to free a slot
+        BLOCK,
+        // Discard the event and count it
+        DROP,
+        // Keep one in every sampleRate events and discard the rest
+        SAMPLE
+    }
+
+    /**
+     * One pre-allocated ring slot. Fields are written by the producer that claimed the slot
+     * and published to the consumer through the slot's sequence number.
+     */
+    private static final class LogEvent {
+        Level level;
+        long timestampMillis;
+        String message;
+        Supplier<String> supplier;
+        Object arg1;
+        Object arg2;
+        Object arg3;
+
+        void clear() {
+            level = null;
+            message = null;
+            supplier = null;
+            arg1 = null;
+            arg2 = null;
+            arg3 = null;
+        }
+
+        String format() {
+            if (supplier != null) {
+                return supplier.get();
+            }
+            if (arg1 == null && arg2 == null && arg3 == null) {
+                return message;
+            }
+            return String.format(message, arg1, arg2, arg3);
+        }
+    }
+
+    private final LogEvent[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(); // Next slot producers claim
+    private volatile long head = 0;                   // Next slot the consumer reads
+
+    private final Handler[] handlers;
+    private final String loggerName;
+    private final OverflowPolicy overflowPolicy;
+    private final int sampleRate;
+    private final Thread consumer;
+
+    private final AtomicLong overflows = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long droppedReported = 0;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs the ring and starts the consumer thread.
+     *
+     * @param capacity       the number of slots, rounded up to a power of two
+     * @param overflowPolicy what to do when the ring is full
+     * @param sampleRate     for {@link OverflowPolicy#SAMPLE}, keep one in this many overflowing events
+     * @param loggerName     the logger name stamped on formatted records and shown as their source
+     * @param handlers       the sinks receiving formatted records, each filtering on its own level
+     */
+    public AsyncLogger(int capacity, OverflowPolicy overflowPolicy, int sampleRate,
+                       String loggerName, Handler... handlers) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new LogEvent[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new LogEvent();
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.overflowPolicy = overflowPolicy;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.loggerName = loggerName;
+        this.handlers = handlers;
+
+        this.consumer = new Thread(this::consume, "async-logger");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /**
+     * Queues an event whose message is either a plain string or a {@link String#format} template.
+     */
+    public void publish(Level level, String message, Object arg1, Object arg2, Object arg3) {
+        long sequence = claim();
+        if (sequence < 0) {
+            return;
+        }
+        LogEvent event = slots[(int) (sequence & mask)];
+        fill(event, level);
+        event.message = message;
+        event.arg1 = arg1;
+        event.arg2 = arg2;
+        event.arg3 = arg3;
+        sequences.lazySet((int) (sequence & mask), sequence + 1);
+    }
+
+    /**
+     * Queues an event whose message is built by the consumer thread.
+     */
+    public void publish(Level level, Supplier<String> supplier) {
+        long sequence = claim();
+        if (sequence < 0) {
+            return;
+        }
+        LogEvent event = slots[(int) (sequence & mask)];
+        fill(event, level);
+        event.supplier = supplier;
+        sequences.lazySet((int) (sequence & mask), sequence + 1);
+    }
+
+    /**
+     * Waits until every event published before the call has been written, then flushes the handlers.
+     */
+    public void flush() {
+        long target = tail.get();
+        while (running && head < target && consumer.isAlive()) {
+            LockSupport.parkNanos(100_000);
+        }
+        for (Handler handler : handlers) {
+            handler.flush();
+        }
+    }
+
+    /**
+     * Drains the ring, stops the consumer thread and closes the handlers, releasing the log file.
+     */
+    public void shutdown() {
+        flush();
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Handler handler : handlers) {
+            handler.close();
+        }
+    }
+
+    // Getters for overflow statistics
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getOverflows() {
+        return overflows.get();
+    }
+
+    private void fill(LogEvent event, Level level) {
+        event.level = level;
+        event.timestampMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Claims the next free slot, applying the overflow policy when the ring is full.
+     * Events are dropped whatever the policy once the consumer thread has died.
+     *
+     * @return the claimed sequence, or -1 if the event is dropped
+     */
+    private long claim() {
+        boolean mustKeep = false;
+        while (true) {
+            long current = tail.get();
+            long slotSequence = sequences.get((int) (current & mask));
+            if (slotSequence == current) {
+                if (tail.compareAndSet(current, current + 1)) {
+                    return current;
+                }
+            } else if (slotSequence < current) {
+                // The ring is full
+                if (!consumer.isAlive()) {
+                    dropped.incrementAndGet();
+                    return -1; // No slot will ever be freed
+                }
+                if (!mustKeep) {
+                    long overflow = overflows.incrementAndGet();
+                    if (overflowPolicy == OverflowPolicy.DROP
+                            || (overflowPolicy == OverflowPolicy.SAMPLE && overflow % sampleRate != 0)) {
+                        dropped.incrementAndGet();
+                        return -1;
+                    }
+                    mustKeep = true;
+                }
+                LockSupport.parkNanos(1_000);
+            }
+            // Otherwise another producer claimed the slot first; retry
+        }
+    }
+
+    /**
+     * Consumer loop: formats events in sequence order and publishes them to every handler.
+     */
+    private void consume() {
+        int idleSpins = 0;
+        while (running || head < tail.get()) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                reportDropped();
+                // Nothing published yet; back off progressively while idle
+                LockSupport.parkNanos(idleSpins++ < 100 ? 10_000 : 1_000_000);
+                continue;
+            }
+            idleSpins = 0;
+            LogEvent event = slots[index];
+            LogRecord record;
+            try {
+                record = new LogRecord(event.level, event.format());
+            } catch (RuntimeException e) {
+                record = new LogRecord(Level.WARNING, "Failed to format log message: " + e);
+            }
+            record.setInstant(Instant.ofEpochMilli(event.timestampMillis));
+            record.setLoggerName(loggerName);
+            // Match the source shown for synchronous records, which is the TicketSystemLogger method
+            record.setSourceClassName(loggerName);
+            record.setSourceMethodName(event.level.getName().toLowerCase());
+            event.clear();
+            sequences.lazySet(index, head + slots.length);
+
+            for (Handler handler : handlers) {
+                handler.publish(record);
+            }
+            // Advanced only once the handlers have the record, so flush() waits for it
+            head++;
+        }
+    }
+
+    /**
+     * Writes a warning once the consumer has caught up after events were dropped.
+     */
+    private void reportDropped() {
+        long total = dropped.get();
+        if (total != droppedReported) {
+            LogRecord record = new LogRecord(Level.WARNING,
+                    (total - droppedReported) + " log event(s) dropped because the log buffer was full");
+            record.setLoggerName(loggerName);
+            droppedReported = total;
+            for (Handler handler : handlers) {
+                handler.publish(record);
+            }
+        }
+    }
+}
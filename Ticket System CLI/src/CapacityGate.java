@@ -0,0 +1,132 @@
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the number of tickets on sale at once to the configured max ticket capacity.
+ * Vendors are admitted before they add tickets and customers hand the space back after buying,
+ * which wakes a waiting vendor. When the pool is full the {@link Policy} decides whether a
+ * vendor waits, waits for a limited time, or sheds its release straight away.
+ */
+public class CapacityGate {
+
+    /**
+     * What a vendor does when the pool is at capacity.
+     */
+    public enum Policy {
+        // Wait until customers free space
+        BLOCK,
+        // Wait up to ticket.capacity.timeoutMillis, then give up on this release
+        TIMEOUT,
+        // Give up on this release immediately
+        SHED
+    }
+
+    private final int capacity;
+    private final Semaphore freeSpace;
+    private final Policy policy;
+    private final long timeoutNanos;
+
+    // Backpressure statistics
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder shedTickets = new LongAdder();
+
+    /**
+     * Constructs a gate.
+     *
+     * @param capacity the maximum number of tickets on sale at once
+     * @param onSale   the number of tickets already on sale
+     * @param policy   what vendors do when the pool is full
+     * @param timeout  how long vendors wait in {@link Policy#TIMEOUT} mode
+     * @param unit     the unit of the timeout
+     */
+    public CapacityGate(int capacity, int onSale, Policy policy, long timeout, TimeUnit unit) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Max ticket capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.freeSpace = new Semaphore(Math.max(0, capacity - onSale));
+        this.policy = policy;
+        this.timeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * Creates a gate whose policy and timeout come from the {@code ticket.capacity.policy}
+     * and {@code ticket.capacity.timeoutMillis} system properties.
+     *
+     * @param capacity the maximum number of tickets on sale at once
+     * @param onSale   the number of tickets already on sale
+     * @return the gate
+     */
+    public static CapacityGate fromSystemProperties(int capacity, int onSale) {
+        Policy policy = Policy.valueOf(System.getProperty("ticket.capacity.policy", Policy.BLOCK.name()).trim().toUpperCase());
+        long timeoutMillis = Long.getLong("ticket.capacity.timeoutMillis", 1000);
+        return new CapacityGate(capacity, onSale, policy, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Claims space for up to {@code tickets} tickets. A vendor that finds some space takes
+     * what is free instead of waiting for room for its whole release.
+     *
+     * @param tickets  the number of tickets the vendor wants to add
+     * @param mayBlock false to never wait, whatever the policy; used when vendors run on a shared pool
+     * @return the number of tickets admitted, 0 if the release was shed or timed out
+     * @throws InterruptedException if interrupted while waiting for space
+     */
+    public int admit(int tickets, boolean mayBlock) throws InterruptedException {
+        if (!freeSpace.tryAcquire()) {
+            boolean admitted = false;
+            if (mayBlock && policy != Policy.SHED) {
+                waits.increment();
+                if (policy == Policy.BLOCK) {
+                    freeSpace.acquire();
+                    admitted = true;
+                } else {
+                    admitted = freeSpace.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+            if (!admitted) {
+                shedTickets.add(tickets);
+                return 0;
+            }
+        }
+        // Take whatever further space is free right now, up to the release size
+        int admitted = 1;
+        while (admitted < tickets && freeSpace.tryAcquire()) {
+            admitted++;
+        }
+        return admitted;
+    }
+
+    /**
+     * Hands space back after tickets were sold or an admitted release was not used.
+     *
+     * @param tickets the number of tickets that left the pool
+     */
+    public void release(int tickets) {
+        if (tickets > 0) {
+            freeSpace.release(tickets);
+        }
+    }
+
+    // Getters for the gate state and backpressure statistics
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getFreeSpace() {
+        return freeSpace.availablePermits();
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public long getWaits() {
+        return waits.sum();
+    }
+
+    public long getShedTickets() {
+        return shedTickets.sum();
+    }
+}
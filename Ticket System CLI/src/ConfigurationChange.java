@@ -0,0 +1,76 @@
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A set of configuration changes applied to a running pool in one step by
+ * {@link TicketPool#reconfigure}. Anything not set is left as it is.
+ */
+public class ConfigurationChange {
+    private Integer ticketReleaseRate;
+    private Integer customerRetrievalRate;
+    private final Map<String, Double> eventPrices = new LinkedHashMap<>();
+    private final Set<String> retiredEvents = new LinkedHashSet<>();
+
+    /**
+     * Summarises the change for the log.
+     *
+     * @return a one-line description
+     */
+    public String describe() {
+        StringBuilder description = new StringBuilder();
+        if (ticketReleaseRate != null) {
+            description.append("Ticket Release Rate: ").append(ticketReleaseRate).append(", ");
+        }
+        if (customerRetrievalRate != null) {
+            description.append("Customer Retrieval Rate: ").append(customerRetrievalRate).append(", ");
+        }
+        eventPrices.forEach((eventName, price) -> description.append("Event ").append(eventName)
+                .append(": $").append(String.format("%.2f", price)).append(", "));
+        retiredEvents.forEach(eventName -> description.append("Retired: ").append(eventName).append(", "));
+        return description.length() == 0 ? "no changes" : description.substring(0, description.length() - 2);
+    }
+
+    // Checks whether the change changes anything
+    public boolean isEmpty() {
+        return ticketReleaseRate == null && customerRetrievalRate == null && eventPrices.isEmpty() && retiredEvents.isEmpty();
+    }
+
+    // Getters for the changed properties; null rates are left unchanged
+    public Integer getTicketReleaseRate() {
+        return ticketReleaseRate;
+    }
+
+    public Integer getCustomerRetrievalRate() {
+        return customerRetrievalRate;
+    }
+
+    public Map<String, Double> getEventPrices() {
+        return Collections.unmodifiableMap(eventPrices);
+    }
+
+    public Set<String> getRetiredEvents() {
+        return Collections.unmodifiableSet(retiredEvents);
+    }
+
+    // Setter methods for the properties to change
+    public void setTicketReleaseRate(int ticketReleaseRate) {
+        this.ticketReleaseRate = ticketReleaseRate;
+    }
+
+    public void setCustomerRetrievalRate(int customerRetrievalRate) {
+        this.customerRetrievalRate = customerRetrievalRate;
+    }
+
+    // Adds a new event, or changes the price of new releases for an existing one
+    public void setEventPrice(String eventName, double price) {
+        eventPrices.put(eventName.trim(), price);
+    }
+
+    // Stops new releases for an event; tickets already in the pool stay on sale
+    public void retireEvent(String eventName) {
+        retiredEvents.add(eventName.trim());
+    }
+}
@@ -0,0 +1,214 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configures the system from files instead of the wizard, for venues with too many events to type in.
+ * The settings come from {@code --name=value} arguments or the properties file named by {@code --config},
+ * and the events from a CSV catalog of {@code name,price} rows, one per event, read in a single pass.
+ * Every row is checked against the wizard's limits and all problems are reported together, with line
+ * numbers, before anything is saved; a valid catalog is then saved through
+ * {@link DatabaseInterface#replaceConfiguration} as one unit. Each event gets its own vendor when the
+ * system starts, so the catalog sets the number of vendors too.
+ */
+public class ConfigurationImporter {
+    private static final Set<String> OPTIONS = Set.of("config", "events", "total-tickets", "release-rate",
+            "retrieval-rate", "capacity");
+
+    // Problems listed before the rest are only counted
+    private static final int MAX_REPORTED_ERRORS = 20;
+
+    private final Path catalog;
+    private final int totalTickets;
+    private final int releaseRate;
+    private final int retrievalRate;
+    private final int capacity;
+
+    /**
+     * Constructs an importer.
+     *
+     * @param catalog       the CSV file of events and prices
+     * @param totalTickets  the total number of tickets
+     * @param releaseRate   the ticket release rate
+     * @param retrievalRate the customer retrieval rate
+     * @param capacity      the max ticket capacity
+     */
+    public ConfigurationImporter(Path catalog, int totalTickets, int releaseRate, int retrievalRate, int capacity) {
+        this.catalog = catalog;
+        this.totalTickets = totalTickets;
+        this.releaseRate = releaseRate;
+        this.retrievalRate = retrievalRate;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Creates an importer from {@code --name=value} arguments: {@code events} (the catalog file, required),
+     * {@code total-tickets}, {@code release-rate}, {@code retrieval-rate} and {@code capacity}, or the same
+     * names in the properties file named by {@code --config}.
+     *
+     * @param args the arguments
+     * @return the importer
+     * @throws IllegalArgumentException if an option is unknown, malformed or missing
+     */
+    public static ConfigurationImporter fromArguments(String[] args) {
+        Properties options = LoadGenerator.parseOptions(args, OPTIONS, "import");
+        String catalog = options.getProperty("events");
+        if (catalog == null || catalog.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing import option: events");
+        }
+        int totalTickets = LoadGenerator.intOption(options, "total-tickets", 1000, 1);
+        return new ConfigurationImporter(Path.of(catalog.trim()), totalTickets,
+                LoadGenerator.intOption(options, "release-rate", Math.min(10, totalTickets), 1),
+                LoadGenerator.intOption(options, "retrieval-rate", Math.min(10, totalTickets), 1),
+                LoadGenerator.intOption(options, "capacity", 100, 1));
+    }
+
+    /**
+     * Opens the persistence backend, imports the configuration and prints how long reading and saving took.
+     */
+    public void run() {
+        long start = System.nanoTime();
+        Map<String, Double> prices = readCatalog();
+        long read = System.nanoTime();
+
+        DatabaseInterface database = DatabaseInterface.create();
+        try {
+            long open = System.nanoTime();
+            ConfigurationSnapshot snapshot = new TicketPoolConfiguration().importConfiguration(totalTickets,
+                    releaseRate, retrievalRate, capacity, prices, database);
+            long saved = System.nanoTime();
+            System.out.printf("Imported %d events from %s: read and checked in %d ms, saved in %d ms%n",
+                    snapshot.getEventCount(), catalog, TimeUnit.NANOSECONDS.toMillis(read - start),
+                    TimeUnit.NANOSECONDS.toMillis(saved - open));
+        } finally {
+            database.close();
+        }
+    }
+
+    /**
+     * Reads and checks the event catalog. A first row whose price is not a number is taken as a header.
+     *
+     * @return the ticket price of each event, in file order
+     * @throws IllegalArgumentException if any row is invalid, listing the problems found
+     * @throws UncheckedIOException     if the file cannot be read
+     */
+    public Map<String, Double> readCatalog() {
+        Map<String, Double> prices = new LinkedHashMap<>();
+        Set<String> names = new HashSet<>();
+        List<String> errors = new ArrayList<>();
+        int errorCount = 0;
+        boolean firstRow = true;
+        try (BufferedReader reader = Files.newBufferedReader(catalog, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                boolean headerAllowed = firstRow;
+                firstRow = false;
+                String problem;
+                List<String> fields = splitCsv(line);
+                if (fields == null || fields.size() != 2) {
+                    problem = "Expected name,price";
+                } else {
+                    String eventName = fields.get(0).trim();
+                    double price = parsePrice(fields.get(1).trim());
+                    if (Double.isNaN(price) && headerAllowed) {
+                        continue; // Header row
+                    }
+                    problem = Double.isNaN(price) ? "Invalid ticket price: " + fields.get(1).trim()
+                            : TicketPoolConfiguration.checkEvent(eventName, price);
+                    if (problem == null && !names.add(eventName.toLowerCase())) {
+                        problem = "An event with this name already exists: " + eventName;
+                    }
+                    if (problem == null) {
+                        prices.put(eventName, price);
+                    }
+                }
+                if (problem != null && errorCount++ < MAX_REPORTED_ERRORS) {
+                    errors.add("Line " + lineNumber + ": " + problem);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read event catalog " + catalog, e);
+        }
+
+        if (errorCount == 0 && prices.size() > TicketPoolConfiguration.MAX_EVENTS) {
+            errors.add("Number of events must be between 1 and " + TicketPoolConfiguration.MAX_EVENTS + ".");
+            errorCount++;
+        }
+        if (errorCount == 0 && prices.isEmpty()) {
+            errors.add("No events found.");
+            errorCount++;
+        }
+        if (errorCount > 0) {
+            StringBuilder message = new StringBuilder("Event catalog " + catalog + " has " + errorCount + " problem(s):");
+            for (String error : errors) {
+                message.append(System.lineSeparator()).append("  ").append(error);
+            }
+            if (errorCount > errors.size()) {
+                message.append(System.lineSeparator()).append("  ... and ").append(errorCount - errors.size()).append(" more");
+            }
+            throw new IllegalArgumentException(message.toString());
+        }
+        return prices;
+    }
+
+    // Parses a price, allowing a leading $; NaN if it is not a number
+    private static double parsePrice(String text) {
+        try {
+            return Double.parseDouble(text.startsWith("$") ? text.substring(1) : text);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Splits a CSV line into fields; a field in double quotes may hold commas and doubled quotes.
+     *
+     * @return the fields, or null if a quoted field is not closed
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(2);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
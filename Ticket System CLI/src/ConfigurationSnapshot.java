@@ -0,0 +1,117 @@
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable copy of the ticket pool configuration, published by {@link TicketPoolConfiguration}
+ * through a single volatile reference. Events are numbered densely in the order they were added
+ * and their prices are kept in a primitive array, so readers on the hot path look a price up by
+ * event ID with one array load instead of hashing or copying a map.
+ * A retired event keeps its ID, so IDs held by running vendors stay valid across reconfigurations.
+ */
+public final class ConfigurationSnapshot {
+    // The snapshot of a configuration nothing has been set on
+    static final ConfigurationSnapshot EMPTY = new ConfigurationSnapshot(0, 0, 0, 0,
+            Collections.emptyMap(), Collections.emptySet());
+
+    private final int totalTickets;
+    private final int ticketReleaseRate;
+    private final int customerRetrievalRate;
+    private final int maxTicketCapacity;
+
+    // Event ID to name and price, and name to ID
+    private final String[] eventNames;
+    private final double[] eventPrices;
+    private final boolean[] retired;
+    private final Map<String, Integer> eventIds;
+    // The events still being released
+    private final Map<String, Double> eventPriceMap;
+
+    /**
+     * Compiles a snapshot. Event IDs follow the iteration order of the price map.
+     *
+     * @param totalTickets          the total ticket limit
+     * @param ticketReleaseRate     the ticket release rate
+     * @param customerRetrievalRate the customer retrieval rate
+     * @param maxTicketCapacity     the max ticket capacity
+     * @param prices                the ticket price of each event, retired ones included
+     * @param retiredEvents         the events no longer being released
+     */
+    ConfigurationSnapshot(int totalTickets, int ticketReleaseRate, int customerRetrievalRate,
+                          int maxTicketCapacity, Map<String, Double> prices, Set<String> retiredEvents) {
+        this.totalTickets = totalTickets;
+        this.ticketReleaseRate = ticketReleaseRate;
+        this.customerRetrievalRate = customerRetrievalRate;
+        this.maxTicketCapacity = maxTicketCapacity;
+        this.eventNames = new String[prices.size()];
+        this.eventPrices = new double[prices.size()];
+        this.retired = new boolean[prices.size()];
+        Map<String, Integer> ids = new HashMap<>();
+        Map<String, Double> active = new LinkedHashMap<>();
+        int id = 0;
+        for (Map.Entry<String, Double> entry : prices.entrySet()) {
+            eventNames[id] = entry.getKey();
+            eventPrices[id] = entry.getValue();
+            retired[id] = retiredEvents.contains(entry.getKey());
+            ids.put(entry.getKey(), id);
+            if (!retired[id]) {
+                active.put(entry.getKey(), entry.getValue());
+            }
+            id++;
+        }
+        this.eventIds = ids;
+        this.eventPriceMap = Collections.unmodifiableMap(active);
+    }
+
+    /**
+     * Finds the ID of an event.
+     *
+     * @param eventName the name of the event
+     * @return the event ID, or -1 if there is no such event
+     */
+    public int eventId(String eventName) {
+        Integer id = eventIds.get(eventName);
+        return id == null ? -1 : id;
+    }
+
+    // Checks whether an event has been retired and gets no new releases
+    public boolean isRetired(int eventId) {
+        return retired[eventId];
+    }
+
+    // Getters for the rates, limits and events
+    public int getTotalTickets() {
+        return totalTickets;
+    }
+
+    public int getTicketReleaseRate() {
+        return ticketReleaseRate;
+    }
+
+    public int getCustomerRetrievalRate() {
+        return customerRetrievalRate;
+    }
+
+    public int getMaxTicketCapacity() {
+        return maxTicketCapacity;
+    }
+
+    public int getEventCount() {
+        return eventNames.length;
+    }
+
+    public String getEventName(int eventId) {
+        return eventNames[eventId];
+    }
+
+    public double getEventPrice(int eventId) {
+        return eventPrices[eventId];
+    }
+
+    // Read-only view of the events still being released and their prices, in event ID order
+    public Map<String, Double> getEventPrices() {
+        return eventPriceMap;
+    }
+}
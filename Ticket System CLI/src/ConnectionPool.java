@@ -0,0 +1,437 @@
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded pool of JDBC connections for the Database class.
+ * Connections are validated before reuse, closed after sitting idle too long,
+ * and each one keeps its own cache of prepared statements.
+ * The lock only guards the idle list and the connection count: opening, validating and closing
+ * connections are network round trips, so they always run after the lock is released.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+    // Connections idle for less than this are handed out without a validation round trip
+    private static final long VALIDATION_INTERVAL_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("ticket.db.validationIntervalMillis", 5000));
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long maxWaitNanos;
+    private final long idleTimeoutNanos;
+
+    // Idle connections, most recently used first so the hottest connection keeps being reused
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition connectionReturned = lock.newCondition();
+    private int totalConnections = 0;
+    private boolean closed = false;
+
+    private final ScheduledExecutorService evictor;
+
+    // Pool statistics
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Constructs a pool and starts its idle-eviction task.
+     *
+     * @param url         the JDBC URL
+     * @param user        the database user
+     * @param password    the database password
+     * @param maxSize     the maximum number of open connections
+     * @param maxWait     the longest time a caller waits for a free connection
+     * @param idleTimeout how long a connection may stay idle before it is closed
+     * @param unit        the unit of the wait and idle times
+     */
+    public ConnectionPool(String url, String user, String password, int maxSize,
+                          long maxWait, long idleTimeout, TimeUnit unit) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Connection pool size must be positive");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, unit.toMillis(idleTimeout) / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, reusing an idle one when possible.
+     * Close the returned connection to hand it back to the pool.
+     *
+     * @return a pooled connection
+     * @throws SQLException if no connection could be opened or none became free in time
+     */
+    public PooledConnection borrow() throws SQLException {
+        long deadline = System.nanoTime() + maxWaitNanos;
+        boolean waited = false;
+        long waitStart = 0;
+
+        while (true) {
+            PooledConnection pooled;
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is closed");
+                    }
+
+                    // Take the most recently returned connection; it stays counted while it is checked
+                    pooled = idle.pollFirst();
+                    if (pooled != null) {
+                        break;
+                    }
+
+                    // Open a new connection if the pool has room
+                    if (totalConnections < maxSize) {
+                        totalConnections++;
+                        break;
+                    }
+
+                    // Otherwise wait for one to be returned
+                    if (!waited) {
+                        waited = true;
+                        waitStart = System.nanoTime();
+                        waits.incrementAndGet();
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeouts.incrementAndGet();
+                        recordWait(true, waitStart);
+                        throw new SQLException("Timed out waiting for a database connection (pool size " + maxSize + ")");
+                    }
+                    try {
+                        connectionReturned.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", e);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (pooled == null) {
+                break;
+            }
+
+            // Reuse the connection if it is still healthy, checked outside the lock so a slow or dead
+            // connection holds up only this borrower
+            if (isHealthy(pooled)) {
+                hits.incrementAndGet();
+                recordWait(waited, waitStart);
+                return pooled;
+            }
+            discard(pooled);
+        }
+
+        // Open the new connection outside the lock so other borrowers are not held up by the handshake
+        misses.incrementAndGet();
+        recordWait(waited, waitStart);
+        try {
+            return new PooledConnection(DriverManager.getConnection(url, user, password));
+        } catch (SQLException e) {
+            lock.lock();
+            try {
+                totalConnections--;
+                connectionReturned.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a connection to the pool, rolling back any unfinished transaction first.
+     */
+    private void release(PooledConnection pooled) {
+        boolean reusable = pooled.reset();
+        lock.lock();
+        try {
+            if (reusable && !closed) {
+                pooled.lastUsedNanos = System.nanoTime();
+                idle.addFirst(pooled);
+                connectionReturned.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        discard(pooled);
+    }
+
+    /**
+     * Closes a connection taken out of the pool, then frees its place. The place is only freed once
+     * the connection is closed, so the pool never has more than its maximum open at once.
+     */
+    private void discard(PooledConnection pooled) {
+        pooled.closePhysical();
+        lock.lock();
+        try {
+            totalConnections--;
+            connectionReturned.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks a connection before handing it out, validating it only if it sat idle for a while.
+     */
+    private boolean isHealthy(PooledConnection pooled) {
+        if (System.nanoTime() - pooled.lastUsedNanos < VALIDATION_INTERVAL_NANOS) {
+            return true;
+        }
+        try {
+            return pooled.connection.isValid(1);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Closes connections that have been idle longer than the idle timeout.
+     */
+    private void evictIdle() {
+        long now = System.nanoTime();
+        List<PooledConnection> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            Iterator<PooledConnection> iterator = idle.descendingIterator();
+            while (iterator.hasNext()) {
+                PooledConnection pooled = iterator.next();
+                if (now - pooled.lastUsedNanos < idleTimeoutNanos) {
+                    break; // Older connections sit at the tail, so the rest are fresher
+                }
+                iterator.remove();
+                expired.add(pooled);
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (PooledConnection pooled : expired) {
+            evictions.incrementAndGet();
+            discard(pooled);
+        }
+    }
+
+    private void recordWait(boolean waited, long waitStart) {
+        if (waited) {
+            waitNanos.addAndGet(System.nanoTime() - waitStart);
+        }
+    }
+
+    /**
+     * Closes every idle connection and stops the eviction task.
+     * Connections still borrowed are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+        List<PooledConnection> drained;
+        lock.lock();
+        try {
+            closed = true;
+            drained = new ArrayList<>(idle);
+            idle.clear();
+            connectionReturned.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        drained.forEach(this::discard);
+    }
+
+    // Getters for pool sizing statistics
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getOpenConnections() {
+        lock.lock();
+        try {
+            return totalConnections;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getIdleConnections() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getWaits() {
+        return waits.get();
+    }
+
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos.get());
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Summarizes the pool statistics in one line for logging.
+     *
+     * @return the pool statistics
+     */
+    public String describe() {
+        return String.format("Connection Pool - Open: %d/%d | Idle: %d | Hits: %d | Misses: %d | Waits: %d (%d ms) | Timeouts: %d | Evicted: %d",
+                getOpenConnections(), maxSize, getIdleConnections(), getHits(), getMisses(),
+                getWaits(), getTotalWaitMillis(), getTimeouts(), getEvictions());
+    }
+
+    /**
+     * A borrowed connection with its own prepared-statement cache.
+     * Statements obtained through {@link #prepare(String)} belong to the cache and must not be closed.
+     */
+    public class PooledConnection implements AutoCloseable {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+        private long lastUsedNanos = System.nanoTime();
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * Returns the cached prepared statement for a query, preparing it on first use.
+         *
+         * @param sql the query
+         * @return a statement with its parameters cleared
+         * @throws SQLException if the statement cannot be prepared
+         */
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement stmt = statements.get(sql);
+            if (stmt == null || stmt.isClosed()) {
+                stmt = connection.prepareStatement(sql);
+                statements.put(sql, stmt);
+            } else {
+                stmt.clearParameters();
+                stmt.clearBatch();
+            }
+            return stmt;
+        }
+
+        /**
+         * Returns the cached prepared statement for an insert whose generated keys are read back,
+         * preparing it on first use.
+         *
+         * @param sql the insert
+         * @return a statement with its parameters cleared
+         * @throws SQLException if the statement cannot be prepared
+         */
+        public PreparedStatement prepareReturningKeys(String sql) throws SQLException {
+            String key = "KEYS:" + sql;
+            PreparedStatement stmt = statements.get(key);
+            if (stmt == null || stmt.isClosed()) {
+                stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+                statements.put(key, stmt);
+            } else {
+                stmt.clearParameters();
+                stmt.clearBatch();
+            }
+            return stmt;
+        }
+
+        // Access to the underlying connection for transaction control
+        public Connection getConnection() {
+            return connection;
+        }
+
+        /**
+         * Returns the connection to the pool.
+         */
+        @Override
+        public void close() {
+            release(this);
+        }
+
+        /**
+         * Puts the connection back into auto-commit mode, rolling back anything left open.
+         *
+         * @return true if the connection can be reused
+         */
+        private boolean reset() {
+            try {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+                return !connection.isClosed();
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "Discarding connection that failed to reset", e);
+                return false;
+            }
+        }
+
+        /**
+         * Closes the cached statements and the physical connection.
+         */
+        private void closePhysical() {
+            for (PreparedStatement stmt : statements.values()) {
+                try {
+                    stmt.close();
+                } catch (SQLException ignored) {}
+            }
+            statements.clear();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "Error closing connection", e);
+            }
+        }
+    }
+}
@@ -4,7 +4,7 @@
  * with the purchase attempt happening at a frequency determined by the system configuration.
  */
 
-public class Customer implements Runnable {
+public class Customer implements Actor {
     private final TicketPool ticketPool;
     private final int customerId;
 
@@ -28,15 +28,47 @@ public class Customer implements Runnable {
         try {
             // Run continuously until the thread is interrupted
             while (!Thread.currentThread().isInterrupted()) {
-                ticketPool.purchaseTickets(customerId);
+                purchase();
 
                 // Sleep for a duration based on the configured customer retrieval rate (adjusted by 30 seconds)
                 // This controls how frequently customers attempt to purchase tickets
-                Thread.sleep(30000 / ticketPool.getCustomerRetrievalRate());
+                Thread.sleep(pauseMillis());
             }
         } catch (InterruptedException e) {
             // Handle interruption and restore interrupt status
             Thread.currentThread().interrupt();
         }
     }
+
+    /**
+     * Makes one purchase attempt without waiting for tickets to be released.
+     *
+     * @return always true; customers keep trying until they are stopped
+     */
+    @Override
+    public boolean step() {
+        try {
+            ticketPool.tryPurchaseTickets(customerId);
+        } catch (IllegalStateException e) {
+            TicketSystemLogger.severe("Customer " + customerId + " purchase failed: " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Makes one purchase, waiting for tickets. A purchase whose order could not be stored
+     * is logged and the customer carries on.
+     */
+    private void purchase() {
+        try {
+            ticketPool.purchaseTickets(customerId);
+        } catch (IllegalStateException e) {
+            TicketSystemLogger.severe("Customer " + customerId + " purchase failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public double stepsPerSecond() {
+        return ticketPool.getCustomerStepsPerSecond();
+    }
 }
\ No newline at end of file
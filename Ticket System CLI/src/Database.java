@@ -4,14 +4,23 @@
  */
 
 import java.sql.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Manages database operations for the Ticket Handling System.
  * It provides methods to manage system configurations, events, and transactions.
+ * All methods share a bounded connection pool with per-connection prepared-statement caches.
  */
-public class Database {
+public class Database implements DatabaseInterface {
     private static final Logger LOGGER = Logger.getLogger(Database.class.getName());
 
     // Database connection credentials
@@ -19,37 +28,137 @@ public class Database {
     private static final String DB_USER = "root";
     private static final String DB_PASSWORD = "Pavistar66";
 
+    // Connection pool sizing, overridable through system properties
+    private static final int POOL_SIZE = Integer.getInteger("ticket.db.poolSize", 8);
+    private static final long POOL_MAX_WAIT_MILLIS = Long.getLong("ticket.db.maxWaitMillis", 5000);
+    private static final long POOL_IDLE_TIMEOUT_MILLIS = Long.getLong("ticket.db.idleTimeoutMillis", 60000);
+
+    // Rows fetched per round trip by report queries; 0 streams row by row, more than 0 uses a server-side cursor
+    private static final int REPORT_FETCH_SIZE = Integer.getInteger("ticket.db.reportFetchSize", 0);
+
+    // Rows rewritten per committed chunk while migrating an older schema
+    private static final int MIGRATION_CHUNK = Integer.getInteger("ticket.db.migrationChunk", 10000);
+
+    // Seconds a process waits for another one creating or upgrading the schema before giving up
+    private static final int SCHEMA_LOCK_SECONDS = Integer.getInteger("ticket.db.schemaLockSeconds", 300);
+
+    // Current schema revision: 2 keys orders by event ID and adds the report indexes
+    private static final int SCHEMA_VERSION = 2;
+
+    private static final String INSERT_ORDER = "INSERT INTO orders " +
+            "(event_id, customer_id, ticket_count, total_price) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_ORDER_ITEM = "INSERT INTO order_items " +
+            "(order_id, line_no, vendor_id, ticket_count, ticket_price) VALUES (?, ?, ?, ?, ?)";
+
+    private final ConnectionPool connectionPool;
+    private final Map<String, Integer> eventIds = new ConcurrentHashMap<>();
+
+    // Set once the schema has been checked, on the first connection borrowed
+    private volatile boolean initialized = false;
+
     /**
-     * Constructor that initializes the database by creating necessary tables.
+     * Constructor that sets up the connection pool. No connection is opened until the first
+     * database call, which also checks the schema, so starting the application costs no round trips.
      */
     public Database() {
-        initializeDatabase();
+        // Connector/J sends a batch as multi-row inserts only when asked to, and only honours
+        // a positive fetch size with server-side cursors switched on
+        String url = DB_URL + "?rewriteBatchedStatements=true" + (REPORT_FETCH_SIZE > 0 ? "&useCursorFetch=true" : "");
+        connectionPool = new ConnectionPool(url, DB_USER, DB_PASSWORD, POOL_SIZE,
+                POOL_MAX_WAIT_MILLIS, POOL_IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
     }
 
     /**
-     * Establishes a connection to the database.
+     * Borrows a connection from the pool, initializing the database first if this is the first one.
      *
-     * @return a Connection object representing the database connection
+     * @return a pooled connection, returned to the pool when closed
      * @throws SQLException if a database access error occurs
      */
-    private Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+    private ConnectionPool.PooledConnection getConnection() throws SQLException {
+        if (!initialized) {
+            initializeDatabase();
+        }
+        return connectionPool.borrow();
     }
 
     /**
-     * Initializes the database by creating necessary tables if they do not already exist.
+     * Initializes the database on first use. A database already at the current schema version
+     * is recognised with one query and no DDL runs; otherwise the tables are created or upgraded.
+     * Logs how long connecting and checking the schema took.
+     *
+     * @throws SQLException if the database cannot be reached or initialized
      */
-    private void initializeDatabase() {
-        try (Connection conn = getConnection()) {
-            createTables(conn);
+    private synchronized void initializeDatabase() throws SQLException {
+        if (initialized) {
+            return;
+        }
+        long start = System.nanoTime();
+        try (ConnectionPool.PooledConnection conn = connectionPool.borrow()) {
+            long connected = System.nanoTime();
+            boolean current = installedSchemaVersion(conn.getConnection()) >= SCHEMA_VERSION;
+            if (!current) {
+                bootstrapSchema(conn.getConnection());
+            }
+            long ready = System.nanoTime();
+            LOGGER.info(String.format("Database ready in %d ms: connect %d ms, schema %s %d ms",
+                    TimeUnit.NANOSECONDS.toMillis(ready - start), TimeUnit.NANOSECONDS.toMillis(connected - start),
+                    current ? "check" : "bootstrap", TimeUnit.NANOSECONDS.toMillis(ready - connected)));
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Database initialization failed", e);
-            throw new RuntimeException("Database initialization error", e);
+            throw e;
         }
+        initialized = true;
     }
 
     /**
-     * Creates required tables in the database.
+     * Creates or upgrades the schema while holding a named lock for this database, so processes
+     * starting together do not run the DDL and migration at the same time. A process that waited
+     * for the lock finds the schema current and does nothing.
+     *
+     * @param conn the database connection
+     * @throws SQLException if the lock is not granted in time or a database error occurs
+     */
+    private void bootstrapSchema(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(CONCAT('ticket_schema.', DATABASE()), ?)")) {
+            stmt.setInt(1, SCHEMA_LOCK_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Another process did not finish creating or upgrading the schema within " +
+                            SCHEMA_LOCK_SECONDS + " s");
+                }
+            }
+        }
+        try {
+            if (installedSchemaVersion(conn) < SCHEMA_VERSION) {
+                createTables(conn);
+            }
+        } finally {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("DO RELEASE_LOCK(CONCAT('ticket_schema.', DATABASE()))");
+            }
+        }
+    }
+
+    /**
+     * Reads the schema version without assuming the version table exists.
+     *
+     * @param conn the database connection
+     * @return the installed schema version, or 0 for a database with no version table
+     * @throws SQLException if a database error other than a missing table occurs
+     */
+    private int installedSchemaVersion(Connection conn) throws SQLException {
+        try {
+            return schemaVersion(conn);
+        } catch (SQLException e) {
+            if ("42S02".equals(e.getSQLState())) {
+                return 0; // Base table or view not found: a new or pre-versioning database
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Creates required tables in the database and brings an older schema up to the current version.
      *
      * @param conn the database connection
      * @throws SQLException if a database error occurs during table creation
@@ -64,15 +173,39 @@ public class Database {
                         "retrieval_rate INT NOT NULL, " +
                         "max_capacity INT NOT NULL)",
 
-                // Transactions table to log all ticket purchases
-                "CREATE TABLE IF NOT EXISTS transactions (" +
-                        "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                        "event_name VARCHAR(255) NOT NULL, " +
-                        "ticket_price DOUBLE NOT NULL, " +
-                        "vendor_id INT, " +
+                // Schema version table with one row per applied revision
+                "CREATE TABLE IF NOT EXISTS schema_version (" +
+                        "version INT PRIMARY KEY, " +
+                        "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)",
+
+                // Event name dictionary; unlike the events table it is never cleared, so orders can refer to it
+                "CREATE TABLE IF NOT EXISTS event_names (" +
+                        "event_id INT AUTO_INCREMENT PRIMARY KEY, " +
+                        "event_name VARCHAR(255) NOT NULL UNIQUE)",
+
+                // Orders table with one row per purchase; the secondary indexes cover the sales reports
+                "CREATE TABLE IF NOT EXISTS orders (" +
+                        "order_id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                        "event_id INT NOT NULL, " +
                         "customer_id INT, " +
-                        "ticket_count INT, " +
-                        "transaction_timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP)",
+                        "ticket_count INT NOT NULL, " +
+                        "total_price DOUBLE NOT NULL, " +
+                        "order_timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                        "INDEX idx_orders_event_time (event_id, order_timestamp, ticket_count, total_price), " +
+                        "INDEX idx_orders_time (order_timestamp, event_id, ticket_count, total_price), " +
+                        "INDEX idx_orders_customer (customer_id, order_timestamp), " +
+                        "CONSTRAINT fk_orders_event FOREIGN KEY (event_id) REFERENCES event_names (event_id))",
+
+                // Order items table breaking each order down by vendor and ticket price
+                "CREATE TABLE IF NOT EXISTS order_items (" +
+                        "order_id BIGINT NOT NULL, " +
+                        "line_no SMALLINT NOT NULL, " +
+                        "vendor_id INT NOT NULL, " +
+                        "ticket_count INT NOT NULL, " +
+                        "ticket_price DOUBLE NOT NULL, " +
+                        "PRIMARY KEY (order_id, line_no), " +
+                        "INDEX idx_order_items_vendor (vendor_id, ticket_count, ticket_price), " +
+                        "FOREIGN KEY (order_id) REFERENCES orders (order_id) ON DELETE CASCADE)",
 
                 // Events table to store event-specific details
                 "CREATE TABLE IF NOT EXISTS events (" +
@@ -87,6 +220,242 @@ public class Database {
                 stmt.execute(query);
             }
         }
+        migrate(conn);
+    }
+
+    /**
+     * Upgrades tables written by older versions in place while other sessions keep reading and writing them.
+     * Columns are added and indexes built with online DDL, and rows are rewritten in chunks that each
+     * commit on their own, so no lock is held for long and an interrupted migration resumes where it stopped.
+     *
+     * @param conn the database connection
+     * @throws SQLException if a database error occurs during the migration
+     */
+    private void migrate(Connection conn) throws SQLException {
+        int version = schemaVersion(conn);
+        if (version >= SCHEMA_VERSION) {
+            return;
+        }
+        long start = System.nanoTime();
+
+        // Orders written before event IDs were introduced name their event instead
+        if (columnExists(conn, "orders", "event_name")) {
+            LOGGER.info("Migrating orders from event names to event IDs");
+            migrateOrderEvents(conn);
+        }
+        // Per-ticket transactions written before purchases were stored as orders
+        if (tableExists(conn, "transactions")) {
+            LOGGER.info("Migrating per-ticket transactions to orders");
+            migrateLegacyTransactions(conn);
+        }
+
+        addIndex(conn, "orders", "idx_orders_event_time", "event_id, order_timestamp, ticket_count, total_price");
+        addIndex(conn, "orders", "idx_orders_time", "order_timestamp, event_id, ticket_count, total_price");
+        addIndex(conn, "orders", "idx_orders_customer", "customer_id, order_timestamp");
+        addIndex(conn, "order_items", "idx_order_items_vendor", "vendor_id, ticket_count, ticket_price");
+        if (!constraintExists(conn, "orders", "fk_orders_event")) {
+            // Every row was just given a dictionary entry, so the check is skipped to keep the change in place
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SET foreign_key_checks = 0");
+                try {
+                    stmt.execute("ALTER TABLE orders ADD CONSTRAINT fk_orders_event FOREIGN KEY (event_id) " +
+                            "REFERENCES event_names (event_id), ALGORITHM=INPLACE, LOCK=NONE");
+                } finally {
+                    stmt.execute("SET foreign_key_checks = 1");
+                }
+            }
+        }
+
+        // An older build takes no lock and may have recorded the revision first
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT IGNORE INTO schema_version (version) VALUES (?)")) {
+            stmt.setInt(1, SCHEMA_VERSION);
+            stmt.executeUpdate();
+        }
+        LOGGER.info(String.format("Schema upgraded from version %d to %d in %d ms", version, SCHEMA_VERSION,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    /**
+     * Replaces the event name column of the orders table with an event ID, filling the new column
+     * in chunks of order IDs before the name is dropped.
+     */
+    private void migrateOrderEvents(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (!columnExists(conn, "orders", "event_id")) {
+                stmt.execute("ALTER TABLE orders ADD COLUMN event_id INT NULL AFTER order_id, ALGORITHM=INPLACE, LOCK=NONE");
+            }
+            stmt.executeUpdate("INSERT IGNORE INTO event_names (event_name) SELECT DISTINCT event_name FROM orders");
+            long maxId;
+            try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(order_id), 0) FROM orders")) {
+                rs.next();
+                maxId = rs.getLong(1);
+            }
+            try (PreparedStatement update = conn.prepareStatement("UPDATE orders o " +
+                    "JOIN event_names e ON e.event_name = o.event_name SET o.event_id = e.event_id " +
+                    "WHERE o.order_id > ? AND o.order_id <= ? AND o.event_id IS NULL")) {
+                for (long low = 0; low < maxId; low += MIGRATION_CHUNK) {
+                    update.setLong(1, low);
+                    update.setLong(2, low + MIGRATION_CHUNK);
+                    update.executeUpdate();
+                }
+            }
+            stmt.execute("ALTER TABLE orders MODIFY event_id INT NOT NULL, DROP COLUMN event_name, " +
+                    "ALGORITHM=INPLACE, LOCK=NONE");
+        }
+    }
+
+    /**
+     * Moves per-ticket transactions into orders of one line item each, a chunk per transaction,
+     * and drops the old table once it is empty.
+     */
+    private void migrateLegacyTransactions(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT IGNORE INTO event_names (event_name) SELECT DISTINCT event_name FROM transactions");
+        }
+        String selectChunk = "SELECT id, event_name, ticket_price, vendor_id, customer_id, ticket_count, " +
+                "transaction_timestamp FROM transactions WHERE id > ? ORDER BY id LIMIT ?";
+        String insertOrder = "INSERT INTO orders (event_id, customer_id, ticket_count, total_price, order_timestamp) " +
+                "VALUES (?, ?, ?, ?, ?)";
+        String deleteChunk = "DELETE FROM transactions WHERE id > ? AND id <= ?";
+
+        try (PreparedStatement select = conn.prepareStatement(selectChunk);
+             PreparedStatement orderStmt = conn.prepareStatement(insertOrder, Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement itemStmt = conn.prepareStatement(INSERT_ORDER_ITEM);
+             PreparedStatement delete = conn.prepareStatement(deleteChunk)) {
+            conn.setAutoCommit(false);
+            try {
+                long lastId = 0;
+                while (true) {
+                    List<double[]> items = new ArrayList<>();
+                    long firstId = lastId;
+                    select.setLong(1, lastId);
+                    select.setInt(2, MIGRATION_CHUNK);
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            lastId = rs.getLong("id");
+                            double price = rs.getDouble("ticket_price");
+                            int count = rs.getInt("ticket_count");
+                            if (rs.wasNull()) {
+                                count = 1;
+                            }
+                            orderStmt.setInt(1, eventId(conn, rs.getString("event_name")));
+                            orderStmt.setInt(2, rs.getInt("customer_id"));
+                            orderStmt.setInt(3, count);
+                            orderStmt.setDouble(4, price * count);
+                            orderStmt.setTimestamp(5, rs.getTimestamp("transaction_timestamp"));
+                            orderStmt.addBatch();
+                            items.add(new double[]{rs.getInt("vendor_id"), count, price});
+                        }
+                    }
+                    if (items.isEmpty()) {
+                        break;
+                    }
+                    orderStmt.executeBatch();
+                    try (ResultSet keys = orderStmt.getGeneratedKeys()) {
+                        for (double[] item : items) {
+                            if (!keys.next()) {
+                                throw new SQLException("Order insert returned fewer keys than orders");
+                            }
+                            itemStmt.setLong(1, keys.getLong(1));
+                            itemStmt.setInt(2, 1);
+                            itemStmt.setInt(3, (int) item[0]);
+                            itemStmt.setInt(4, (int) item[1]);
+                            itemStmt.setDouble(5, item[2]);
+                            itemStmt.addBatch();
+                        }
+                    }
+                    itemStmt.executeBatch();
+                    delete.setLong(1, firstId);
+                    delete.setLong(2, lastId);
+                    delete.executeUpdate();
+                    conn.commit(); // Each chunk is moved, or left where it was, as one unit
+                }
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE transactions");
+        }
+    }
+
+    /**
+     * Builds a secondary index without blocking writes, unless it already exists.
+     */
+    private void addIndex(Connection conn, String table, String index, String columns) throws SQLException {
+        if (exists(conn, "SELECT 1 FROM information_schema.statistics " +
+                "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?", table, index)) {
+            return;
+        }
+        LOGGER.info("Building index " + index + " on " + table);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX " + index + " ON " + table + " (" + columns + ") ALGORITHM=INPLACE LOCK=NONE");
+        }
+    }
+
+    private int schemaVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private boolean tableExists(Connection conn, String table) throws SQLException {
+        return exists(conn, "SELECT 1 FROM information_schema.tables " +
+                "WHERE table_schema = DATABASE() AND table_name = ?", table);
+    }
+
+    private boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        return exists(conn, "SELECT 1 FROM information_schema.columns " +
+                "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?", table, column);
+    }
+
+    private boolean constraintExists(Connection conn, String table, String constraint) throws SQLException {
+        return exists(conn, "SELECT 1 FROM information_schema.table_constraints " +
+                "WHERE table_schema = DATABASE() AND table_name = ? AND constraint_name = ?", table, constraint);
+    }
+
+    private boolean exists(Connection conn, String query, String... parameters) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (int i = 0; i < parameters.length; i++) {
+                stmt.setString(i + 1, parameters[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Looks up the dictionary ID of an event name, adding the name the first time it is seen.
+     * IDs never change, so each name is looked up once per process.
+     *
+     * @param conn      the database connection
+     * @param eventName the name of the event
+     * @return the event ID
+     * @throws SQLException if a database error occurs
+     */
+    private int eventId(Connection conn, String eventName) throws SQLException {
+        Integer cached = eventIds.get(eventName);
+        if (cached != null) {
+            return cached;
+        }
+        try (PreparedStatement insert = conn.prepareStatement("INSERT IGNORE INTO event_names (event_name) VALUES (?)");
+             PreparedStatement select = conn.prepareStatement("SELECT event_id FROM event_names WHERE event_name = ?")) {
+            insert.setString(1, eventName);
+            insert.executeUpdate();
+            select.setString(1, eventName);
+            try (ResultSet rs = select.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("No event ID for " + eventName);
+                }
+                int eventId = rs.getInt(1);
+                eventIds.put(eventName, eventId);
+                return eventId;
+            }
+        }
     }
 
     /**
@@ -97,16 +466,17 @@ public class Database {
      * @param retrievalRate  the ticket retrieval rate
      * @param maxCapacity    the maximum ticket capacity
      */
+    @Override
     public void saveConfiguration(int totalTickets, int releaseRate, int retrievalRate, int maxCapacity) {
         String deleteOldConfig = "DELETE FROM system_config";
         String insertConfig = "INSERT INTO system_config " +
                 "(total_tickets, release_rate, retrieval_rate, max_capacity) VALUES (?, ?, ?, ?)";
 
-        try (Connection conn = getConnection();
-             PreparedStatement deleteStmt = conn.prepareStatement(deleteOldConfig);
-             PreparedStatement insertStmt = conn.prepareStatement(insertConfig)) {
+        try (ConnectionPool.PooledConnection conn = getConnection()) {
+            PreparedStatement deleteStmt = conn.prepare(deleteOldConfig);
+            PreparedStatement insertStmt = conn.prepare(insertConfig);
 
-            conn.setAutoCommit(false);  // Begin transaction
+            conn.getConnection().setAutoCommit(false);  // Begin transaction
 
             deleteStmt.executeUpdate();
             insertStmt.setInt(1, totalTickets);
@@ -115,7 +485,7 @@ public class Database {
             insertStmt.setInt(4, maxCapacity);
             insertStmt.executeUpdate();
 
-            conn.commit();  // Commit transaction
+            conn.getConnection().commit();  // Commit transaction
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error saving configuration", e);
             throw new RuntimeException("Configuration save failed", e);
@@ -125,12 +495,12 @@ public class Database {
     /**
      * Clears all entries in the events table.
      */
+    @Override
     public void clearEventsTable() {
         String deleteAllEvents = "DELETE FROM events";
 
-        try (Connection conn = getConnection();
-             PreparedStatement deleteStmt = conn.prepareStatement(deleteAllEvents)) {
-            deleteStmt.executeUpdate();
+        try (ConnectionPool.PooledConnection conn = getConnection()) {
+            conn.prepare(deleteAllEvents).executeUpdate();
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error clearing events table", e);
             throw new RuntimeException("Events table clear failed", e);
@@ -144,46 +514,111 @@ public class Database {
      * @param eventName  the name of the event
      * @param eventPrice the price of the event
      */
+    @Override
     public void saveEventDetails(int eventId, String eventName, double eventPrice) {
         String insertEvent = "INSERT INTO events (event_id, event_name, event_price) VALUES (?, ?, ?)";
 
-        try (Connection conn = getConnection();
-             PreparedStatement insertStmt = conn.prepareStatement(insertEvent)) {
-
-            // Validate input
-            if (eventName == null || eventName.trim().isEmpty()) {
-                throw new IllegalArgumentException("Event name cannot be empty");
-            }
-            if (eventPrice <= 0) {
-                throw new IllegalArgumentException("Event price must be positive");
-            }
+        // Validate input
+        if (eventName == null || eventName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Event name cannot be empty");
+        }
+        if (eventPrice <= 0) {
+            throw new IllegalArgumentException("Event price must be positive");
+        }
 
+        try (ConnectionPool.PooledConnection conn = getConnection()) {
+            PreparedStatement insertStmt = conn.prepare(insertEvent);
             insertStmt.setInt(1, eventId);
             insertStmt.setString(2, eventName.trim());
             insertStmt.setDouble(3, eventPrice);
             insertStmt.executeUpdate();
+            eventId(conn.getConnection(), eventName.trim());
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error saving event details", e);
             throw new RuntimeException("Event details save failed", e);
         }
     }
 
+    /**
+     * Replaces the configuration and the events table in a single transaction, inserting the
+     * events and any new event name dictionary entries as JDBC batches, so a catalog of
+     * thousands of events costs a handful of round trips and is never seen half written.
+     *
+     * @param totalTickets  the total number of tickets
+     * @param releaseRate   the ticket release rate
+     * @param retrievalRate the ticket retrieval rate
+     * @param maxCapacity   the maximum ticket capacity
+     * @param eventPrices   the ticket price of each event
+     */
+    @Override
+    public void replaceConfiguration(int totalTickets, int releaseRate, int retrievalRate, int maxCapacity,
+                                     Map<String, Double> eventPrices) {
+        String insertConfig = "INSERT INTO system_config " +
+                "(total_tickets, release_rate, retrieval_rate, max_capacity) VALUES (?, ?, ?, ?)";
+        String insertEvent = "INSERT INTO events (event_id, event_name, event_price) VALUES (?, ?, ?)";
+        String insertEventName = "INSERT IGNORE INTO event_names (event_name) VALUES (?)";
+
+        // Validate input
+        for (Map.Entry<String, Double> entry : eventPrices.entrySet()) {
+            if (entry.getKey() == null || entry.getKey().trim().isEmpty()) {
+                throw new IllegalArgumentException("Event name cannot be empty");
+            }
+            if (entry.getValue() <= 0) {
+                throw new IllegalArgumentException("Event price must be positive");
+            }
+        }
+
+        try (ConnectionPool.PooledConnection conn = getConnection()) {
+            PreparedStatement configStmt = conn.prepare(insertConfig);
+            PreparedStatement eventStmt = conn.prepare(insertEvent);
+            PreparedStatement nameStmt = conn.prepare(insertEventName);
+
+            conn.getConnection().setAutoCommit(false);  // Begin transaction
+
+            conn.prepare("DELETE FROM system_config").executeUpdate();
+            configStmt.setInt(1, totalTickets);
+            configStmt.setInt(2, releaseRate);
+            configStmt.setInt(3, retrievalRate);
+            configStmt.setInt(4, maxCapacity);
+            configStmt.executeUpdate();
+
+            conn.prepare("DELETE FROM events").executeUpdate();
+            int eventId = 1;
+            for (Map.Entry<String, Double> entry : eventPrices.entrySet()) {
+                String eventName = entry.getKey().trim();
+                eventStmt.setInt(1, eventId++);
+                eventStmt.setString(2, eventName);
+                eventStmt.setDouble(3, entry.getValue());
+                eventStmt.addBatch();
+                if (!eventIds.containsKey(eventName)) {
+                    nameStmt.setString(1, eventName);
+                    nameStmt.addBatch();
+                }
+            }
+            eventStmt.executeBatch();
+            nameStmt.executeBatch(); // Dictionary IDs are looked up when the first order needs them
+
+            conn.getConnection().commit();  // Commit transaction
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error replacing configuration", e);
+            throw new RuntimeException("Configuration save failed", e);
+        }
+    }
+
     /**
      * Loads the system configuration and event details from the database.
      *
      * @param configuration the TicketPoolConfiguration object to populate
      * @return true if configuration is successfully loaded, false otherwise
      */
+    @Override
     public boolean loadConfiguration(TicketPoolConfiguration configuration) {
         String configQuery = "SELECT * FROM system_config ORDER BY id DESC LIMIT 1";
         String eventQuery = "SELECT * FROM events ORDER BY event_id";
 
-        try (Connection conn = getConnection();
-             PreparedStatement configStmt = conn.prepareStatement(configQuery);
-             PreparedStatement eventStmt = conn.prepareStatement(eventQuery)) {
-
+        try (ConnectionPool.PooledConnection conn = getConnection()) {
             // Load system configuration
-            try (ResultSet rs = configStmt.executeQuery()) {
+            try (ResultSet rs = conn.prepare(configQuery).executeQuery()) {
                 if (!rs.next()) {
                     return false; // No configuration found
                 }
@@ -195,14 +630,13 @@ public class Database {
             }
 
             // Load event details
-            try (ResultSet rs = eventStmt.executeQuery()) {
+            Map<String, Double> prices = new LinkedHashMap<>();
+            try (ResultSet rs = conn.prepare(eventQuery).executeQuery()) {
                 while (rs.next()) {
-                    configuration.addEventPrice(
-                            rs.getString("event_name"),
-                            rs.getDouble("event_price")
-                    );
+                    prices.put(rs.getString("event_name"), rs.getDouble("event_price"));
                 }
             }
+            configuration.addEventPrices(prices);
 
             configuration.setConfigured(true);
             return true;
@@ -213,53 +647,282 @@ public class Database {
     }
 
     /**
-     * Logs a transaction into the database.
+     * Logs a purchase of tickets from one vendor at one price as a single order.
      *
      * @param eventName    the name of the event
-     * @param ticketPrice  the price of the ticket
+     * @param ticketPrice  the price of each ticket
      * @param vendorId     the ID of the vendor
      * @param customerId   the ID of the customer
      * @param ticketCount  the number of tickets involved in the transaction
      */
+    @Override
     public void logTransaction(String eventName, double ticketPrice,
                                int vendorId, int customerId, int ticketCount) {
-        String query = "INSERT INTO transactions " +
-                "(event_name, ticket_price, vendor_id, customer_id, ticket_count) " +
-                "VALUES (?, ?, ?, ?, ?)";
-
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        logTransactions(List.of(new TransactionRecord(eventName, ticketPrice, vendorId, customerId, ticketCount)));
+    }
 
-            stmt.setString(1, eventName);
-            stmt.setDouble(2, ticketPrice);
-            stmt.setInt(3, vendorId);
-            stmt.setInt(4, customerId);
-            stmt.setInt(5, ticketCount);
-            stmt.executeUpdate();
+    /**
+     * Logs several orders with two JDBC batch inserts committed as one unit: one row per order,
+     * then one row per line item keyed by the order IDs the first batch generated.
+     * The pool hands the most recently returned connection out first, so a single writer
+     * keeps reusing the same connection and its cached insert statements.
+     *
+     * @param records the orders to insert
+     */
+    @Override
+    public void logTransactions(List<TransactionRecord> records) {
+        try (ConnectionPool.PooledConnection conn = getConnection()) {
+            PreparedStatement orderStmt = conn.prepareReturningKeys(INSERT_ORDER);
+            PreparedStatement itemStmt = conn.prepare(INSERT_ORDER_ITEM);
+            for (TransactionRecord record : records) {
+                orderStmt.setInt(1, eventId(conn.getConnection(), record.getEventName()));
+                orderStmt.setInt(2, record.getCustomerId());
+                orderStmt.setInt(3, record.getTicketCount());
+                orderStmt.setDouble(4, record.getTotalPrice());
+                orderStmt.addBatch();
+            }
+            conn.getConnection().setAutoCommit(false);
+            orderStmt.executeBatch();
+            try (ResultSet keys = orderStmt.getGeneratedKeys()) {
+                for (TransactionRecord record : records) {
+                    if (!keys.next()) {
+                        throw new SQLException("Order insert returned fewer keys than orders");
+                    }
+                    long orderId = keys.getLong(1);
+                    for (int item = 0; item < record.getItemCount(); item++) {
+                        itemStmt.setLong(1, orderId);
+                        itemStmt.setInt(2, item + 1);
+                        itemStmt.setInt(3, record.getItemVendorId(item));
+                        itemStmt.setInt(4, record.getItemTicketCount(item));
+                        itemStmt.setDouble(5, record.getItemPrice(item));
+                        itemStmt.addBatch();
+                    }
+                }
+            }
+            itemStmt.executeBatch();
+            conn.getConnection().commit();
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error logging transaction", e);
-            throw new RuntimeException("Transaction logging failed", e);
+            LOGGER.log(Level.SEVERE, "Error logging transaction batch", e);
+            throw new RuntimeException("Transaction batch logging failed", e);
         }
     }
 
     /**
-     * Clears all transactions from the transactions table and resets the auto-increment counter.
+     * Clears all orders and their items, and resets the auto-increment counter.
+     * The event name dictionary is kept, so event IDs stay stable across resets.
      */
+    @Override
     public void clearTransactionsTable() {
-        String clearQuery = "DELETE FROM transactions";
-        String resetAutoIncrementQuery = "ALTER TABLE transactions AUTO_INCREMENT = 1";
-
-        try (Connection conn = getConnection();
-             PreparedStatement clearStmt = conn.prepareStatement(clearQuery);
-             PreparedStatement resetStmt = conn.prepareStatement(resetAutoIncrementQuery)) {
+        String[] clearQueries = {
+                "DELETE FROM order_items",
+                "DELETE FROM orders",
+                "ALTER TABLE orders AUTO_INCREMENT = 1"
+        };
 
-            conn.setAutoCommit(false);  // Begin transaction
-            clearStmt.executeUpdate();
-            resetStmt.executeUpdate();
-            conn.commit();  // Commit transaction
+        try (ConnectionPool.PooledConnection conn = getConnection()) {
+            conn.getConnection().setAutoCommit(false);  // Begin transaction
+            for (String query : clearQueries) {
+                conn.prepare(query).executeUpdate();
+            }
+            conn.getConnection().commit();  // Commit transaction
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error clearing transactions table", e);
             throw new RuntimeException("Transactions table clear failed", e);
         }
     }
+
+    /**
+     * What a sales report adds its rows up by.
+     */
+    public enum SalesGrouping {
+        EVENT, VENDOR, TIME
+    }
+
+    /**
+     * One row of a sales report: the orders, tickets and revenue of one event or vendor,
+     * within one time bucket when the report is bucketed.
+     */
+    public static final class SalesRow {
+        private final String eventName;
+        private final int vendorId;
+        private final Instant bucketStart;
+        private final long orders;
+        private final long tickets;
+        private final double revenue;
+
+        private SalesRow(String eventName, int vendorId, Instant bucketStart, long orders, long tickets, double revenue) {
+            this.eventName = eventName;
+            this.vendorId = vendorId;
+            this.bucketStart = bucketStart;
+            this.orders = orders;
+            this.tickets = tickets;
+            this.revenue = revenue;
+        }
+
+        // Getters for the row; the event name is null and the vendor ID -1 unless the report is grouped by them,
+        // and the bucket start is null unless the report is bucketed
+        public String getEventName() {
+            return eventName;
+        }
+
+        public int getVendorId() {
+            return vendorId;
+        }
+
+        public Instant getBucketStart() {
+            return bucketStart;
+        }
+
+        public long getOrders() {
+            return orders;
+        }
+
+        public long getTickets() {
+            return tickets;
+        }
+
+        public double getRevenue() {
+            return revenue;
+        }
+    }
+
+    /**
+     * Streams a sales report to a consumer row by row, in event, vendor or time order.
+     * The query runs on a forward-only, read-only cursor that is read as the consumer goes, so no more than
+     * one fetch of rows is held in memory however many orders or buckets the report covers; the fetch size
+     * is set with {@code ticket.db.reportFetchSize}. Each grouping is answered from a covering index.
+     *
+     * @param grouping      what to add the rows up by
+     * @param bucketSeconds the length of each time bucket in seconds, or 0 to add up the whole range
+     * @param from          the earliest order time included, or null for no lower bound
+     * @param to            the order time at which the report stops, exclusive, or null for no upper bound
+     * @param consumer      receives each row
+     * @return the number of rows streamed
+     */
+    public long streamSalesReport(SalesGrouping grouping, int bucketSeconds, Instant from, Instant to,
+                                  Consumer<SalesRow> consumer) {
+        if (bucketSeconds < 0 || (grouping == SalesGrouping.TIME && bucketSeconds == 0)) {
+            throw new IllegalArgumentException("Invalid bucket length: " + bucketSeconds);
+        }
+        String bucket = bucketSeconds > 0
+                ? "FLOOR(UNIX_TIMESTAMP(o.order_timestamp) / " + bucketSeconds + ") * " + bucketSeconds
+                : "0";
+        StringBuilder range = new StringBuilder(" WHERE 1 = 1");
+        if (from != null) {
+            range.append(" AND o.order_timestamp >= ?");
+        }
+        if (to != null) {
+            range.append(" AND o.order_timestamp < ?");
+        }
+        boolean joinOrders = bucketSeconds > 0 || from != null || to != null;
+
+        String query;
+        switch (grouping) {
+            case EVENT:
+                // Aggregated on the orders indexes first, so the name lookup only touches the result rows
+                query = "SELECT e.event_name, NULL, r.bucket, r.orders, r.tickets, r.revenue FROM (" +
+                        "SELECT o.event_id, " + bucket + " AS bucket, COUNT(*) AS orders, " +
+                        "SUM(o.ticket_count) AS tickets, SUM(o.total_price) AS revenue FROM orders o" + range +
+                        " GROUP BY o.event_id, bucket) r JOIN event_names e ON e.event_id = r.event_id " +
+                        "ORDER BY e.event_name, r.bucket";
+                break;
+            case VENDOR:
+                query = "SELECT NULL, i.vendor_id, " + bucket + " AS bucket, COUNT(DISTINCT i.order_id), " +
+                        "SUM(i.ticket_count), SUM(i.ticket_count * i.ticket_price) FROM order_items i" +
+                        (joinOrders ? " JOIN orders o ON o.order_id = i.order_id" + range : "") +
+                        " GROUP BY i.vendor_id, bucket ORDER BY i.vendor_id, bucket";
+                break;
+            default:
+                query = "SELECT NULL, NULL, " + bucket + " AS bucket, COUNT(*), SUM(o.ticket_count), " +
+                        "SUM(o.total_price) FROM orders o" + range + " GROUP BY bucket ORDER BY bucket";
+                break;
+        }
+
+        try (ConnectionPool.PooledConnection conn = getConnection();
+             PreparedStatement stmt = conn.getConnection().prepareStatement(query,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // Integer.MIN_VALUE tells Connector/J to stream rows instead of buffering the whole result
+            stmt.setFetchSize(REPORT_FETCH_SIZE > 0 ? REPORT_FETCH_SIZE : Integer.MIN_VALUE);
+            int parameter = 1;
+            if (from != null) {
+                stmt.setTimestamp(parameter++, Timestamp.from(from));
+            }
+            if (to != null) {
+                stmt.setTimestamp(parameter, Timestamp.from(to));
+            }
+            long rows = 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int vendorId = rs.getInt(2);
+                    if (rs.wasNull()) {
+                        vendorId = -1;
+                    }
+                    consumer.accept(new SalesRow(rs.getString(1), vendorId,
+                            bucketSeconds > 0 ? Instant.ofEpochSecond(rs.getLong(3)) : null,
+                            rs.getLong(4), rs.getLong(5), rs.getDouble(6)));
+                    rows++;
+                }
+            }
+            return rows;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error streaming sales report", e);
+            throw new RuntimeException("Sales report failed", e);
+        }
+    }
+
+    /**
+     * Streams the line items of every order, in order ID order, over a forward-only cursor
+     * read as the visitor goes, like {@link #streamSalesReport}.
+     *
+     * @param visitor receives each line item
+     * @return the number of line items streamed
+     */
+    @Override
+    public long exportOrderItems(OrderItemVisitor visitor) {
+        String query = "SELECT o.order_id, o.order_timestamp, e.event_name, o.customer_id, " +
+                "i.vendor_id, i.ticket_count, i.ticket_price FROM orders o " +
+                "JOIN order_items i ON i.order_id = o.order_id JOIN event_names e ON e.event_id = o.event_id " +
+                "ORDER BY o.order_id, i.line_no";
+
+        try (ConnectionPool.PooledConnection conn = getConnection();
+             PreparedStatement stmt = conn.getConnection().prepareStatement(query,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(REPORT_FETCH_SIZE > 0 ? REPORT_FETCH_SIZE : Integer.MIN_VALUE);
+            long rows = 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    visitor.visit(rs.getLong(1), rs.getTimestamp(2).getTime(), rs.getString(3), rs.getInt(4),
+                            rs.getInt(5), rs.getInt(6), Math.round(rs.getDouble(7) * 100));
+                    rows++;
+                }
+            }
+            return rows;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error exporting orders", e);
+            throw new RuntimeException("Order export failed", e);
+        }
+    }
+
+    // Access to the connection pool for sizing statistics
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    /**
+     * Summarizes the connection pool statistics.
+     *
+     * @return the pool statistics
+     */
+    @Override
+    public String describe() {
+        return connectionPool.describe();
+    }
+
+    /**
+     * Closes every pooled connection.
+     */
+    @Override
+    public void close() {
+        connectionPool.close();
+    }
 }
@@ -0,0 +1,81 @@
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interface representing the persistence layer of the ticketing system.
+ * Implementations store the system configuration, events and ticket transactions.
+ */
+public interface DatabaseInterface {
+    void saveConfiguration(int totalTickets, int releaseRate, int retrievalRate, int maxCapacity);
+    void clearEventsTable();
+    void saveEventDetails(int eventId, String eventName, double eventPrice);
+    boolean loadConfiguration(TicketPoolConfiguration configuration);
+    void logTransaction(String eventName, double ticketPrice, int vendorId, int customerId, int ticketCount);
+    void logTransactions(List<TransactionRecord> records);
+    void clearTransactionsTable();
+    String describe();
+    void close();
+
+    /**
+     * Replaces the saved configuration and every saved event at once, numbering the events from 1
+     * in the iteration order of the map. Backends override this to save everything as one unit;
+     * this default saves the configuration and then each event with its own call.
+     *
+     * @param totalTickets  the total number of tickets
+     * @param releaseRate   the ticket release rate
+     * @param retrievalRate the ticket retrieval rate
+     * @param maxCapacity   the maximum ticket capacity
+     * @param eventPrices   the ticket price of each event
+     */
+    default void replaceConfiguration(int totalTickets, int releaseRate, int retrievalRate, int maxCapacity,
+                                      Map<String, Double> eventPrices) {
+        saveConfiguration(totalTickets, releaseRate, retrievalRate, maxCapacity);
+        clearEventsTable();
+        int eventId = 1;
+        for (Map.Entry<String, Double> entry : eventPrices.entrySet()) {
+            saveEventDetails(eventId++, entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Receives the line items of stored orders one at a time, as primitives so that nothing is allocated per row.
+     */
+    interface OrderItemVisitor {
+        void visit(long orderId, long timestampMillis, String eventName, int customerId,
+                   int vendorId, int ticketCount, long priceCents);
+    }
+
+    /**
+     * Streams every stored order line item, oldest order first, without holding the orders in memory.
+     *
+     * @param visitor receives each line item
+     * @return the number of line items streamed
+     * @throws IllegalStateException if the backend keeps no orders to read back
+     */
+    default long exportOrderItems(OrderItemVisitor visitor) {
+        throw new IllegalStateException("The " + getClass().getSimpleName() + " backend keeps no orders to export");
+    }
+
+    /**
+     * Creates the persistence backend selected by the {@code ticket.persistence} system property:
+     * {@code mysql} (the default), {@code journal} for the embedded append-only journal
+     * stored in the directory named by {@code ticket.journal.dir}, or {@code memory} for an
+     * in-memory stand-in that persists nothing.
+     *
+     * @return the selected backend
+     */
+    static DatabaseInterface create() {
+        String backend = System.getProperty("ticket.persistence", "mysql").trim().toLowerCase();
+        switch (backend) {
+            case "mysql":
+                return new Database();
+            case "journal":
+                return new JournalDatabase(Paths.get(System.getProperty("ticket.journal.dir", "ticket_journal")));
+            case "memory":
+                return new InMemoryDatabase();
+            default:
+                throw new IllegalArgumentException("Unknown persistence backend: " + backend);
+        }
+    }
+}
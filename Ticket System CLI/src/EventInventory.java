@@ -0,0 +1,268 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One event's partition of the ticket pool.
+ * Tickets sit in a lock-free {@link TicketQueue}. A buyer first reserves tickets by
+ * decrementing the available count with a CAS, then dequeues exactly that many; since the count
+ * only ever covers published tickets, a partition can never sell more than it holds.
+ * Neither vendors nor buyers take a lock; the wait lock is used only by customers that
+ * found the partition empty and park until a vendor adds tickets.
+ */
+public class EventInventory {
+    // Most tickets one partition can hold, which bounds the memory of its queue
+    public static final int MAX_TICKETS = 1 << 20;
+
+    private final int eventIndex;
+    private final String eventName;
+
+    // Tickets currently on sale for this event, stored as primitives
+    private final TicketQueue tickets;
+    // Published tickets not yet reserved by a buyer
+    private final AtomicInteger available = new AtomicInteger();
+
+    // Parking for customers waiting on an empty partition; vendors signal only when someone waits
+    private final ReentrantLock waitLock = new ReentrantLock();
+    private final Condition ticketsAdded = waitLock.newCondition();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    // Reservation CAS attempts lost to a concurrent buyer
+    private final LongAdder reservationRetries = new LongAdder();
+
+    // Per-event counters and the pool's stage latencies
+    private final LongAdder ticketsReleased = new LongAdder();
+    private final LongAdder ticketsSold = new LongAdder();
+    private final LongAdder revenueCents = new LongAdder();
+    private final TicketMetrics metrics;
+
+    /**
+     * Constructs an empty inventory partition for an event.
+     *
+     * @param eventIndex the position of the event in the pool's partition table
+     * @param eventName  the name of the event
+     * @param capacity   the most tickets this partition holds at once, at most {@link #MAX_TICKETS}
+     * @param metrics    where the time taken to reserve and dequeue tickets is recorded
+     */
+    public EventInventory(int eventIndex, String eventName, int capacity, TicketMetrics metrics) {
+        this.eventIndex = eventIndex;
+        this.eventName = eventName;
+        this.tickets = new TicketQueue(Math.min(capacity, MAX_TICKETS));
+        this.metrics = metrics;
+    }
+
+    /**
+     * Constructs a partition whose tickets are kept elsewhere by a subclass, which then
+     * overrides every method that touches them.
+     *
+     * @param eventIndex the position of the event in the pool's partition table
+     * @param eventName  the name of the event
+     * @param metrics    where the time taken to take tickets is recorded
+     */
+    protected EventInventory(int eventIndex, String eventName, TicketMetrics metrics) {
+        this.eventIndex = eventIndex;
+        this.eventName = eventName;
+        this.tickets = null;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Adds tickets to this event and signals waiting customers.
+     * Tickets become available to buyers only once all of them have been published.
+     *
+     * @param vendorId     the ID of the vendor releasing the tickets
+     * @param ticketsToAdd the number of tickets to add
+     * @param price        the price of each ticket
+     * @return the number of tickets added, fewer than requested if the partition is full
+     */
+    public int add(int vendorId, int ticketsToAdd, double price) {
+        long cents = Math.round(price * 100);
+        int added = 0;
+        while (added < ticketsToAdd && tickets.offer(vendorId, cents)) {
+            added++;
+        }
+        if (added > 0) {
+            available.addAndGet(added);
+            released(added);
+        }
+        return added;
+    }
+
+    /**
+     * Puts tickets taken earlier back on sale, at the back of the queue, and signals waiting customers.
+     * They are not counted as released again.
+     *
+     * @param returned the tickets to put back
+     * @return the number of tickets put back, fewer than given if the partition is full
+     */
+    public int restore(TicketRing returned) {
+        int restored = 0;
+        while (restored < returned.size()
+                && tickets.offer(returned.vendorIdAt(restored), returned.priceCentsAt(restored))) {
+            restored++;
+        }
+        if (restored > 0) {
+            available.addAndGet(restored);
+            signalWaiters();
+        }
+        return restored;
+    }
+
+    /**
+     * Reserves and removes up to {@code maxTickets} tickets in FIFO order without blocking.
+     *
+     * @param maxTickets the maximum number of tickets to take
+     * @param purchased  the ring receiving the removed tickets
+     * @return the number of tickets removed, 0 if the partition has none
+     */
+    public int take(int maxTickets, TicketRing purchased) {
+        if (available.get() == 0) {
+            return 0; // Cheap check so scanning empty partitions costs no clock reads
+        }
+        long start = metrics.start();
+        int reserved = reserve(maxTickets);
+        for (int i = 0; i < reserved; i++) {
+            tickets.pollReservedInto(eventIndex, purchased);
+        }
+        if (reserved > 0) {
+            metrics.record(TicketMetrics.Stage.TAKE, start);
+        }
+        return reserved;
+    }
+
+    /**
+     * Claims up to {@code maxTickets} of the available tickets with a CAS.
+     *
+     * @return the number of tickets claimed
+     */
+    private int reserve(int maxTickets) {
+        while (true) {
+            int current = available.get();
+            if (current == 0) {
+                return 0;
+            }
+            int claimed = Math.min(current, maxTickets);
+            if (available.compareAndSet(current, current - claimed)) {
+                return claimed;
+            }
+            reservationRetries.increment();
+        }
+    }
+
+    /**
+     * Waits until this event has at least one ticket on sale. Nothing is reserved:
+     * another buyer may take the ticket first, so callers retry {@link #take}.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitAvailable() throws InterruptedException {
+        awaitAvailable(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Waits up to the given time for a ticket to become available. Nothing is reserved.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return true if tickets were available when the wait ended
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitAvailable(long timeout, TimeUnit unit) throws InterruptedException {
+        if (available.get() > 0) {
+            return true;
+        }
+        long remaining = unit.toNanos(timeout);
+        waitLock.lockInterruptibly();
+        // Register before re-checking, so a vendor adding tickets from now on signals us
+        waiters.incrementAndGet();
+        try {
+            while (available.get() == 0 && remaining > 0) {
+                remaining = ticketsAdded.awaitNanos(remaining);
+            }
+            return available.get() > 0;
+        } finally {
+            waiters.decrementAndGet();
+            waitLock.unlock();
+        }
+    }
+
+    /**
+     * Counts tickets put on sale by this process and wakes customers waiting for them.
+     *
+     * @param count the number of tickets released
+     */
+    protected void released(int count) {
+        ticketsReleased.add(count);
+        signalWaiters();
+    }
+
+    /**
+     * Wakes every customer parked on this partition, if there are any.
+     */
+    protected void signalWaiters() {
+        if (waiters.get() > 0) {
+            waitLock.lock();
+            try {
+                ticketsAdded.signalAll();
+            } finally {
+                waitLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Counts a completed sale from this event.
+     *
+     * @param count the number of tickets sold
+     * @param cents the total price of the tickets in cents
+     */
+    public void recordSale(int count, long cents) {
+        ticketsSold.add(count);
+        revenueCents.add(cents);
+    }
+
+    /**
+     * Removes every ticket from this partition.
+     */
+    public void clear() {
+        int reserved = reserve(Integer.MAX_VALUE);
+        for (int i = 0; i < reserved; i++) {
+            tickets.discardReserved();
+        }
+    }
+
+    // Getters for the partition identity, size, counters and reservation contention
+    protected TicketMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getEventIndex() {
+        return eventIndex;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+
+    public int size() {
+        return available.get();
+    }
+
+    public long getReservationRetries() {
+        return reservationRetries.sum();
+    }
+
+    public long getTicketsReleased() {
+        return ticketsReleased.sum();
+    }
+
+    public long getTicketsSold() {
+        return ticketsSold.sum();
+    }
+
+    public long getRevenueCents() {
+        return revenueCents.sum();
+    }
+}
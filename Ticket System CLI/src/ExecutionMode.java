@@ -0,0 +1,69 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * How vendor and customer actors are run.
+ */
+public enum ExecutionMode {
+    // One platform thread per actor, each pacing itself with Thread.sleep
+    PLATFORM,
+    // One virtual thread per actor; needs a JDK with virtual threads (21+)
+    VIRTUAL,
+    // Actors take turns on a fixed-size pool, one step per scheduled run
+    BOUNDED,
+    // Actors are stepped by a few timer threads pacing each one with a token bucket; see RateScheduler
+    SCHEDULED,
+    // Actors are stepped one at a time on a virtual clock by a Simulation, never by the runner
+    SIMULATED;
+
+    // Checks whether actors are stepped by shared threads, which must never block
+    public boolean isStepped() {
+        return this != PLATFORM && this != VIRTUAL;
+    }
+
+    /**
+     * Reads the mode from the {@code ticket.exec.mode} system property, defaulting to PLATFORM.
+     *
+     * @return the configured mode
+     */
+    public static ExecutionMode fromSystemProperties() {
+        return valueOf(System.getProperty("ticket.exec.mode", PLATFORM.name()).trim().toUpperCase());
+    }
+
+    /**
+     * Creates a factory for the per-actor threads of the PLATFORM and VIRTUAL modes.
+     * Virtual threads are looked up reflectively so the code still compiles on JDK 17.
+     *
+     * @param prefix the thread name prefix
+     * @return a thread factory
+     * @throws IllegalStateException if virtual threads are requested but unavailable
+     */
+    public ThreadFactory threadFactory(String prefix) {
+        if (this != VIRTUAL) {
+            return new ThreadFactory() {
+                private int count = 0;
+
+                @Override
+                public synchronized Thread newThread(Runnable runnable) {
+                    return new Thread(runnable, prefix + (++count));
+                }
+            };
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            MethodHandle ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(builderClass));
+            MethodHandle name = lookup.findVirtual(builderClass, "name",
+                    MethodType.methodType(builderClass, String.class, long.class));
+            MethodHandle factory = lookup.findVirtual(builderClass, "factory", MethodType.methodType(ThreadFactory.class));
+            Object builder = ofVirtual.invoke();
+            builder = name.invoke(builder, prefix, 1L);
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Virtual threads are not available on Java " +
+                    System.getProperty("java.version") + "; use PLATFORM or BOUNDED mode", e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persistence backend that keeps everything in memory and writes nothing.
+ * Used by benchmarks and load tests to measure the ticket pool without any I/O;
+ * orders and their tickets are only counted.
+ */
+public class InMemoryDatabase implements DatabaseInterface {
+    private int[] configuration; // total tickets, release rate, retrieval rate, max capacity
+    private final Map<Integer, String> eventNames = new LinkedHashMap<>();
+    private final Map<Integer, Double> eventPrices = new LinkedHashMap<>();
+    private final LongAdder orderCount = new LongAdder();
+    private final LongAdder ticketCount = new LongAdder();
+
+    @Override
+    public synchronized void saveConfiguration(int totalTickets, int releaseRate, int retrievalRate, int maxCapacity) {
+        configuration = new int[]{totalTickets, releaseRate, retrievalRate, maxCapacity};
+    }
+
+    @Override
+    public synchronized void clearEventsTable() {
+        eventNames.clear();
+        eventPrices.clear();
+    }
+
+    @Override
+    public synchronized void saveEventDetails(int eventId, String eventName, double eventPrice) {
+        eventNames.put(eventId, eventName);
+        eventPrices.put(eventId, eventPrice);
+    }
+
+    @Override
+    public synchronized boolean loadConfiguration(TicketPoolConfiguration configuration) {
+        if (this.configuration == null) {
+            return false; // No configuration found
+        }
+        configuration.setTotalTickets(this.configuration[0]);
+        configuration.setTicketReleaseRate(this.configuration[1]);
+        configuration.setCustomerRetrievalRate(this.configuration[2]);
+        configuration.setMaxTicketCapacity(this.configuration[3]);
+        Map<String, Double> prices = new LinkedHashMap<>();
+        eventNames.forEach((eventId, name) -> prices.put(name, eventPrices.get(eventId)));
+        configuration.addEventPrices(prices);
+        configuration.setConfigured(true);
+        return true;
+    }
+
+    @Override
+    public void logTransaction(String eventName, double ticketPrice, int vendorId, int customerId, int ticketCount) {
+        orderCount.increment();
+        this.ticketCount.add(ticketCount);
+    }
+
+    @Override
+    public void logTransactions(List<TransactionRecord> records) {
+        int tickets = 0;
+        for (TransactionRecord record : records) {
+            tickets += record.getTicketCount();
+        }
+        orderCount.add(records.size());
+        ticketCount.add(tickets);
+    }
+
+    @Override
+    public void clearTransactionsTable() {
+        orderCount.reset();
+        ticketCount.reset();
+    }
+
+    @Override
+    public String describe() {
+        return "In-memory - Orders: " + orderCount.sum() + " | Tickets: " + ticketCount.sum();
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+
+    // Numbers of orders and tickets logged since the last clear
+    public long getOrderCount() {
+        return orderCount.sum();
+    }
+
+    public long getTicketCount() {
+        return ticketCount.sum();
+    }
+}
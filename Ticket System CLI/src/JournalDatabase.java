@@ -0,0 +1,470 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedded persistence backend that needs no database server.
+ * Configuration and events go to a small state journal and ticket orders to an
+ * append-only transaction journal, both memory-mapped {@link JournalFile}s. Event names are
+ * written once to the transaction journal and referenced by number afterwards, so an order
+ * record's payload is 22 bytes plus 16 per line item, whatever the number of tickets in a line. A background task forces new records to disk every
+ * {@code ticket.journal.syncMillis} milliseconds, grouping many appends into one fsync.
+ * Both journals are replayed on startup to rebuild the configuration and event state.
+ * A whole catalog is written between a {@code CATALOG} record and a {@code CATALOG_END} record,
+ * and replay applies it only once it reaches the end record, so a crash part way through leaves
+ * the previous catalog in place.
+ */
+public class JournalDatabase implements DatabaseInterface {
+    // Record types in the state journal
+    private static final byte CONFIG = 1;
+    private static final byte EVENT = 2;
+    private static final byte CLEAR_EVENTS = 3;
+    private static final byte CATALOG = 4; // Configuration opening a catalog; the events after it belong to it
+    private static final byte CATALOG_END = 5; // 1 applies the catalog, 0 abandons one a crash left open
+
+    // Record types in the transaction journal
+    private static final byte EVENT_NAME = 10;
+    private static final byte ORDER = 12;
+
+    private static final int ORDER_SIZE = 22;
+    private static final int ORDER_ITEM_SIZE = 16;
+    private static final int MAX_NAME_BYTES = 1024;
+    private static final int STATE_SEGMENT_SIZE = 1 << 20;
+    private static final int TRANSACTION_SEGMENT_SIZE = Integer.getInteger("ticket.journal.segmentMb", 64) << 20;
+
+    private final JournalFile stateJournal;
+    private final JournalFile transactionJournal;
+    private final ScheduledExecutorService syncer;
+    // Whether each write waits for its group fsync instead of leaving it to the background task
+    private final boolean syncOnWrite;
+
+    // State rebuilt from the state journal
+    private int[] configuration; // total tickets, release rate, retrieval rate, max capacity
+    private final Map<Integer, String> eventNames = new LinkedHashMap<>();
+    private final Map<Integer, Double> eventPrices = new HashMap<>();
+    // Catalog replayed so far but not yet ended, only set while the state journal is replayed
+    private int[] pendingConfiguration;
+    private final Map<Integer, String> pendingNames = new LinkedHashMap<>();
+    private final Map<Integer, Double> pendingPrices = new HashMap<>();
+
+    // Event name dictionary of the transaction journal, guarded by the journal lock
+    private final Map<String, Integer> transactionEventIds = new HashMap<>();
+    private long orderCount = 0;
+    private long ticketCount = 0;
+
+    /**
+     * Opens the journals in a directory, creating them if needed, and replays them.
+     *
+     * @param directory the directory holding the journal files
+     */
+    public JournalDatabase(Path directory) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create journal directory " + directory, e);
+        }
+        stateJournal = new JournalFile(directory.resolve("state.journal"), STATE_SEGMENT_SIZE);
+        transactionJournal = new JournalFile(directory.resolve("transactions.journal"), TRANSACTION_SEGMENT_SIZE);
+        stateJournal.replay(this::replayState);
+        if (pendingConfiguration != null) {
+            // Close the catalog a crash left open, so the events written after this are not taken for part of it
+            stateJournal.lock();
+            try {
+                stateJournal.begin(CATALOG_END, 1).put((byte) 0);
+                stateJournal.end();
+            } finally {
+                stateJournal.unlock();
+            }
+            stateJournal.force();
+            TicketSystemLogger.warning("Discarded a configuration that was not completely written to " + directory);
+            clearPendingCatalog();
+        }
+        transactionJournal.replay(this::replayTransaction);
+
+        syncOnWrite = Boolean.getBoolean("ticket.journal.syncOnWrite");
+        long syncMillis = Long.getLong("ticket.journal.syncMillis", 10);
+        syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(this::syncAll, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void saveConfiguration(int totalTickets, int releaseRate, int retrievalRate, int maxCapacity) {
+        stateJournal.lock();
+        try {
+            ByteBuffer buffer = stateJournal.begin(CONFIG, 16);
+            buffer.putInt(totalTickets).putInt(releaseRate).putInt(retrievalRate).putInt(maxCapacity);
+            stateJournal.end();
+        } finally {
+            stateJournal.unlock();
+        }
+        stateJournal.force();
+        configuration = new int[]{totalTickets, releaseRate, retrievalRate, maxCapacity};
+    }
+
+    @Override
+    public synchronized void clearEventsTable() {
+        stateJournal.lock();
+        try {
+            stateJournal.begin(CLEAR_EVENTS, 1).put((byte) 0);
+            stateJournal.end();
+        } finally {
+            stateJournal.unlock();
+        }
+        stateJournal.force();
+        eventNames.clear();
+        eventPrices.clear();
+    }
+
+    @Override
+    public synchronized void saveEventDetails(int eventId, String eventName, double eventPrice) {
+        // Validate input
+        if (eventName == null || eventName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Event name cannot be empty");
+        }
+        if (eventPrice <= 0) {
+            throw new IllegalArgumentException("Event price must be positive");
+        }
+        String name = eventName.trim();
+        if (eventNames.containsKey(eventId) || eventNames.containsValue(name)) {
+            throw new RuntimeException("Event details save failed: event " + eventId + " (" + name + ") already exists");
+        }
+
+        byte[] nameBytes = encodeName(name);
+        stateJournal.lock();
+        try {
+            ByteBuffer buffer = stateJournal.begin(EVENT, 14 + nameBytes.length);
+            buffer.putInt(eventId).putDouble(eventPrice).putShort((short) nameBytes.length).put(nameBytes);
+            stateJournal.end();
+        } finally {
+            stateJournal.unlock();
+        }
+        stateJournal.force();
+        eventNames.put(eventId, name);
+        eventPrices.put(eventId, eventPrice);
+    }
+
+    /**
+     * Appends the configuration and every event to the state journal as one catalog, under one lock
+     * acquisition, and forces them to disk once. Replay applies the catalog only if its end record
+     * made it to disk, so after a crash the configuration and events are either all replaced or all kept.
+     */
+    @Override
+    public synchronized void replaceConfiguration(int totalTickets, int releaseRate, int retrievalRate, int maxCapacity,
+                                                  Map<String, Double> prices) {
+        // Validate input before anything is written
+        Map<String, byte[]> encoded = new LinkedHashMap<>();
+        for (Map.Entry<String, Double> entry : prices.entrySet()) {
+            if (entry.getKey() == null || entry.getKey().trim().isEmpty()) {
+                throw new IllegalArgumentException("Event name cannot be empty");
+            }
+            if (entry.getValue() <= 0) {
+                throw new IllegalArgumentException("Event price must be positive");
+            }
+            String name = entry.getKey().trim();
+            if (encoded.put(name, encodeName(name)) != null) {
+                throw new RuntimeException("Event details save failed: event " + name + " already exists");
+            }
+        }
+
+        stateJournal.lock();
+        try {
+            stateJournal.begin(CATALOG, 16).putInt(totalTickets).putInt(releaseRate).putInt(retrievalRate).putInt(maxCapacity);
+            stateJournal.end();
+            int eventId = 1;
+            for (Map.Entry<String, Double> entry : prices.entrySet()) {
+                byte[] nameBytes = encoded.get(entry.getKey().trim());
+                ByteBuffer buffer = stateJournal.begin(EVENT, 14 + nameBytes.length);
+                buffer.putInt(eventId++).putDouble(entry.getValue()).putShort((short) nameBytes.length).put(nameBytes);
+                stateJournal.end();
+            }
+            stateJournal.begin(CATALOG_END, 1).put((byte) 1);
+            stateJournal.end();
+        } finally {
+            stateJournal.unlock();
+        }
+        stateJournal.force();
+
+        configuration = new int[]{totalTickets, releaseRate, retrievalRate, maxCapacity};
+        eventNames.clear();
+        eventPrices.clear();
+        int eventId = 1;
+        for (Map.Entry<String, Double> entry : prices.entrySet()) {
+            eventNames.put(eventId, entry.getKey().trim());
+            eventPrices.put(eventId++, entry.getValue());
+        }
+    }
+
+    @Override
+    public synchronized boolean loadConfiguration(TicketPoolConfiguration configuration) {
+        if (this.configuration == null) {
+            return false; // No configuration found
+        }
+        configuration.setTotalTickets(this.configuration[0]);
+        configuration.setTicketReleaseRate(this.configuration[1]);
+        configuration.setCustomerRetrievalRate(this.configuration[2]);
+        configuration.setMaxTicketCapacity(this.configuration[3]);
+        Map<String, Double> prices = new LinkedHashMap<>();
+        eventNames.keySet().stream().sorted().forEach(eventId -> prices.put(eventNames.get(eventId), eventPrices.get(eventId)));
+        configuration.addEventPrices(prices);
+        configuration.setConfigured(true);
+        return true;
+    }
+
+    @Override
+    public void logTransaction(String eventName, double ticketPrice, int vendorId, int customerId, int ticketCount) {
+        logTransactions(List.of(new TransactionRecord(eventName, ticketPrice, vendorId, customerId, ticketCount)));
+    }
+
+    /**
+     * Appends a batch of orders, each with its line items, under a single journal lock acquisition.
+     * With {@code ticket.journal.syncOnWrite} set, returns only once the batch is on disk.
+     *
+     * @param records the orders to append
+     */
+    @Override
+    public void logTransactions(List<TransactionRecord> records) {
+        long timestamp = System.currentTimeMillis();
+        long endPosition;
+        transactionJournal.lock();
+        try {
+            for (TransactionRecord record : records) {
+                int eventId = transactionEventId(record.getEventName());
+                ByteBuffer buffer = transactionJournal.begin(ORDER, ORDER_SIZE + record.getItemCount() * ORDER_ITEM_SIZE);
+                buffer.putInt(eventId)
+                        .putInt(record.getCustomerId())
+                        .putInt(record.getTicketCount())
+                        .putLong(timestamp)
+                        .putShort((short) record.getItemCount());
+                for (int item = 0; item < record.getItemCount(); item++) {
+                    buffer.putInt(record.getItemVendorId(item))
+                            .putInt(record.getItemTicketCount(item))
+                            .putDouble(record.getItemPrice(item));
+                }
+                transactionJournal.end();
+                ticketCount += record.getTicketCount();
+            }
+            orderCount += records.size();
+            endPosition = transactionJournal.getWritePosition();
+        } finally {
+            transactionJournal.unlock();
+        }
+        if (syncOnWrite) {
+            transactionJournal.awaitSynced(endPosition);
+        }
+    }
+
+    @Override
+    public void clearTransactionsTable() {
+        transactionJournal.lock();
+        try {
+            transactionJournal.truncate();
+            transactionEventIds.clear();
+            orderCount = 0;
+            ticketCount = 0;
+        } finally {
+            transactionJournal.unlock();
+        }
+        transactionJournal.force();
+    }
+
+    @Override
+    public String describe() {
+        return String.format("Journal - Orders: %d | Tickets: %d | Written: %d bytes | Synced: %d bytes",
+                getOrderCount(), getTicketCount(), transactionJournal.getWritePosition(), transactionJournal.getSyncedPosition());
+    }
+
+    /**
+     * Stops the sync task, flushes both journals and closes them.
+     */
+    @Override
+    public void close() {
+        syncer.shutdownNow();
+        stateJournal.close();
+        transactionJournal.close();
+    }
+
+    /**
+     * Streams the line items of every order in the transaction journal straight from the mapped file.
+     * Orders are numbered by their position in the journal. New orders wait until the export finishes.
+     *
+     * @param visitor receives each line item
+     * @return the number of line items streamed
+     */
+    @Override
+    public long exportOrderItems(OrderItemVisitor visitor) {
+        Map<Integer, String> names = new HashMap<>();
+        long[] counts = new long[2]; // Orders and line items
+        transactionJournal.read((type, payload) -> {
+            switch (type) {
+                case EVENT_NAME:
+                    int eventId = payload.getInt();
+                    names.put(eventId, decodeName(payload));
+                    break;
+                case ORDER: {
+                    String eventName = names.get(payload.getInt());
+                    int customerId = payload.getInt();
+                    payload.getInt(); // Ticket count, the sum of the items'
+                    long timestamp = payload.getLong();
+                    int items = payload.getShort();
+                    long orderId = ++counts[0];
+                    for (int item = 0; item < items; item++) {
+                        visitor.visit(orderId, timestamp, eventName, customerId,
+                                payload.getInt(), payload.getInt(), Math.round(payload.getDouble() * 100));
+                    }
+                    counts[1] += items;
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unknown transaction journal record type " + type);
+            }
+        });
+        return counts[1];
+    }
+
+    // Numbers of orders and tickets currently in the journal
+    public long getOrderCount() {
+        transactionJournal.lock();
+        try {
+            return orderCount;
+        } finally {
+            transactionJournal.unlock();
+        }
+    }
+
+    public long getTicketCount() {
+        transactionJournal.lock();
+        try {
+            return ticketCount;
+        } finally {
+            transactionJournal.unlock();
+        }
+    }
+
+    /**
+     * Returns the journal number of an event name, writing it to the dictionary on first use.
+     * Must be called with the transaction journal lock held.
+     */
+    private int transactionEventId(String eventName) {
+        Integer eventId = transactionEventIds.get(eventName);
+        if (eventId == null) {
+            eventId = transactionEventIds.size();
+            byte[] nameBytes = encodeName(eventName);
+            ByteBuffer buffer = transactionJournal.begin(EVENT_NAME, 6 + nameBytes.length);
+            buffer.putInt(eventId).putShort((short) nameBytes.length).put(nameBytes);
+            transactionJournal.end();
+            transactionEventIds.put(eventName, eventId);
+        }
+        return eventId;
+    }
+
+    /**
+     * Rebuilds configuration and event state from one state journal record.
+     * Events inside a catalog are held back until its end record.
+     */
+    private void replayState(byte type, ByteBuffer payload) {
+        if (pendingConfiguration != null && type != EVENT && type != CATALOG_END) {
+            clearPendingCatalog(); // Not written by this version, which always ends a catalog it opened
+        }
+        switch (type) {
+            case CONFIG:
+                configuration = new int[]{payload.getInt(), payload.getInt(), payload.getInt(), payload.getInt()};
+                break;
+            case EVENT:
+                int eventId = payload.getInt();
+                double price = payload.getDouble();
+                String name = decodeName(payload);
+                if (pendingConfiguration != null) {
+                    pendingNames.put(eventId, name);
+                    pendingPrices.put(eventId, price);
+                } else {
+                    eventNames.put(eventId, name);
+                    eventPrices.put(eventId, price);
+                }
+                break;
+            case CLEAR_EVENTS:
+                eventNames.clear();
+                eventPrices.clear();
+                break;
+            case CATALOG:
+                pendingConfiguration = new int[]{payload.getInt(), payload.getInt(), payload.getInt(), payload.getInt()};
+                break;
+            case CATALOG_END:
+                if (pendingConfiguration != null && payload.get() == 1) {
+                    configuration = pendingConfiguration;
+                    eventNames.clear();
+                    eventNames.putAll(pendingNames);
+                    eventPrices.clear();
+                    eventPrices.putAll(pendingPrices);
+                }
+                clearPendingCatalog();
+                break;
+            default:
+                throw new IllegalStateException("Unknown state journal record type " + type);
+        }
+    }
+
+    private void clearPendingCatalog() {
+        pendingConfiguration = null;
+        pendingNames.clear();
+        pendingPrices.clear();
+    }
+
+    /**
+     * Rebuilds the event name dictionary and the order and ticket counts from one transaction journal record.
+     */
+    private void replayTransaction(byte type, ByteBuffer payload) {
+        switch (type) {
+            case EVENT_NAME:
+                int eventId = payload.getInt();
+                transactionEventIds.put(decodeName(payload), eventId);
+                break;
+            case ORDER:
+                payload.position(payload.position() + 8); // Event and customer
+                orderCount++;
+                ticketCount += payload.getInt();
+                break;
+            default:
+                throw new IllegalStateException("Unknown transaction journal record type " + type);
+        }
+    }
+
+    /**
+     * Forces both journals to disk; runs on the background sync task.
+     */
+    private void syncAll() {
+        try {
+            transactionJournal.force();
+            stateJournal.force();
+        } catch (RuntimeException e) {
+            TicketSystemLogger.severe("Journal sync failed: " + e.getMessage());
+        }
+    }
+
+    private static byte[] encodeName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Event name is too long: " + name);
+        }
+        return bytes;
+    }
+
+    private static String decodeName(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.getShort()];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
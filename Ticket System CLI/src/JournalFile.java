@@ -0,0 +1,362 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only binary journal stored in a memory-mapped file.
+ * The file is mapped in fixed-size segments. It starts with {@code [int magic][int generation]}
+ * and every record is laid out as {@code [int payloadLength][int crc][int generation][byte type][payload]}.
+ * A zero length marks the end of the journal and a length of {@code -1} skips to the next segment,
+ * so records never straddle two mappings. Replay stops at the first record whose checksum does not
+ * match, which drops a record torn by a crash, or whose generation is not the file's: truncation
+ * bumps the generation, so records left over from before it are never replayed even when a lost
+ * terminator leaves one where the next record was expected.
+ * Writers call {@link #lock()}, {@link #begin(byte, int)}, fill the buffer, {@link #end()} and {@link #unlock()}.
+ */
+public class JournalFile implements AutoCloseable {
+    private static final int MAGIC = 0x4A524E4C; // "JRNL"
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int HEADER_SIZE = 13;
+    private static final int GENERATION_OFFSET = 8;
+    private static final int TYPE_OFFSET = 12;
+    private static final int END_OF_JOURNAL = 0;
+    private static final int SKIP_SEGMENT = -1;
+
+    /**
+     * Receives records while the journal is replayed.
+     */
+    public interface RecordVisitor {
+        void visit(byte type, ByteBuffer payload);
+    }
+
+    private final FileChannel channel;
+    private final int segmentSize;
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final CRC32C crc = new CRC32C();
+
+    private long writePosition = FILE_HEADER_SIZE; // Absolute offset of the next record
+    private long recordStart = -1;    // Absolute offset of the record being written
+    private ByteBuffer recordBuffer;  // Segment buffer the current record is written into
+    private int generation;           // Stamped on every record, incremented on every truncation
+    private volatile SyncPoint synced;
+
+    /**
+     * How far the journal is known to be on disk; replaced as a whole so readers see a matching pair.
+     */
+    private static final class SyncPoint {
+        final int generation;
+        final long position;
+
+        SyncPoint(int generation, long position) {
+            this.generation = generation;
+            this.position = position;
+        }
+    }
+
+    /**
+     * Opens or creates a journal file.
+     *
+     * @param path        the journal file
+     * @param segmentSize the size of each mapped segment in bytes
+     * @throws UncheckedIOException if the file cannot be opened or mapped
+     * @throws IllegalStateException if the file is not empty and is not a journal in this format
+     */
+    public JournalFile(Path path, int segmentSize) {
+        this.segmentSize = segmentSize;
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long existingSegments = Math.max(1, (channel.size() + segmentSize - 1) / segmentSize);
+            for (int i = 0; i < existingSegments; i++) {
+                mapSegment(i);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open journal " + path, e);
+        }
+        ByteBuffer header = segments.get(0);
+        if (header.getInt(0) == MAGIC) {
+            generation = header.getInt(4);
+        } else if (header.getInt(0) == END_OF_JOURNAL) {
+            header.putInt(4, 0).putInt(0, MAGIC);
+            writeTerminator();
+        } else {
+            throw new IllegalStateException("Journal " + path + " was written in an older format; move it aside to start afresh");
+        }
+        synced = new SyncPoint(generation, FILE_HEADER_SIZE);
+    }
+
+    /**
+     * Replays every intact record from the start of the journal and positions the writer after the last one.
+     *
+     * @param visitor receives each record's type and payload
+     * @return the number of records replayed
+     */
+    public long replay(RecordVisitor visitor) {
+        lock.lock();
+        try {
+            long[] records = new long[1];
+            long position = walk((type, payload) -> {
+                visitor.visit(type, payload);
+                records[0]++;
+            }, Long.MAX_VALUE);
+            writePosition = position;
+            synced = new SyncPoint(generation, position);
+            writeTerminator();
+            return records[0];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads every record written so far without changing the journal, handing each payload
+     * out as a view of the mapped file so nothing is copied. Writers wait until it finishes.
+     *
+     * @param visitor receives each record's type and payload
+     */
+    public void read(RecordVisitor visitor) {
+        lock.lock();
+        try {
+            walk(visitor, writePosition);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Visits the intact records from the start of the journal up to a position.
+     *
+     * @return the position after the last record visited
+     */
+    private long walk(RecordVisitor visitor, long end) {
+        long position = FILE_HEADER_SIZE;
+        while (position < end) {
+            int segment = (int) (position / segmentSize);
+            int offset = (int) (position % segmentSize);
+            if (segment >= segments.size() || offset + 4 > segmentSize) {
+                break;
+            }
+            ByteBuffer buffer = segments.get(segment);
+            int length = buffer.getInt(offset);
+            if (length == SKIP_SEGMENT) {
+                position = (long) (segment + 1) * segmentSize;
+                continue;
+            }
+            if (length <= 0 || (long) offset + HEADER_SIZE + length > segmentSize) {
+                break;
+            }
+            int storedCrc = buffer.getInt(offset + 4);
+            ByteBuffer body = buffer.duplicate();
+            body.limit(offset + HEADER_SIZE + length).position(offset + GENERATION_OFFSET);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != storedCrc || buffer.getInt(offset + GENERATION_OFFSET) != generation) {
+                break; // Torn record, or one left from before a truncation: the journal ends here
+            }
+            byte type = buffer.get(offset + TYPE_OFFSET);
+            ByteBuffer payload = buffer.duplicate();
+            payload.limit(offset + HEADER_SIZE + length).position(offset + HEADER_SIZE);
+            visitor.visit(type, payload.slice());
+            position += HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    // Locking around begin/end for writers
+    public void lock() {
+        lock.lock();
+    }
+
+    public void unlock() {
+        lock.unlock();
+    }
+
+    /**
+     * Starts a record and returns the buffer to write its payload into, positioned at the payload start.
+     * The caller must hold the lock and finish the record with {@link #end()}.
+     *
+     * @param type           the record type
+     * @param maxPayloadSize the largest payload the caller will write
+     * @return the buffer to write the payload into
+     */
+    public ByteBuffer begin(byte type, int maxPayloadSize) {
+        if (maxPayloadSize + HEADER_SIZE + 4 > segmentSize) {
+            throw new IllegalArgumentException("Record of " + maxPayloadSize + " bytes exceeds journal segment size");
+        }
+        int offset = (int) (writePosition % segmentSize);
+        // Leave room for the record and the terminator after it, otherwise continue in the next segment
+        if (offset + HEADER_SIZE + maxPayloadSize + 4 > segmentSize) {
+            segmentAt(writePosition).putInt(offset, SKIP_SEGMENT);
+            writePosition = (writePosition / segmentSize + 1) * segmentSize;
+            offset = 0;
+        }
+        recordStart = writePosition;
+        recordBuffer = segmentAt(writePosition);
+        recordBuffer.position(offset + HEADER_SIZE);
+        recordBuffer.putInt(offset + GENERATION_OFFSET, generation);
+        recordBuffer.put(offset + TYPE_OFFSET, type);
+        return recordBuffer;
+    }
+
+    /**
+     * Completes the record started by {@link #begin(byte, int)}, writing its length and checksum.
+     */
+    public void end() {
+        int offset = (int) (recordStart % segmentSize);
+        int length = recordBuffer.position() - offset - HEADER_SIZE;
+        if (length == 0) {
+            throw new IllegalStateException("Journal records must have a payload");
+        }
+        ByteBuffer body = recordBuffer.duplicate();
+        body.limit(offset + HEADER_SIZE + length).position(offset + GENERATION_OFFSET);
+        crc.reset();
+        crc.update(body);
+        recordBuffer.putInt(offset + 4, (int) crc.getValue());
+        recordBuffer.putInt(offset, length);
+        writePosition = recordStart + HEADER_SIZE + length;
+        recordStart = -1;
+        writeTerminator();
+    }
+
+    /**
+     * Discards every record, leaving an empty journal that reuses the mapped space.
+     * The new generation is written to the file header, so the old records no longer replay
+     * once it is on disk; the empty state becomes durable with the next {@link #force()}.
+     */
+    public void truncate() {
+        lock.lock();
+        try {
+            writePosition = FILE_HEADER_SIZE;
+            generation++;
+            segments.get(0).putInt(4, generation);
+            writeTerminator();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flushes everything written so far to the storage device.
+     * Concurrent callers are grouped: whoever holds the sync lock forces every record
+     * written up to that moment, and callers whose data it covered return without another fsync.
+     */
+    public void force() {
+        syncLock.lock();
+        try {
+            long target;
+            int targetGeneration;
+            int segmentCount;
+            lock.lock();
+            try {
+                target = writePosition;
+                targetGeneration = generation;
+                segmentCount = segments.size();
+            } finally {
+                lock.unlock();
+            }
+            SyncPoint current = synced;
+            boolean sameGeneration = targetGeneration == current.generation;
+            if (sameGeneration && target <= current.position) {
+                return;
+            }
+            // After a truncation everything from the start of the file may have changed
+            int fromSegment = sameGeneration ? (int) (current.position / segmentSize) : 0;
+            int toSegment = (int) Math.min(target / segmentSize, segmentCount - 1);
+            for (int i = fromSegment; i <= toSegment; i++) {
+                segments.get(i).force();
+            }
+            synced = new SyncPoint(targetGeneration, target);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every record up to a write position has been flushed, sharing the fsync with other callers.
+     * Returns without taking the sync lock if a concurrent {@link #force()} has already covered the position.
+     *
+     * @param position the write position that must be durable, as returned by {@link #getWritePosition()}
+     */
+    public void awaitSynced(long position) {
+        SyncPoint current = synced;
+        if (current.position >= position && current.generation == getGeneration()) {
+            return;
+        }
+        force();
+    }
+
+    // Getters for the journal position
+    public long getWritePosition() {
+        lock.lock();
+        try {
+            return writePosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getSyncedPosition() {
+        return synced.position;
+    }
+
+    public int getGeneration() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flushes and closes the journal.
+     */
+    @Override
+    public void close() {
+        force();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close journal", e);
+        }
+    }
+
+    /**
+     * Marks the current write position as the end of the journal.
+     */
+    private void writeTerminator() {
+        int offset = (int) (writePosition % segmentSize);
+        if (offset + 4 <= segmentSize) {
+            segmentAt(writePosition).putInt(offset, END_OF_JOURNAL);
+        }
+    }
+
+    /**
+     * Returns the segment holding an absolute position, mapping new segments as the journal grows.
+     */
+    private MappedByteBuffer segmentAt(long position) {
+        int segment = (int) (position / segmentSize);
+        try {
+            while (segments.size() <= segment) {
+                mapSegment(segments.size());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to grow journal", e);
+        }
+        return segments.get(segment);
+    }
+
+    private void mapSegment(int index) throws IOException {
+        segments.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) index * segmentSize, segmentSize));
+    }
+}
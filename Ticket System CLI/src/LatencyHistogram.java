@@ -0,0 +1,172 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size latency histogram with logarithmic buckets.
+ * Every power of two is split into 32 linear sub-buckets, so any recorded value is
+ * reported to within about 3% while the whole range from 1 ns to many hours fits in
+ * fewer than 2,000 counters. Recording is a single atomic increment and snapshots can be
+ * read while other threads keep recording.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records one value.
+     *
+     * @param nanos the latency in nanoseconds; negative values are recorded as zero
+     */
+    public void record(long nanos) {
+        counts.getAndIncrement(indexOf(Math.max(0, nanos)));
+    }
+
+    /**
+     * Adds every value recorded in another histogram to this one.
+     *
+     * @param other the histogram to merge in
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.getAndAdd(i, count);
+            }
+        }
+    }
+
+    /**
+     * Discards every recorded value.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    /**
+     * Takes a consistent-enough copy for reporting; values recorded during the copy may or may not be included.
+     *
+     * @return an independent copy of the counts
+     */
+    public LatencyHistogram snapshot() {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.add(this);
+        return copy;
+    }
+
+    // Summary statistics over the recorded values
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    public long getMax() {
+        for (int i = BUCKETS - 1; i >= 0; i--) {
+            if (counts.get(i) != 0) {
+                return highestValueAt(i);
+            }
+        }
+        return 0;
+    }
+
+    public double getMean() {
+        long total = 0;
+        double sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = counts.get(i);
+            if (count != 0) {
+                total += count;
+                sum += (double) count * ((lowestValueAt(i) + highestValueAt(i)) / 2.0);
+            }
+        }
+        return total == 0 ? 0 : sum / total;
+    }
+
+    /**
+     * Returns the value at a percentile, as the upper bound of the bucket it falls in.
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return the latency in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return highestValueAt(i);
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Formats count, mean, p50, p99, p99.9 and max in the given unit.
+     *
+     * @param unit the unit to show latencies in
+     * @return a one-line summary
+     */
+    public String summary(TimeUnit unit) {
+        double scale = unit.toNanos(1);
+        String suffix = unitSuffix(unit);
+        return String.format("count=%d mean=%.1f%s p50=%.1f%s p99=%.1f%s p99.9=%.1f%s max=%.1f%s",
+                getCount(),
+                getMean() / scale, suffix,
+                getValueAtPercentile(50) / scale, suffix,
+                getValueAtPercentile(99) / scale, suffix,
+                getValueAtPercentile(99.9) / scale, suffix,
+                getMax() / scale, suffix);
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        // Values in [2^m, 2^(m+1)) land in 32 equal slices of that range
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long lowestValueAt(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+
+    private static long highestValueAt(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return lowestValueAt(index) + (1L << shift) - 1;
+    }
+
+    private static String unitSuffix(TimeUnit unit) {
+        switch (unit) {
+            case NANOSECONDS:
+                return "ns";
+            case MICROSECONDS:
+                return "us";
+            case MILLISECONDS:
+                return "ms";
+            case SECONDS:
+                return "s";
+            default:
+                return " " + unit.name().toLowerCase();
+        }
+    }
+}
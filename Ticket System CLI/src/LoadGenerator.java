@@ -0,0 +1,398 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Non-interactive load test for the ticket pool, started with {@code TicketSystem --load}.
+ * Vendors release as fast as the pool's capacity allows and customers buy either as fast as they can
+ * or at a fixed offered load. At the end a report gives throughput, purchase latency percentiles,
+ * reservation contention, the lag between a sale and its database write and the latency of each purchase stage.
+ *
+ * <p>Options are given as {@code --name=value} arguments or read from a properties file with
+ * {@code --config=file}; arguments override the file. Persistence, logging and execution mode
+ * use the usual {@code ticket.*} system properties.
+ */
+public class LoadGenerator {
+    // How long a customer or vendor backs off when the pool is empty or full
+    private static final long BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static final Set<String> OPTIONS = Set.of("config", "events", "price", "vendors", "customers",
+            "duration", "warmup", "rate", "release-rate", "retrieval-rate", "capacity", "total-tickets",
+            "hold-ms", "abandon");
+
+    private final int events;
+    private final double price;
+    private final int vendors;
+    private final int customers;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final double targetRate; // Purchases per second across all customers, 0 for maximum speed
+    private final int releaseRate;
+    private final int retrievalRate;
+    private final int capacity;
+    private final int totalTickets;
+    private final int holdMillis; // When positive, customers hold tickets and then confirm or abandon them
+    private final int abandonPercent;
+
+    // Run state shared with the worker threads
+    private volatile boolean measuring = false;
+    private volatile boolean done = false;
+    private volatile RuntimeException purchaseFailure; // First purchase whose order could not be stored
+
+    // Purchase latency striped by customer like the pool's stage metrics, so concurrent customers
+    // rarely share a histogram and memory does not grow with the number of customers
+    private final LatencyHistogram[] latencyStripes;
+    private final int latencyMask;
+
+    private LoadGenerator(Properties options) {
+        events = intOption(options, "events", 5, 1);
+        price = Double.parseDouble(options.getProperty("price", "50"));
+        vendors = intOption(options, "vendors", events, 1);
+        customers = intOption(options, "customers", 20, 1);
+        durationSeconds = intOption(options, "duration", 30, 1);
+        warmupSeconds = intOption(options, "warmup", 5, 0);
+        targetRate = Double.parseDouble(options.getProperty("rate", "0"));
+        releaseRate = intOption(options, "release-rate", 5, 1);
+        retrievalRate = intOption(options, "retrieval-rate", 5, 1);
+        capacity = intOption(options, "capacity", 10000, 1);
+        totalTickets = intOption(options, "total-tickets", Integer.MAX_VALUE, 1);
+        holdMillis = intOption(options, "hold-ms", 0, 0);
+        abandonPercent = intOption(options, "abandon", 0, 0);
+        if (abandonPercent > 100) {
+            throw new IllegalArgumentException("Option abandon is a percentage and must be at most 100.");
+        }
+        if (price <= 0 || targetRate < 0) {
+            throw new IllegalArgumentException("Price must be positive and rate must not be negative.");
+        }
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        latencyStripes = new LatencyHistogram[stripes];
+        for (int i = 0; i < stripes; i++) {
+            latencyStripes[i] = new LatencyHistogram();
+        }
+        latencyMask = stripes - 1;
+    }
+
+    /**
+     * Builds a load test from command-line arguments.
+     *
+     * @param args {@code --name=value} options, optionally including {@code --config=file}
+     * @return the configured load test
+     * @throws IllegalArgumentException if an option is unknown or invalid
+     */
+    public static LoadGenerator fromArguments(String[] args) {
+        return new LoadGenerator(parseOptions(args, OPTIONS, "load test"));
+    }
+
+    /**
+     * Reads {@code --name=value} arguments, and the properties file named by {@code --config}, into options.
+     *
+     * @param args  the arguments
+     * @param valid the option names accepted
+     * @param kind  what the options are for, used in error messages
+     * @return the options; arguments override the file
+     * @throws IllegalArgumentException if an option is unknown or malformed, or the file cannot be read
+     */
+    static Properties parseOptions(String[] args, Set<String> valid, String kind) {
+        Properties arguments = new Properties();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            int split = arg.indexOf('=');
+            arguments.setProperty(arg.substring(2, split), arg.substring(split + 1));
+        }
+
+        Properties options = new Properties();
+        String configFile = arguments.getProperty("config");
+        if (configFile != null) {
+            try (Reader reader = Files.newBufferedReader(Path.of(configFile), StandardCharsets.UTF_8)) {
+                options.load(reader);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Failed to read " + kind + " config " + configFile + ": " + e.getMessage());
+            }
+        }
+        options.putAll(arguments);
+
+        for (String name : options.stringPropertyNames()) {
+            if (!valid.contains(name)) {
+                throw new IllegalArgumentException("Unknown " + kind + " option: " + name + ". Valid options: " + valid);
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Runs the load test and prints the report.
+     * The test stops at the first order that cannot be stored, and then reports no throughput:
+     * purchases whose orders were lost would only make the numbers look better.
+     *
+     * @throws InterruptedException  if interrupted while the test is running
+     * @throws IllegalStateException if orders could not be written to the database
+     */
+    public void run() throws InterruptedException {
+        // Per-purchase info logging would dominate the measurement; keep warnings unless told otherwise
+        setDefaultProperty("ticket.log.consoleLevel", "WARNING");
+        setDefaultProperty("ticket.log.fileLevel", "WARNING");
+
+        TicketPoolConfiguration configuration = new TicketPoolConfiguration();
+        configuration.setTotalTickets(totalTickets);
+        configuration.setMaxTicketCapacity(capacity);
+        configuration.setTicketReleaseRate(releaseRate);
+        configuration.setCustomerRetrievalRate(retrievalRate);
+        String[] eventNames = new String[events];
+        for (int i = 0; i < events; i++) {
+            eventNames[i] = "Load Event " + (i + 1);
+            configuration.addEventPrice(eventNames[i], price);
+        }
+        configuration.setConfigured(true);
+
+        DatabaseInterface database = DatabaseInterface.create();
+        TicketPool ticketPool = new TicketPool(database, configuration);
+        ticketPool.prepareInventories();
+
+        System.out.printf("Load test: %d event(s), %d vendor(s), %d customer(s), %ds warm-up + %ds measured, %s%n",
+                events, vendors, customers, warmupSeconds, durationSeconds,
+                targetRate > 0 ? String.format("offered load %.0f purchases/sec", targetRate) : "maximum speed");
+
+        ExecutionMode mode = ExecutionMode.fromSystemProperties();
+        ThreadFactory vendorFactory = mode.threadFactory("load-vendor-");
+        ThreadFactory customerFactory = mode.threadFactory("load-customer-");
+        List<Thread> threads = new ArrayList<>();
+        List<Thread> vendorThreads = new ArrayList<>();
+        for (int i = 0; i < vendors; i++) {
+            int vendorId = i + 1;
+            String eventName = eventNames[i % events];
+            vendorThreads.add(vendorFactory.newThread(() -> runVendor(ticketPool, vendorId, eventName)));
+        }
+        threads.addAll(vendorThreads);
+        List<CustomerWorker> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < customers; i++) {
+            CustomerWorker worker = new CustomerWorker(ticketPool, i + 1, start);
+            workers.add(worker);
+            threads.add(customerFactory.newThread(worker));
+        }
+        threads.forEach(Thread::start);
+
+        // Warm up, then measure until the duration elapses or the ticket limit is sold
+        sleepUnlessSoldOut(ticketPool, TimeUnit.SECONDS.toNanos(warmupSeconds));
+        TransactionWriter writer = ticketPool.getTransactionWriter();
+        long soldBefore = ticketPool.getTicketsSold();
+        long retriesBefore = ticketPool.getReservationRetries();
+        ticketPool.getMetrics().reset();
+        long measureStart = System.nanoTime();
+        measuring = true;
+        sleepUnlessSoldOut(ticketPool, TimeUnit.SECONDS.toNanos(durationSeconds));
+        measuring = false;
+        long measureNanos = System.nanoTime() - measureStart;
+        long sold = ticketPool.getTicketsSold() - soldBefore;
+        long retries = ticketPool.getReservationRetries() - retriesBefore;
+
+        done = true;
+        // Vendors may be waiting for space in a full pool
+        vendorThreads.forEach(Thread::interrupt);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // Writes every queued transaction so the flush statistics are complete
+        ticketPool.close();
+        if (writer.getRecordsFailed() > 0 || purchaseFailure != null) {
+            database.close();
+            throw new IllegalStateException(String.format(
+                    "Load test aborted: %d of %d order(s) could not be written%s. No throughput is reported; the log has the database error.",
+                    writer.getRecordsFailed(), writer.getRecordsWritten() + writer.getRecordsFailed(),
+                    purchaseFailure != null ? " (" + purchaseFailure.getMessage() + ")" : ""));
+        }
+
+        LatencyHistogram purchaseLatency = new LatencyHistogram();
+        for (LatencyHistogram stripe : latencyStripes) {
+            purchaseLatency.add(stripe);
+        }
+        long purchases = 0;
+        long emptyAttempts = 0;
+        for (CustomerWorker worker : workers) {
+            purchases += worker.purchases;
+            emptyAttempts += worker.emptyAttempts;
+        }
+        double seconds = measureNanos / 1e9;
+
+        System.out.println("\n--- Load Test Report ---");
+        System.out.printf("Measured: %.2f s%s%n", seconds, ticketPool.isSoldOut() ? " (ended early: ticket limit sold)" : "");
+        System.out.printf("Throughput: %d ticket(s) sold (%.1f tickets/sec), %d purchase(s) (%.1f purchases/sec), %d empty attempt(s)%n",
+                sold, sold / seconds, purchases, purchases / seconds, emptyAttempts);
+        System.out.println("Purchase latency: " + purchaseLatency.summary(TimeUnit.MICROSECONDS));
+        System.out.printf("Reservation contention: %d CAS retr%s (%.3f per purchase)%n",
+                retries, retries == 1 ? "y" : "ies", purchases > 0 ? (double) retries / purchases : 0.0);
+        System.out.printf("DB flush lag: avg %.2f ms, max %.2f ms | Orders written: %d in %d batch(es), failed: %d%n",
+                writer.getAverageFlushLagNanos() / 1e6, writer.getMaxFlushLagNanos() / 1e6,
+                writer.getRecordsWritten(), writer.getBatchesWritten(), writer.getRecordsFailed());
+        CapacityGate gate = ticketPool.getCapacityGate();
+        if (gate != null) {
+            System.out.printf("Capacity: %d (%s) | vendor waits: %d | tickets shed: %d%n",
+                    gate.getCapacity(), gate.getPolicy(), gate.getWaits(), gate.getShedTickets());
+        }
+        if (holdMillis > 0) {
+            System.out.printf("%s (hold time %d ms, %d%% abandoned)%n", ticketPool.describeHolds(), holdMillis, abandonPercent);
+        }
+        System.out.println("Persistence: " + database.describe());
+        if (ticketPool.getMetrics().isEnabled()) {
+            System.out.print("Stage latencies:\n" + ticketPool.getMetrics().describeStages());
+        }
+
+        database.close();
+    }
+
+    /**
+     * Releases tickets for the vendor's event as fast as the pool's capacity allows,
+     * until the test ends or the ticket limit is reached.
+     */
+    private void runVendor(TicketPool ticketPool, int vendorId, String eventName) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (!done) {
+            int addedBefore = ticketPool.getTicketsAdded();
+            if (!ticketPool.addTickets(eventName, vendorId, random.nextInt(1, releaseRate + 1), price)) {
+                return; // Ticket limit reached or the test is over
+            }
+            if (ticketPool.getTicketsAdded() == addedBefore) {
+                // The release was shed because the pool is full
+                LockSupport.parkNanos(BACKOFF_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Sleeps for a time, returning early once the ticket limit is sold or an order could not be written.
+     */
+    private void sleepUnlessSoldOut(TicketPool ticketPool, long nanos) throws InterruptedException {
+        long deadline = System.nanoTime() + nanos;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0 && !ticketPool.isSoldOut()
+                && ticketPool.getTransactionWriter().getRecordsFailed() == 0 && purchaseFailure == null) {
+            TimeUnit.NANOSECONDS.sleep(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(100)));
+        }
+    }
+
+    /**
+     * One customer: buys in a loop and records how long each purchase took.
+     * At a fixed offered load, purchases are scheduled at even intervals and latency is measured
+     * from the scheduled time, so a stalled pool shows up as latency instead of as fewer attempts.
+     */
+    private final class CustomerWorker implements Runnable {
+        private final TicketPool ticketPool;
+        private final int customerId;
+        private final long start;
+        private final LatencyHistogram latency;
+        // Owned by the worker thread and read after it has been joined
+        private long purchases;
+        private long emptyAttempts;
+
+        CustomerWorker(TicketPool ticketPool, int customerId, long start) {
+            this.ticketPool = ticketPool;
+            this.customerId = customerId;
+            this.start = start;
+            this.latency = latencyStripes[customerId & latencyMask];
+        }
+
+        @Override
+        public void run() {
+            long interval = targetRate > 0 ? (long) (customers * 1e9 / targetRate) : 0;
+            // Stagger customers across one interval so the offered load is smooth
+            long scheduled = start + interval * (customerId - 1) / customers;
+            while (!done) {
+                long begin;
+                if (interval > 0) {
+                    long delay;
+                    while ((delay = scheduled - System.nanoTime()) > 0 && !done) {
+                        LockSupport.parkNanos(delay);
+                    }
+                    begin = scheduled;
+                    scheduled += interval;
+                } else {
+                    begin = System.nanoTime();
+                }
+
+                boolean bought;
+                try {
+                    while (!(bought = attemptPurchase()) && !done && !ticketPool.isSoldOut()) {
+                        if (measuring) {
+                            emptyAttempts++;
+                        }
+                        LockSupport.parkNanos(BACKOFF_NANOS);
+                    }
+                } catch (IllegalStateException e) {
+                    // The order was not stored; the test is aborted
+                    if (purchaseFailure == null) {
+                        purchaseFailure = e;
+                    }
+                    return;
+                }
+                if (!bought) {
+                    return;
+                }
+                if (measuring) {
+                    latency.record(System.nanoTime() - begin);
+                    purchases++;
+                }
+            }
+        }
+
+        /**
+         * Buys tickets without waiting; with a hold time, holds them first and then confirms
+         * or, for the abandoned share of customers, walks away and leaves the hold to expire.
+         *
+         * @return false if no tickets were on sale
+         */
+        private boolean attemptPurchase() {
+            if (holdMillis == 0) {
+                return ticketPool.tryPurchaseTickets(customerId);
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            TicketHold hold = ticketPool.reserveTickets(customerId, random.nextInt(1, retrievalRate + 1),
+                    holdMillis, TimeUnit.MILLISECONDS);
+            if (hold == null) {
+                return false;
+            }
+            if (random.nextInt(100) < abandonPercent) {
+                return true;
+            }
+            try {
+                return ticketPool.confirmHold(hold);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    static int intOption(Properties options, String name, int defaultValue, int minimum) {
+        String value = options.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed < minimum) {
+                throw new IllegalArgumentException("Option " + name + " must be at least " + minimum + ".");
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option " + name + " must be a whole number: " + value);
+        }
+    }
+
+    static void setDefaultProperty(String name, String value) {
+        if (System.getProperty(name) == null) {
+            System.setProperty(name, value);
+        }
+    }
+}
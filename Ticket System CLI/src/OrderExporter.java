@@ -0,0 +1,377 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports every sold order line item from the persistence backend selected by {@code ticket.persistence}
+ * to CSV or to a compact columnar binary file, optionally gzip-compressed.
+ * Rows are encoded straight into a fixed set of buffers as the backend streams them, so memory use does
+ * not grow with the number of orders. Uncompressed output lives in direct buffers handed to the file
+ * channel as they are, with binary columns written in a single gathering write per block.
+ *
+ * <p>The binary file starts with the int {@code 0x544B5458} ("TKTX"), a short version and an int block size,
+ * followed by blocks of up to that many rows and an int 0. Each block holds an int row count, an int count of
+ * event names first used in the block with each name as a short length and UTF-8 bytes, seven int column
+ * lengths and then the columns: order ID, timestamp in epoch milliseconds, event (the index of its name in
+ * order of first use), customer ID, vendor ID, ticket count and price in cents. Every value is a zigzag
+ * varint; order IDs and timestamps are stored as the difference from the previous row of the block.
+ */
+public class OrderExporter {
+    private static final Set<String> OPTIONS = Set.of("config", "format", "out", "compress");
+
+    /**
+     * Output file formats.
+     */
+    public enum Format {
+        CSV, BINARY
+    }
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int BLOCK_ROWS = 16384;
+    private static final int COLUMNS = 7;
+    private static final int MAX_VARINT_BYTES = 10;
+    private static final int BINARY_MAGIC = 0x544B5458;
+    private static final short BINARY_VERSION = 1;
+    private static final byte[] CSV_HEADER = ("order_id,order_timestamp,event_name,customer_id,vendor_id," +
+            "ticket_count,ticket_price\n").getBytes(StandardCharsets.US_ASCII);
+
+    private final Format format;
+    private final Path out;
+    private final boolean compress;
+
+    /**
+     * Constructs an exporter.
+     *
+     * @param format   the output format
+     * @param out      the file to write, replaced if it exists
+     * @param compress whether to gzip the output
+     */
+    public OrderExporter(Format format, Path out, boolean compress) {
+        this.format = format;
+        this.out = out;
+        this.compress = compress;
+    }
+
+    /**
+     * Creates an exporter from {@code --name=value} arguments: {@code format} ({@code csv} or {@code binary}),
+     * {@code out} and {@code compress}, or the same names in the properties file named by {@code --config}.
+     *
+     * @param args the arguments
+     * @return the exporter
+     * @throws IllegalArgumentException if an option is unknown or malformed
+     */
+    public static OrderExporter fromArguments(String[] args) {
+        Properties options = LoadGenerator.parseOptions(args, OPTIONS, "export");
+        Format format;
+        try {
+            format = Format.valueOf(options.getProperty("format", "csv").trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown export format: " + options.getProperty("format"));
+        }
+        boolean compress = Boolean.parseBoolean(options.getProperty("compress", "false").trim());
+        String defaultOut = "orders." + (format == Format.CSV ? "csv" : "bin") + (compress ? ".gz" : "");
+        return new OrderExporter(format, Path.of(options.getProperty("out", defaultOut).trim()), compress);
+    }
+
+    /**
+     * Opens the persistence backend, exports its orders and prints how many rows were written and how fast.
+     */
+    public void run() {
+        DatabaseInterface database = DatabaseInterface.create();
+        try {
+            long start = System.nanoTime();
+            long[] result = export(database);
+            long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            System.out.printf("Exported %d rows to %s (%s%s): %d bytes in %d ms, %.0f rows/s%n", result[0], out,
+                    format.name().toLowerCase(), compress ? ", gzip" : "", result[1], millis, result[0] * 1000.0 / millis);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Export to " + out + " failed", e);
+        } finally {
+            database.close();
+        }
+    }
+
+    /**
+     * Writes every order line item of a backend to the output file.
+     *
+     * @param database the backend to read
+     * @return the number of rows and the number of bytes written
+     * @throws IOException if the file cannot be written
+     */
+    public long[] export(DatabaseInterface database) throws IOException {
+        try (FileChannel channel = FileChannel.open(out, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer writer = format == Format.CSV ? new CsvWriter(channel, compress) : new ColumnWriter(channel, compress);
+            long rows;
+            try {
+                rows = database.exportOrderItems(writer);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.finish();
+            return new long[]{rows, channel.size()};
+        }
+    }
+
+    /**
+     * Encodes rows into buffers and drains them to the file, through gzip when compressing.
+     * Heap buffers are used with gzip, whose stream needs an array; direct buffers otherwise.
+     */
+    private abstract static class Writer implements DatabaseInterface.OrderItemVisitor {
+        private final FileChannel channel;
+        private final GZIPOutputStream gzip;
+        private final boolean direct;
+        protected final ByteBuffer buffer;
+
+        Writer(FileChannel channel, boolean compress) throws IOException {
+            this.channel = channel;
+            this.direct = !compress;
+            this.gzip = compress ? new GZIPOutputStream(Channels.newOutputStream(channel), 1 << 16) : null;
+            this.buffer = allocate(BUFFER_SIZE);
+        }
+
+        protected ByteBuffer allocate(int capacity) {
+            return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        }
+
+        // Makes room for the given number of bytes in the buffer, draining it if needed
+        protected void reserve(int bytes) {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+        }
+
+        /**
+         * Writes the buffer and any further filled buffers to the file, in that order, and clears them all.
+         */
+        protected void drain(ByteBuffer... more) {
+            ByteBuffer[] buffers = new ByteBuffer[more.length + 1];
+            buffers[0] = buffer;
+            System.arraycopy(more, 0, buffers, 1, more.length);
+            try {
+                for (ByteBuffer b : buffers) {
+                    b.flip();
+                }
+                if (gzip == null) {
+                    long remaining = 0;
+                    for (ByteBuffer b : buffers) {
+                        remaining += b.remaining();
+                    }
+                    while (remaining > 0) {
+                        remaining -= channel.write(buffers);
+                    }
+                } else {
+                    for (ByteBuffer b : buffers) {
+                        gzip.write(b.array(), b.arrayOffset() + b.position(), b.remaining());
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                for (ByteBuffer b : buffers) {
+                    b.clear();
+                }
+            }
+        }
+
+        /**
+         * Writes whatever is still buffered and completes the file.
+         */
+        void finish() throws IOException {
+            try {
+                end();
+                drain();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (gzip != null) {
+                gzip.finish();
+                gzip.flush();
+            }
+        }
+
+        // Writes whatever the format needs after the last row
+        protected abstract void end();
+    }
+
+    /**
+     * Writes one CSV line per line item, with timestamps in ISO-8601 UTC and prices with two decimals.
+     */
+    private static final class CsvWriter extends Writer {
+        private final Map<String, byte[]> names = new HashMap<>();
+        private long cachedSecond = Long.MIN_VALUE;
+        private final byte[] cachedSecondText = new byte[19]; // yyyy-MM-ddTHH:mm:ss
+
+        CsvWriter(FileChannel channel, boolean compress) throws IOException {
+            super(channel, compress);
+            buffer.put(CSV_HEADER);
+        }
+
+        @Override
+        public void visit(long orderId, long timestampMillis, String eventName, int customerId,
+                          int vendorId, int ticketCount, long priceCents) {
+            byte[] name = names.computeIfAbsent(eventName, CsvWriter::quote);
+            reserve(name.length + 128);
+            putDecimal(orderId);
+            buffer.put((byte) ',');
+            putTimestamp(timestampMillis);
+            buffer.put((byte) ',');
+            buffer.put(name);
+            buffer.put((byte) ',');
+            putDecimal(customerId);
+            buffer.put((byte) ',');
+            putDecimal(vendorId);
+            buffer.put((byte) ',');
+            putDecimal(ticketCount);
+            buffer.put((byte) ',');
+            putDecimal(priceCents / 100);
+            buffer.put((byte) '.');
+            buffer.put((byte) ('0' + priceCents % 100 / 10));
+            buffer.put((byte) ('0' + priceCents % 10));
+            buffer.put((byte) '\n');
+        }
+
+        @Override
+        protected void end() {
+        }
+
+        private void putTimestamp(long millis) {
+            long second = Math.floorDiv(millis, 1000);
+            if (second != cachedSecond) {
+                // Orders arrive in time order, so formatting once per second is enough
+                byte[] text = Instant.ofEpochSecond(second).toString().getBytes(StandardCharsets.US_ASCII);
+                System.arraycopy(text, 0, cachedSecondText, 0, cachedSecondText.length);
+                cachedSecond = second;
+            }
+            int fraction = (int) Math.floorMod(millis, 1000L);
+            buffer.put(cachedSecondText);
+            buffer.put((byte) '.');
+            buffer.put((byte) ('0' + fraction / 100));
+            buffer.put((byte) ('0' + fraction / 10 % 10));
+            buffer.put((byte) ('0' + fraction % 10));
+            buffer.put((byte) 'Z');
+        }
+
+        // Writes a whole number in decimal without building a string
+        private void putDecimal(long value) {
+            if (value < 0) {
+                buffer.put((byte) '-');
+                value = -value;
+            }
+            int digits = 1;
+            for (long rest = value / 10; rest > 0; rest /= 10) {
+                digits++;
+            }
+            int position = buffer.position();
+            for (int i = position + digits - 1; i >= position; i--) {
+                buffer.put(i, (byte) ('0' + value % 10));
+                value /= 10;
+            }
+            buffer.position(position + digits);
+        }
+
+        // Encodes an event name as a CSV field, quoted if it holds a separator, quote or line break
+        private static byte[] quote(String name) {
+            String field = name == null ? "" : name;
+            if (field.contains(",") || field.contains("\"") || field.contains("\n") || field.contains("\r")) {
+                field = "\"" + field.replace("\"", "\"\"") + "\"";
+            }
+            return field.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Collects a block of rows column by column and writes the block header and its columns with one gathering write.
+     */
+    private static final class ColumnWriter extends Writer {
+        private final ByteBuffer[] columns = new ByteBuffer[COLUMNS];
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<byte[]> newNames = new ArrayList<>();
+        private int rows = 0;
+        private long lastOrderId = 0;
+        private long lastTimestamp = 0;
+
+        ColumnWriter(FileChannel channel, boolean compress) throws IOException {
+            super(channel, compress);
+            for (int i = 0; i < COLUMNS; i++) {
+                columns[i] = allocate(BLOCK_ROWS * MAX_VARINT_BYTES);
+            }
+            buffer.putInt(BINARY_MAGIC).putShort(BINARY_VERSION).putInt(BLOCK_ROWS);
+        }
+
+        @Override
+        public void visit(long orderId, long timestampMillis, String eventName, int customerId,
+                          int vendorId, int ticketCount, long priceCents) {
+            String name = eventName == null ? "" : eventName;
+            Integer event = dictionary.get(name);
+            if (event == null) {
+                event = dictionary.size();
+                dictionary.put(name, event);
+                newNames.add(name.getBytes(StandardCharsets.UTF_8));
+            }
+            putVarLong(columns[0], orderId - lastOrderId);
+            putVarLong(columns[1], timestampMillis - lastTimestamp);
+            putVarLong(columns[2], event);
+            putVarLong(columns[3], customerId);
+            putVarLong(columns[4], vendorId);
+            putVarLong(columns[5], ticketCount);
+            putVarLong(columns[6], priceCents);
+            lastOrderId = orderId;
+            lastTimestamp = timestampMillis;
+            if (++rows == BLOCK_ROWS) {
+                writeBlock();
+            }
+        }
+
+        @Override
+        protected void end() {
+            if (rows > 0) {
+                writeBlock();
+            }
+            reserve(4);
+            buffer.putInt(0);
+        }
+
+        private void writeBlock() {
+            reserve(8);
+            buffer.putInt(rows).putInt(newNames.size());
+            for (byte[] name : newNames) {
+                reserve(2 + name.length);
+                buffer.putShort((short) name.length).put(name);
+            }
+            reserve(4 * COLUMNS);
+            for (ByteBuffer column : columns) {
+                buffer.putInt(column.position());
+            }
+            drain(columns);
+            newNames.clear();
+            rows = 0;
+            lastOrderId = 0;
+            lastTimestamp = 0;
+        }
+
+        // Writes a signed value as a zigzag varint: seven bits per byte, small magnitudes first
+        private static void putVarLong(ByteBuffer column, long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                column.put((byte) ((zigzag & 0x7F) | 0x80));
+                zigzag >>>= 7;
+            }
+            column.put((byte) zigzag);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Paces vendors and customers from a few timer threads instead of one sleeping thread per actor.
+ * Each actor has a token bucket kept as a virtual schedule: its next step is due one interval,
+ * {@code 1 / stepsPerSecond}, after the previous one was due rather than after it ran, so the
+ * offered rate is exact whatever the timer resolution. A timer that wakes late runs every step
+ * that fell due meanwhile, up to the bucket size, which is how rates far above the timer's wake-up
+ * frequency are reached. Rates are read before every step, so they may be fractional and may change
+ * while running. Steps run on the timer threads and must not block.
+ */
+public class RateScheduler {
+
+    /**
+     * The shape of the offered load. Each profile keeps the same average rate.
+     */
+    public enum Profile {
+        // Evenly spaced steps
+        STEADY,
+        // Each interval stretched or shrunk at random by up to the jitter fraction
+        JITTER,
+        // Steps in back-to-back groups of the burst size, with the groups evenly spaced
+        BURST
+    }
+
+    // Steps a timer owes an actor before it gives up catching up and drops the rest
+    private static final int DEFAULT_BUCKET_SIZE = 1000;
+
+    private final Timer[] timers;
+    private final Profile profile;
+    private final double jitter;
+    private final int burst;
+    private final int bucketSize;
+    private final long seed;
+    private final AtomicInteger nextTimer = new AtomicInteger();
+
+    // Scheduling statistics
+    private final LongAdder stepsRun = new LongAdder();
+    private final LongAdder stepsDropped = new LongAdder();
+
+    /**
+     * Constructs a scheduler and starts its timer threads.
+     *
+     * @param timerThreads the number of timer threads actors are spread over
+     * @param profile      the shape of the offered load
+     * @param jitter       the largest relative change to an interval in JITTER mode, from 0 to 1
+     * @param burst        the number of steps per group in BURST mode
+     * @param bucketSize   the most overdue steps an actor catches up on at once
+     * @param seed         the seed of the jitter random numbers
+     */
+    public RateScheduler(int timerThreads, Profile profile, double jitter, int burst, int bucketSize, long seed) {
+        if (timerThreads < 1 || jitter < 0 || jitter > 1 || burst < 1 || bucketSize < burst) {
+            throw new IllegalArgumentException("Invalid rate scheduler: " + timerThreads + " timer(s), jitter " +
+                    jitter + ", burst " + burst + ", bucket " + bucketSize);
+        }
+        this.profile = profile;
+        this.jitter = jitter;
+        this.burst = burst;
+        this.bucketSize = bucketSize;
+        this.seed = seed;
+        this.timers = new Timer[timerThreads];
+        for (int i = 0; i < timerThreads; i++) {
+            timers[i] = new Timer("rate-timer-" + (i + 1));
+            timers[i].thread.start();
+        }
+    }
+
+    /**
+     * Creates a scheduler from the {@code ticket.rate.*} system properties: {@code threads} (default 1),
+     * {@code profile} (STEADY, JITTER or BURST; default STEADY), {@code jitter} (default 0.5),
+     * {@code burst} (default 10), {@code bucket} (default 1000) and {@code seed}.
+     *
+     * @return the scheduler
+     */
+    public static RateScheduler fromSystemProperties() {
+        return new RateScheduler(Integer.getInteger("ticket.rate.threads", 1),
+                Profile.valueOf(System.getProperty("ticket.rate.profile", Profile.STEADY.name()).trim().toUpperCase()),
+                Double.parseDouble(System.getProperty("ticket.rate.jitter", "0.5")),
+                Integer.getInteger("ticket.rate.burst", 10),
+                Integer.getInteger("ticket.rate.bucket", DEFAULT_BUCKET_SIZE),
+                Long.getLong("ticket.rate.seed", System.nanoTime()));
+    }
+
+    /**
+     * Starts pacing an actor; its first step is due at once. The actor is dropped when a step returns false.
+     *
+     * @param actor the actor to step
+     */
+    public void schedule(Actor actor) {
+        int count = nextTimer.getAndIncrement();
+        timers[Math.floorMod(count, timers.length)].add(new Pacer(actor,
+                new StepPacing(profile, jitter, burst, new SplittableRandom(seed + count * 0x9E3779B97F4A7C15L))));
+    }
+
+    /**
+     * Stops the timer threads. Steps already running finish; no more are started.
+     */
+    public void stop() {
+        for (Timer timer : timers) {
+            timer.stopped = true;
+            LockSupport.unpark(timer.thread);
+        }
+    }
+
+    /**
+     * Lists the timer threads, so a caller can wait for them to finish after {@link #stop()}.
+     *
+     * @return the timer threads
+     */
+    public List<Thread> getThreads() {
+        List<Thread> threads = new ArrayList<>(timers.length);
+        for (Timer timer : timers) {
+            threads.add(timer.thread);
+        }
+        return threads;
+    }
+
+    /**
+     * Summarises what the scheduler has done.
+     *
+     * @return a one-line report
+     */
+    public String describe() {
+        return String.format("Rate scheduler: %d step(s) run, %d dropped while catching up (%s, %d timer thread(s))",
+                stepsRun.sum(), stepsDropped.sum(), profile, timers.length);
+    }
+
+    // Getters for the scheduling statistics
+    public long getStepsRun() {
+        return stepsRun.sum();
+    }
+
+    public long getStepsDropped() {
+        return stepsDropped.sum();
+    }
+
+    /**
+     * One actor's place in the schedule.
+     */
+    private final class Pacer implements Comparable<Pacer> {
+        private final Actor actor;
+        private final StepPacing pacing;
+        private long dueNanos = System.nanoTime();
+
+        Pacer(Actor actor, StepPacing pacing) {
+            this.actor = actor;
+            this.pacing = pacing;
+        }
+
+        /**
+         * Runs every step that is due, then moves the schedule on.
+         *
+         * @return false if the actor has finished
+         */
+        boolean runDue(long now, Timer timer) {
+            long owed = 0;
+            while (dueNanos <= now && !timer.stopped) {
+                if (++owed > bucketSize) {
+                    // Too far behind: drop the backlog instead of flooding the pool with it
+                    long interval = nextInterval();
+                    long skipped = interval > 0 ? (now - dueNanos) / interval + 1 : 0;
+                    stepsDropped.add(skipped);
+                    dueNanos = now + interval;
+                    return true;
+                }
+                stepsRun.increment();
+                if (!actor.step()) {
+                    return false;
+                }
+                dueNanos += nextInterval();
+            }
+            return true;
+        }
+
+        // The gap before the next step at the actor's current rate
+        private long nextInterval() {
+            return pacing.nextInterval(actor.stepsPerSecond());
+        }
+
+        @Override
+        public int compareTo(Pacer other) {
+            return Long.compare(dueNanos, other.dueNanos);
+        }
+    }
+
+    /**
+     * A timer thread and the actors it paces, ordered by when their next step is due.
+     */
+    private final class Timer implements Runnable {
+        private final Thread thread;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final PriorityQueue<Pacer> pacers = new PriorityQueue<>();
+        private volatile boolean stopped = false;
+
+        Timer(String name) {
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        void add(Pacer pacer) {
+            lock.lock();
+            try {
+                pacers.add(pacer);
+            } finally {
+                lock.unlock();
+            }
+            LockSupport.unpark(thread); // It may be sleeping until a later step
+        }
+
+        @Override
+        public void run() {
+            while (!stopped) {
+                Pacer next;
+                long now = System.nanoTime();
+                lock.lock();
+                try {
+                    next = pacers.peek();
+                    if (next != null && next.dueNanos <= now) {
+                        pacers.poll();
+                    } else {
+                        next = null;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if (next == null) {
+                    parkUntilNextDue(now);
+                    continue;
+                }
+                boolean more;
+                try {
+                    more = next.runDue(now, this);
+                } catch (RuntimeException e) {
+                    TicketSystemLogger.severe("Scheduled step failed: " + e.getMessage());
+                    more = true;
+                    next.dueNanos = now + next.nextInterval();
+                }
+                if (more) {
+                    lock.lock();
+                    try {
+                        pacers.add(next);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+        }
+
+        private void parkUntilNextDue(long now) {
+            lock.lock();
+            long wait;
+            try {
+                Pacer first = pacers.peek();
+                wait = first == null ? Long.MAX_VALUE : first.dueNanos - now;
+            } finally {
+                lock.unlock();
+            }
+            if (wait > 0) {
+                LockSupport.parkNanos(this, Math.min(wait, 1_000_000_000L));
+            }
+        }
+    }
+}
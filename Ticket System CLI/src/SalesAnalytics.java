@@ -0,0 +1,323 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Live sales figures per event and per vendor, fed by the pool as tickets are released and sold,
+ * so "revenue per event right now" never touches the database. Running totals are striped
+ * {@link LongAdder}s. Rolling windows of the last second, minute and five minutes come from a ring of
+ * per-second samples of those totals: a window is the latest sample minus the one taken that many
+ * seconds earlier, so recording stays one add per counter and a query reads a few longs per window.
+ * Samples are taken by whichever caller first notices a second has passed; no thread is needed.
+ */
+public class SalesAnalytics {
+    // Rolling windows reported, in seconds
+    public static final int[] WINDOW_SECONDS = {1, 60, 300};
+
+    // Seconds of samples kept: one more than the longest window
+    private static final int HISTORY = 301;
+
+    private final Map<String, Totals> events = new ConcurrentHashMap<>();
+    private final Map<Integer, Totals> vendors = new ConcurrentHashMap<>();
+    private final Totals overall = new Totals("All events");
+
+    // The start of the current run, and the last second whose samples have been taken
+    private final long originNanos = System.nanoTime();
+    private volatile long startSecond = 0;
+    private volatile long sampledSecond = -1;
+    private final ReentrantLock sampleLock = new ReentrantLock();
+
+    /**
+     * Running totals of one event, vendor or the whole pool, and its per-second samples.
+     */
+    private static final class Totals {
+        private final String name;
+        private final LongAdder released = new LongAdder();
+        private final LongAdder sold = new LongAdder();
+        private final LongAdder revenueCents = new LongAdder();
+        // Sold and revenue at the end of each second, indexed by second modulo the history
+        private final long[] soldAt = new long[HISTORY];
+        private final long[] centsAt = new long[HISTORY];
+
+        Totals(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * An event's, vendor's or the pool's figures at the time they were read.
+     */
+    public static final class Figures {
+        private final String name;
+        private final long released;
+        private final long sold;
+        private final long revenueCents;
+        private final long[] windowSold;
+        private final long[] windowCents;
+        private final long[] windowSeconds;
+
+        private Figures(String name, long released, long sold, long revenueCents,
+                        long[] windowSold, long[] windowCents, long[] windowSeconds) {
+            this.name = name;
+            this.released = released;
+            this.sold = sold;
+            this.revenueCents = revenueCents;
+            this.windowSold = windowSold;
+            this.windowCents = windowCents;
+            this.windowSeconds = windowSeconds;
+        }
+
+        // Share of the released tickets that have been sold, from 0 to 1
+        public double getSellThrough() {
+            return released > 0 ? Math.min(1.0, sold / (double) released) : 0.0;
+        }
+
+        // Tickets sold per second over a window, by its index in WINDOW_SECONDS
+        public double getSalesPerSecond(int window) {
+            return windowSeconds[window] > 0 ? windowSold[window] / (double) windowSeconds[window] : 0.0;
+        }
+
+        // Getters for the totals and the windows, by index in WINDOW_SECONDS
+        public String getName() {
+            return name;
+        }
+
+        public long getReleased() {
+            return released;
+        }
+
+        public long getSold() {
+            return sold;
+        }
+
+        public long getRevenueCents() {
+            return revenueCents;
+        }
+
+        public long getWindowSold(int window) {
+            return windowSold[window];
+        }
+
+        public long getWindowRevenueCents(int window) {
+            return windowCents[window];
+        }
+    }
+
+    /**
+     * Counts tickets a vendor put on sale for an event.
+     *
+     * @param eventName the name of the event
+     * @param vendorId  the ID of the vendor
+     * @param count     the number of tickets released
+     */
+    public void recordRelease(String eventName, int vendorId, int count) {
+        sampleIfDue();
+        overall.released.add(count);
+        eventTotals(eventName).released.add(count);
+        vendorTotals(vendorId).released.add(count);
+    }
+
+    /**
+     * Counts tickets of one vendor sold for an event.
+     *
+     * @param eventName the name of the event
+     * @param vendorId  the ID of the vendor that released the tickets
+     * @param count     the number of tickets sold
+     * @param cents     the total price of the tickets in cents
+     */
+    public void recordSale(String eventName, int vendorId, int count, long cents) {
+        sampleIfDue();
+        overall.sold.add(count);
+        overall.revenueCents.add(cents);
+        Totals event = eventTotals(eventName);
+        event.sold.add(count);
+        event.revenueCents.add(cents);
+        Totals vendor = vendorTotals(vendorId);
+        vendor.sold.add(count);
+        vendor.revenueCents.add(cents);
+    }
+
+    /**
+     * Reads the figures of the whole pool.
+     *
+     * @return the figures
+     */
+    public Figures overall() {
+        sampleIfDue();
+        return figures(overall);
+    }
+
+    /**
+     * Reads the figures of one event.
+     *
+     * @param eventName the name of the event
+     * @return the figures, all zero if nothing was released or sold for the event
+     */
+    public Figures event(String eventName) {
+        sampleIfDue();
+        Totals totals = events.get(eventName);
+        return figures(totals != null ? totals : new Totals(eventName));
+    }
+
+    /**
+     * Reads the figures of every event, in no particular order.
+     *
+     * @return the figures
+     */
+    public List<Figures> events() {
+        sampleIfDue();
+        List<Figures> figures = new ArrayList<>();
+        for (Totals totals : events.values()) {
+            figures.add(figures(totals));
+        }
+        return figures;
+    }
+
+    /**
+     * Reads the figures of every vendor, in vendor ID order.
+     *
+     * @return the figures
+     */
+    public List<Figures> vendors() {
+        sampleIfDue();
+        List<Figures> figures = new ArrayList<>();
+        for (Totals totals : new TreeMap<>(vendors).values()) {
+            figures.add(figures(totals));
+        }
+        return figures;
+    }
+
+    /**
+     * Forgets every figure and starts the windows again.
+     */
+    public void reset() {
+        sampleLock.lock();
+        try {
+            events.clear();
+            vendors.clear();
+            overall.released.reset();
+            overall.sold.reset();
+            overall.revenueCents.reset();
+            Arrays.fill(overall.soldAt, 0);
+            Arrays.fill(overall.centsAt, 0);
+            startSecond = currentSecond();
+            sampledSecond = startSecond - 1;
+        } finally {
+            sampleLock.unlock();
+        }
+    }
+
+    /**
+     * Formats the figures of the pool, every event and every vendor.
+     *
+     * @return a multi-line report
+     */
+    public String describe() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-20s %9s %9s %8s %12s %9s %9s %9s%n", "", "Released", "Sold", "Through",
+                "Revenue", "Sold/1s", "Sold/1m", "Sold/5m"));
+        append(report, overall());
+        List<Figures> events = events();
+        events.sort(Comparator.comparing(Figures::getName));
+        if (!events.isEmpty()) {
+            report.append("Events:\n");
+            events.forEach(figures -> append(report, figures));
+        }
+        List<Figures> vendors = vendors();
+        if (!vendors.isEmpty()) {
+            report.append("Vendors:\n");
+            vendors.forEach(figures -> append(report, figures));
+        }
+        report.append("(Sold/1s, /1m and /5m: tickets per second over the last whole second, minute and five minutes)\n");
+        return report.toString();
+    }
+
+    private static void append(StringBuilder report, Figures figures) {
+        report.append(String.format("%-20s %9d %9d %7.1f%% %12s %9.1f %9.1f %9.1f%n", figures.getName(),
+                figures.getReleased(), figures.getSold(), figures.getSellThrough() * 100,
+                String.format("$%.2f", figures.getRevenueCents() / 100.0),
+                figures.getSalesPerSecond(0), figures.getSalesPerSecond(1), figures.getSalesPerSecond(2)));
+    }
+
+    /**
+     * Reads a totals entry and works out each window from its samples.
+     */
+    private Figures figures(Totals totals) {
+        long last = sampledSecond;
+        long start = startSecond;
+        long sold = totals.sold.sum();
+        long cents = totals.revenueCents.sum();
+        long[] windowSold = new long[WINDOW_SECONDS.length];
+        long[] windowCents = new long[WINDOW_SECONDS.length];
+        long[] windowSeconds = new long[WINDOW_SECONDS.length];
+        if (last >= start) {
+            int newest = slot(last);
+            for (int i = 0; i < WINDOW_SECONDS.length; i++) {
+                // Before the run started everything was zero, so a window reaching further back is cut short
+                long from = Math.max(last - WINDOW_SECONDS[i], start - 1);
+                windowSeconds[i] = last - from;
+                boolean beforeStart = from < start;
+                windowSold[i] = totals.soldAt[newest] - (beforeStart ? 0 : totals.soldAt[slot(from)]);
+                windowCents[i] = totals.centsAt[newest] - (beforeStart ? 0 : totals.centsAt[slot(from)]);
+            }
+        }
+        return new Figures(totals.name, totals.released.sum(), sold, cents, windowSold, windowCents, windowSeconds);
+    }
+
+    /**
+     * Takes the samples of every second that has ended since the last ones were taken.
+     * One caller does the work; anyone arriving meanwhile carries on without waiting.
+     */
+    private void sampleIfDue() {
+        long due = currentSecond() - 1;
+        if (sampledSecond >= due || !sampleLock.tryLock()) {
+            return;
+        }
+        try {
+            long from = Math.max(sampledSecond + 1, due - HISTORY + 1);
+            for (long second = from; second <= due; second++) {
+                sample(overall, second);
+                for (Totals totals : events.values()) {
+                    sample(totals, second);
+                }
+                for (Totals totals : vendors.values()) {
+                    sample(totals, second);
+                }
+            }
+            sampledSecond = due; // Published after the samples it covers
+        } finally {
+            sampleLock.unlock();
+        }
+    }
+
+    private static void sample(Totals totals, long second) {
+        int slot = slot(second);
+        totals.soldAt[slot] = totals.sold.sum();
+        totals.centsAt[slot] = totals.revenueCents.sum();
+    }
+
+    private static int slot(long second) {
+        return (int) Math.floorMod(second, (long) HISTORY);
+    }
+
+    private long currentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - originNanos);
+    }
+
+    private Totals eventTotals(String eventName) {
+        Totals totals = events.get(eventName);
+        return totals != null ? totals : events.computeIfAbsent(eventName, Totals::new);
+    }
+
+    private Totals vendorTotals(int vendorId) {
+        Totals totals = vendors.get(vendorId);
+        return totals != null ? totals : vendors.computeIfAbsent(vendorId, id -> new Totals("Vendor " + id));
+    }
+}
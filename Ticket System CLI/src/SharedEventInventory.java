@@ -0,0 +1,91 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An event's partition kept in a {@link SharedInventoryFile}, selling the same tickets as every
+ * other process attached to the file. Tickets are claimed slot by slot with a CAS in the file
+ * instead of through an in-process availability count. Vendors in other processes cannot signal
+ * customers waiting here, so waiting customers also look again every few milliseconds.
+ */
+public class SharedEventInventory extends EventInventory {
+    // How long a waiting customer sleeps before looking for tickets released by another process
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final SharedInventoryFile.Partition partition;
+
+    /**
+     * Constructs the partition of an event in a shared inventory.
+     *
+     * @param eventIndex the position of the event in the pool's partition table
+     * @param eventName  the name of the event
+     * @param partition  the event's ring in the shared file
+     * @param metrics    where the time taken to take tickets is recorded
+     */
+    public SharedEventInventory(int eventIndex, String eventName, SharedInventoryFile.Partition partition, TicketMetrics metrics) {
+        super(eventIndex, eventName, metrics);
+        this.partition = partition;
+    }
+
+    @Override
+    public int add(int vendorId, int ticketsToAdd, double price) {
+        long cents = Math.round(price * 100);
+        int added = 0;
+        while (added < ticketsToAdd && partition.offer(vendorId, cents)) {
+            added++;
+        }
+        if (added > 0) {
+            released(added);
+        }
+        return added;
+    }
+
+    @Override
+    public int restore(TicketRing returned) {
+        int restored = 0;
+        while (restored < returned.size()
+                && partition.offer(returned.vendorIdAt(restored), returned.priceCentsAt(restored))) {
+            restored++;
+        }
+        if (restored > 0) {
+            signalWaiters();
+        }
+        return restored;
+    }
+
+    @Override
+    public int take(int maxTickets, TicketRing purchased) {
+        if (partition.size() == 0) {
+            return 0;
+        }
+        long start = getMetrics().start();
+        int taken = partition.take(getEventIndex(), maxTickets, purchased);
+        if (taken > 0) {
+            getMetrics().record(TicketMetrics.Stage.TAKE, start);
+        }
+        return taken;
+    }
+
+    @Override
+    public boolean awaitAvailable(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        while (partition.size() == 0 && remaining > 0) {
+            long slice = Math.min(remaining, POLL_NANOS);
+            long start = System.nanoTime();
+            super.awaitAvailable(slice, TimeUnit.NANOSECONDS); // Returns early when a vendor here adds tickets
+            remaining -= System.nanoTime() - start;
+        }
+        return partition.size() > 0;
+    }
+
+    /**
+     * Leaves the tickets on sale: they belong to every process attached to the file.
+     * Delete the file while no process uses it to start an on-sale afresh.
+     */
+    @Override
+    public void clear() {
+    }
+
+    @Override
+    public int size() {
+        return partition.size();
+    }
+}
@@ -0,0 +1,631 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ticket inventory kept in a memory-mapped file, so that several TicketSystem processes on one host
+ * sell from the same tickets without a broker. Selected with {@code ticket.inventory=shared}; the file
+ * is named by {@code ticket.inventory.file} (default {@code ticket_inventory.shm}).
+ *
+ * <p>Each event has a bounded ring of ticket slots plus enqueue and dequeue positions, all updated with
+ * {@link VarHandle} CAS operations on the mapped buffer. A slot's state word holds the ring position it
+ * is valid for, its state (free, being written, on sale, being taken) and, while it is being written or
+ * taken, the tag of the process holding it. A ticket is claimed by a CAS on its own slot, so two processes
+ * can never take the same ticket, and the positions are advanced by whoever sees them lag, so a process
+ * that stops mid-operation never blocks the others. The total ticket limit and the number sold are shared
+ * counters in the file header.
+ *
+ * <p>Processes register in a table in the header and heartbeat every {@code ticket.inventory.heartbeatMillis}
+ * (default 1000). A process whose PID is gone, or whose heartbeat is older than {@code ticket.inventory.leaseMillis}
+ * (default 5000), is fenced by bumping its epoch; every slot still tagged with an out-of-date epoch is then
+ * recovered by a live process. A ticket half written is discarded and its share of the limit handed back; a
+ * ticket half taken is put back on sale. A buyer frees its slots before it records the sale, so a process
+ * dying in between loses those tickets rather than selling them twice, and a fenced process that wakes up
+ * finds its CAS on the slot fails and drops the ticket. Lost tickets never reach the sold counter, so the
+ * sold-out point is also reached once the whole limit has been released and every ring has stayed empty,
+ * with nothing released, taken or recovered, for a full lease (see {@link #isExhausted}). The lease must
+ * therefore exceed the longest pause a live process can have.
+ */
+public class SharedInventoryFile implements AutoCloseable {
+    private static final long MAGIC = 0x5449434b45545348L; // "TICKETSH"
+    private static final long VERSION = 1;
+    private static final int MAX_PROCESSES = 64;
+    private static final int MAX_NAME_BYTES = 56;
+
+    // Header layout, in bytes
+    private static final int STATE = 0;
+    private static final int MAGIC_OFFSET = 8;
+    private static final int VERSION_OFFSET = 16;
+    private static final int EVENT_COUNT = 24;
+    private static final int CAPACITY = 32;
+    private static final int TICKETS_ADDED = 40;
+    private static final int TICKETS_SOLD = 48;
+    private static final int PROCESS_TABLE = 64;
+    private static final int PROCESS_ENTRY = 32; // epoch and live bit, PID, heartbeat, spare
+    private static final int EVENT_TABLE = PROCESS_TABLE + MAX_PROCESSES * PROCESS_ENTRY;
+    private static final int EVENT_ENTRY = 64; // name length and UTF-8 name
+
+    // Partition layout: positions and counters, then the slots
+    private static final int ENQUEUE = 0;
+    private static final int DEQUEUE = 8;
+    private static final int RELEASED = 16;
+    private static final int SOLD = 24;
+    private static final int PARTITION_HEADER = 64;
+    private static final int SLOT = 24; // state word, vendor ID, price in cents
+
+    // File states
+    private static final long UNINITIALISED = 0;
+    private static final long INITIALISING = 1;
+    private static final long READY = 2;
+
+    // Slot states, in the low two bits of the state word
+    private static final long FREE = 0;
+    private static final long WRITING = 1;
+    private static final long ON_SALE = 2;
+    private static final long TAKING = 3;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int eventCount;
+    private final int capacity;
+    private final int slots;
+    private final long mask;
+    private final Map<String, Partition> partitions = new HashMap<>();
+
+    // This process's entry in the process table and the tag it writes into slots it holds
+    private final int processIndex;
+    private final long epoch;
+    private final long ownerTag;
+    private volatile boolean fenced = false;
+
+    private final long leaseMillis;
+    private final Thread maintenance;
+    private volatile boolean closed = false;
+
+    // Recovery statistics for this process
+    private final LongAdder processesFenced = new LongAdder();
+    private final LongAdder ticketsDiscarded = new LongAdder();
+    private final LongAdder ticketsReturned = new LongAdder();
+
+    // When the maintenance thread first saw every ring empty with these counters unchanged, or -1
+    private volatile long quietSince = -1;
+    private long quietAdded;
+    private long quietSold;
+    private long quietEnqueued;
+
+    /**
+     * Opens the shared inventory, creating the file if this is the first process, and registers this process.
+     *
+     * @param path          the file
+     * @param eventNames    the events, in the order their partitions are laid out
+     * @param capacity   the most tickets each event holds at once, across every process
+     * @throws IllegalStateException if the file was created for other events or could not be mapped
+     */
+    public SharedInventoryFile(Path path, List<String> eventNames, int capacity) {
+        this.path = path;
+        this.eventCount = eventNames.size();
+        this.capacity = Math.max(1, capacity);
+        this.slots = Integer.highestOneBit(Math.max(2, this.capacity - 1)) << 1;
+        this.mask = slots - 1;
+        long partitionBytes = PARTITION_HEADER + (long) slots * SLOT;
+        long size = EVENT_TABLE + (long) eventCount * EVENT_ENTRY + eventCount * partitionBytes;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Shared inventory of " + eventCount + " event(s) x " + slots + " slots is too large to map");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to map shared inventory " + path + ": " + e.getMessage(), e);
+        }
+        initialiseOrVerify(eventNames, size);
+        long base = EVENT_TABLE + (long) eventCount * EVENT_ENTRY;
+        for (int i = 0; i < eventCount; i++) {
+            partitions.put(eventNames.get(i), new Partition((int) (base + i * partitionBytes)));
+        }
+
+        leaseMillis = Long.getLong("ticket.inventory.leaseMillis", 5000);
+        processIndex = register();
+        epoch = processWord(processIndex) >>> 1;
+        ownerTag = tagOf(processIndex, epoch);
+        maintenance = new Thread(this::maintain, "ticket-shared-inventory");
+        maintenance.setDaemon(true);
+        maintenance.start();
+    }
+
+    /**
+     * Checks the {@code ticket.inventory} system property.
+     *
+     * @return true if the shared inventory is selected
+     */
+    public static boolean isEnabled() {
+        return System.getProperty("ticket.inventory", "local").trim().equalsIgnoreCase("shared");
+    }
+
+    /**
+     * Opens the file named by {@code ticket.inventory.file}.
+     *
+     * @param eventNames    the events, in the order their partitions are laid out
+     * @param capacity   the most tickets each event holds at once
+     * @return the shared inventory
+     */
+    public static SharedInventoryFile fromSystemProperties(List<String> eventNames, int capacity) {
+        return new SharedInventoryFile(Paths.get(System.getProperty("ticket.inventory.file", "ticket_inventory.shm")),
+                eventNames, capacity);
+    }
+
+    /**
+     * Lays the file out if this is the first process to open it, otherwise waits for it to be
+     * laid out and checks it was made for the same events.
+     */
+    private void initialiseOrVerify(List<String> eventNames, long size) {
+        if (casLong(STATE, UNINITIALISED, INITIALISING)) {
+            putLong(MAGIC_OFFSET, MAGIC);
+            putLong(VERSION_OFFSET, VERSION);
+            putLong(EVENT_COUNT, eventCount);
+            putLong(CAPACITY, capacity);
+            for (int i = 0; i < eventCount; i++) {
+                byte[] name = eventNames.get(i).getBytes(StandardCharsets.UTF_8);
+                if (name.length > MAX_NAME_BYTES) {
+                    throw new IllegalStateException("Event name too long for the shared inventory: " + eventNames.get(i));
+                }
+                int entry = EVENT_TABLE + i * EVENT_ENTRY;
+                putLong(entry, name.length);
+                buffer.put(entry + 8, name);
+            }
+            long partitionBytes = PARTITION_HEADER + (long) slots * SLOT;
+            long base = EVENT_TABLE + (long) eventCount * EVENT_ENTRY;
+            for (int i = 0; i < eventCount; i++) {
+                int partition = (int) (base + i * partitionBytes);
+                for (long position = 0; position < slots; position++) {
+                    putLong(partition + PARTITION_HEADER + (int) position * SLOT, word(position, 0, FREE));
+                }
+            }
+            LONGS.setRelease(buffer, STATE, READY);
+            TicketSystemLogger.info("Created shared inventory " + path + " for " + eventCount + " event(s), " + slots + " slots each");
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ((long) LONGS.getAcquire(buffer, STATE) != READY) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Shared inventory " + path + " was never finished by the process creating it; delete it and restart");
+            }
+            Thread.onSpinWait();
+        }
+        boolean matches = getLong(MAGIC_OFFSET) == MAGIC && getLong(VERSION_OFFSET) == VERSION
+                && getLong(EVENT_COUNT) == eventCount && getLong(CAPACITY) == capacity;
+        for (int i = 0; matches && i < eventCount; i++) {
+            int entry = EVENT_TABLE + i * EVENT_ENTRY;
+            byte[] name = new byte[(int) Math.min(MAX_NAME_BYTES, getLong(entry))];
+            buffer.get(entry + 8, name);
+            matches = new String(name, StandardCharsets.UTF_8).equals(eventNames.get(i));
+        }
+        if (!matches) {
+            throw new IllegalStateException("Shared inventory " + path + " was created for other events or capacity; " +
+                    "configure the same events and max ticket capacity in every process, or delete the file while no process uses it");
+        }
+        TicketSystemLogger.info("Attached to shared inventory " + path);
+    }
+
+    // Process table ------------------------------------------------------------------------------
+
+    /**
+     * Takes a free entry in the process table, bumping its epoch.
+     */
+    private int register() {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            for (int i = 0; i < MAX_PROCESSES; i++) {
+                long current = processWord(i);
+                if ((current & 1) == 0 && casLong(processEntry(i), current, ((current >>> 1) + 1) << 1 | 1)) {
+                    putLongRelease(processEntry(i) + 8, ProcessHandle.current().pid());
+                    putLongRelease(processEntry(i) + 16, System.currentTimeMillis());
+                    return i;
+                }
+            }
+            fenceDeadProcesses(); // Entries of crashed processes free up once they are fenced
+        }
+        throw new IllegalStateException("Shared inventory " + path + " already has " + MAX_PROCESSES + " live processes");
+    }
+
+    /**
+     * Heartbeats, then fences dead processes and recovers what they held, until closed.
+     */
+    private void maintain() {
+        long interval = Long.getLong("ticket.inventory.heartbeatMillis", 1000);
+        while (!closed) {
+            if (processWord(processIndex) != (epoch << 1 | 1)) {
+                if (!fenced) {
+                    fenced = true;
+                    TicketSystemLogger.severe("This process was fenced out of shared inventory " + path +
+                            " after missing its lease; it no longer sells from it. Restart it to rejoin.");
+                }
+            } else {
+                putLongRelease(processEntry(processIndex) + 16, System.currentTimeMillis());
+                fenceDeadProcesses();
+                recoverOrphanedSlots();
+                watchForQuiet();
+            }
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Fences every registered process that has exited or let its lease expire.
+     */
+    private void fenceDeadProcesses() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < MAX_PROCESSES; i++) {
+            long current = processWord(i);
+            if ((current & 1) == 0 || i == processIndex) {
+                continue;
+            }
+            long pid = getLongAcquire(processEntry(i) + 8);
+            long heartbeat = getLongAcquire(processEntry(i) + 16);
+            boolean exited = ProcessHandle.of(pid).map(process -> !process.isAlive()).orElse(true);
+            if ((exited || now - heartbeat > leaseMillis) && casLong(processEntry(i), current, ((current >>> 1) + 1) << 1)) {
+                processesFenced.increment();
+                TicketSystemLogger.warning("Fenced process " + pid + " out of shared inventory " + path +
+                        (exited ? " (exited)" : " (lease expired)"));
+            }
+        }
+    }
+
+    /**
+     * Recovers slots still held by a process that is no longer live under the epoch it tagged them with.
+     */
+    private void recoverOrphanedSlots() {
+        for (Partition partition : partitions.values()) {
+            for (int slot = 0; slot < slots; slot++) {
+                long current = partition.slotWord(slot);
+                long state = current & 3;
+                if ((state == WRITING || state == TAKING) && !isLiveTag((current >>> 2) & 0x3FFF)) {
+                    partition.recover(slot, current);
+                }
+            }
+        }
+    }
+
+    /**
+     * Notes since when every ring has been empty with no ticket released, taken or recovered,
+     * so tickets lost by a dead process can be told from tickets still on their way.
+     */
+    private void watchForQuiet() {
+        boolean empty = true;
+        long enqueued = 0;
+        for (Partition partition : partitions.values()) {
+            empty &= partition.size() == 0;
+            enqueued += getLongAcquire(partition.base + ENQUEUE);
+        }
+        long added = getTicketsAdded();
+        long sold = getTicketsSold();
+        if (!empty) {
+            quietSince = -1;
+        } else if (quietSince < 0 || added != quietAdded || sold != quietSold || enqueued != quietEnqueued) {
+            quietSince = System.currentTimeMillis();
+        }
+        quietAdded = added;
+        quietSold = sold;
+        quietEnqueued = enqueued;
+    }
+
+    private boolean isLiveTag(long tag) {
+        int index = (int) (tag >>> 8);
+        long current = processWord(index);
+        return (current & 1) == 1 && ((current >>> 1) & 0xFF) == (tag & 0xFF);
+    }
+
+    private static long tagOf(int processIndex, long epoch) {
+        return (long) processIndex << 8 | (epoch & 0xFF);
+    }
+
+    private static int processEntry(int index) {
+        return PROCESS_TABLE + index * PROCESS_ENTRY;
+    }
+
+    private long processWord(int index) {
+        return getLongAcquire(processEntry(index));
+    }
+
+    // Slot state words: ring position, owner tag and state
+    private static long word(long position, long tag, long state) {
+        return position << 16 | tag << 2 | state;
+    }
+
+    private static long positionOf(long word) {
+        return word >>> 16;
+    }
+
+    // Shared counters ----------------------------------------------------------------------------
+
+    /**
+     * Claims up to {@code wanted} tickets of the limit shared by every process.
+     *
+     * @param wanted the number of tickets a vendor wants to release
+     * @param limit  the total ticket limit
+     * @return the number claimed, 0 once the limit is reached
+     */
+    public int claimQuota(int wanted, int limit) {
+        while (true) {
+            long added = getLongAcquire(TICKETS_ADDED);
+            int granted = (int) Math.min(wanted, limit - added);
+            if (granted <= 0) {
+                return 0;
+            }
+            if (casLong(TICKETS_ADDED, added, added + granted)) {
+                return granted;
+            }
+        }
+    }
+
+    /**
+     * Hands back part of the limit claimed for tickets that were never put on sale.
+     *
+     * @param tickets the number of tickets
+     */
+    public void returnQuota(int tickets) {
+        LONGS.getAndAdd(buffer, TICKETS_ADDED, (long) -tickets);
+    }
+
+    /**
+     * Counts tickets sold by this process towards the shared total.
+     *
+     * @param tickets the number of tickets sold
+     * @return the number sold by every process so far
+     */
+    public long recordSold(int tickets) {
+        return (long) LONGS.getAndAdd(buffer, TICKETS_SOLD, (long) tickets) + tickets;
+    }
+
+    /**
+     * Checks whether no process has anything left to sell: the whole limit has been released and every
+     * ring has stayed empty, with nothing released, taken or recovered, for a full lease. Tickets lost by
+     * a process that died between taking them and recording the sale keep the sold counter short of the
+     * limit for good, so this is how the processes still running see they are sold out.
+     *
+     * @param limit the total ticket limit
+     * @return true once nothing more can be sold
+     */
+    public boolean isExhausted(int limit) {
+        long since = quietSince;
+        return getTicketsAdded() >= limit && since >= 0 && System.currentTimeMillis() - since >= leaseMillis;
+    }
+
+    // Getters for the shared counters, the file and recovery statistics
+    public long getTicketsAdded() {
+        return getLongAcquire(TICKETS_ADDED);
+    }
+
+    public long getTicketsSold() {
+        return getLongAcquire(TICKETS_SOLD);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public boolean isFenced() {
+        return fenced;
+    }
+
+    public String describe() {
+        return String.format("Shared inventory %s: %d added, %d sold by all processes | this process (slot %d): " +
+                        "%d process(es) fenced, %d half-written ticket(s) discarded, %d half-taken ticket(s) put back",
+                path, getTicketsAdded(), getTicketsSold(), processIndex, processesFenced.sum(),
+                ticketsDiscarded.sum(), ticketsReturned.sum());
+    }
+
+    /**
+     * Finds the partition of an event.
+     *
+     * @param eventName the name of the event
+     * @return the partition
+     * @throws IllegalStateException if the file has no partition for the event
+     */
+    public Partition partition(String eventName) {
+        Partition partition = partitions.get(eventName);
+        if (partition == null) {
+            throw new IllegalStateException("Shared inventory " + path + " has no partition for " + eventName +
+                    "; every process must be configured with the same events");
+        }
+        return partition;
+    }
+
+    /**
+     * Leaves the process table and stops heartbeating. The file and its tickets stay for the other processes.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        maintenance.interrupt();
+        long live = epoch << 1 | 1;
+        casLong(processEntry(processIndex), live, epoch << 1);
+        buffer.force();
+    }
+
+    // Buffer access
+    private long getLong(int offset) {
+        return (long) LONGS.get(buffer, offset);
+    }
+
+    private long getLongAcquire(int offset) {
+        return (long) LONGS.getAcquire(buffer, offset);
+    }
+
+    private void putLong(int offset, long value) {
+        LONGS.set(buffer, offset, value);
+    }
+
+    private void putLongRelease(int offset, long value) {
+        LONGS.setRelease(buffer, offset, value);
+    }
+
+    private boolean casLong(int offset, long expected, long value) {
+        return LONGS.compareAndSet(buffer, offset, expected, value);
+    }
+
+    /**
+     * One event's ring of ticket slots in the file.
+     */
+    public final class Partition {
+        private final int base;
+
+        private Partition(int base) {
+            this.base = base;
+        }
+
+        /**
+         * Puts one ticket on sale.
+         *
+         * @param vendorId the ID of the vendor releasing the ticket
+         * @param cents    the price of the ticket in cents
+         * @return false if the ring is full or this process has been fenced
+         */
+        public boolean offer(int vendorId, long cents) {
+            if (fenced) {
+                return false;
+            }
+            while (true) {
+                long position = getLongAcquire(base + ENQUEUE);
+                if (position - getLongAcquire(base + DEQUEUE) >= capacity) {
+                    return false; // The event holds as many tickets as it may
+                }
+                int slot = slotOffset(position);
+                long current = getLongAcquire(slot);
+                if (current == word(position, 0, FREE)) {
+                    long writing = word(position, ownerTag, WRITING);
+                    if (casLong(slot, current, writing)) {
+                        casLong(base + ENQUEUE, position, position + 1);
+                        putLong(slot + 8, vendorId);
+                        putLong(slot + 16, cents);
+                        // Fails only if this process was fenced meanwhile and the slot discarded
+                        if (!casLong(slot, writing, word(position, 0, ON_SALE))) {
+                            return false;
+                        }
+                        LONGS.getAndAdd(buffer, base + RELEASED, 1L);
+                        return true;
+                    }
+                } else if (positionOf(current) == position || positionOf(current) == position + slots) {
+                    casLong(base + ENQUEUE, position, position + 1); // Claimed by another process; help it along
+                } else if (positionOf(current) < position) {
+                    return false; // The slot still holds a ticket from the previous lap
+                }
+            }
+        }
+
+        /**
+         * Takes up to {@code maxTickets} tickets in FIFO order without blocking.
+         *
+         * @param eventIndex the event index stored with the tickets in the ring
+         * @param maxTickets the most tickets to take
+         * @param target     the ring receiving the tickets
+         * @return the number of tickets taken
+         */
+        public int take(int eventIndex, int maxTickets, TicketRing target) {
+            int taken = 0;
+            while (taken < maxTickets && !fenced) {
+                long position = getLongAcquire(base + DEQUEUE);
+                int slot = slotOffset(position);
+                long current = getLongAcquire(slot);
+                if (current == word(position, 0, ON_SALE)) {
+                    long taking = word(position, ownerTag, TAKING);
+                    if (casLong(slot, current, taking)) {
+                        casLong(base + DEQUEUE, position, position + 1);
+                        int vendorId = (int) getLong(slot + 8);
+                        long cents = getLong(slot + 16);
+                        // Free the slot before the sale is recorded; fails only if this process was fenced
+                        if (casLong(slot, taking, word(position + slots, 0, FREE))) {
+                            target.add(eventIndex, vendorId, cents, 1);
+                            taken++;
+                        }
+                    }
+                } else if ((positionOf(current) == position && (current & 3) == TAKING)
+                        || positionOf(current) == position + slots) {
+                    casLong(base + DEQUEUE, position, position + 1); // Taken or discarded; help along
+                } else if (positionOf(current) <= position) {
+                    break; // Not on sale yet, or still being freed: the ring is empty up to here
+                }
+            }
+            if (taken > 0) {
+                LONGS.getAndAdd(buffer, base + SOLD, (long) taken);
+            }
+            return taken;
+        }
+
+        /**
+         * Estimates the tickets on sale: positions released but not yet taken, across every process.
+         *
+         * @return the estimate
+         */
+        public int size() {
+            long size = getLongAcquire(base + ENQUEUE) - getLongAcquire(base + DEQUEUE);
+            return (int) Math.max(0, Math.min(size, capacity));
+        }
+
+        // Counters across every process
+        public long getReleased() {
+            return getLongAcquire(base + RELEASED);
+        }
+
+        public long getTaken() {
+            return getLongAcquire(base + SOLD);
+        }
+
+        public int capacity() {
+            return capacity;
+        }
+
+        private long slotWord(int slot) {
+            return getLongAcquire(base + PARTITION_HEADER + slot * SLOT);
+        }
+
+        private int slotOffset(long position) {
+            return base + PARTITION_HEADER + (int) (position & mask) * SLOT;
+        }
+
+        /**
+         * Finishes what a fenced process left in a slot: a half-written ticket is discarded,
+         * a half-taken one put back on sale.
+         */
+        private void recover(int slot, long current) {
+            int offset = base + PARTITION_HEADER + slot * SLOT;
+            long position = positionOf(current);
+            if ((current & 3) == WRITING) {
+                if (casLong(offset, current, word(position + slots, 0, FREE))) {
+                    returnQuota(1);
+                    ticketsDiscarded.increment();
+                }
+                return;
+            }
+            int vendorId = (int) getLong(offset + 8);
+            long cents = getLong(offset + 16);
+            if (casLong(offset, current, word(position + slots, 0, FREE))) {
+                if (offer(vendorId, cents)) {
+                    ticketsReturned.increment();
+                } else {
+                    returnQuota(1); // No room to put it back; let a vendor release it again
+                    ticketsDiscarded.increment();
+                }
+            }
+        }
+    }
+}
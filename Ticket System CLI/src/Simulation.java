@@ -0,0 +1,213 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Discrete-event simulation of an on-sale, started with {@code TicketSystem --simulate}.
+ * The real {@link Vendor}, {@link Customer} and {@link TicketPool} code runs, but instead of
+ * sleeping between steps each actor's next step is put on an event queue ordered by a virtual
+ * clock, and one thread runs the steps in that order, jumping the clock straight to the next one.
+ * An hour of sales replays in seconds, and with every random choice drawn from the seed a run is
+ * exactly repeatable: the same seed and options give the same steps in the same order, which the
+ * report's fingerprint confirms.
+ *
+ * <p>Options are given as {@code --name=value} arguments or read from a properties file with
+ * {@code --config=file}, as for the load test.
+ */
+public class Simulation {
+    private static final Set<String> OPTIONS = Set.of("config", "events", "price", "vendors", "customers",
+            "duration", "seed", "release-rate", "retrieval-rate", "capacity", "total-tickets",
+            "vendor-rate", "customer-rate", "profile", "jitter", "burst", "report-every");
+
+    private final int events;
+    private final double price;
+    private final int vendors;
+    private final int customers;
+    private final long durationNanos;
+    private final long seed;
+    private final int releaseRate;
+    private final int retrievalRate;
+    private final int capacity;
+    private final int totalTickets;
+    private final String vendorRate; // Steps per second per actor overriding the configured rates, if set
+    private final String customerRate;
+    private final RateScheduler.Profile profile;
+    private final double jitter;
+    private final int burst;
+    private final long reportEveryNanos;
+
+    /**
+     * One scheduled step: which actor steps and when, with a sequence number that breaks ties
+     * in the order the steps were scheduled, so equal times never depend on the queue's internals.
+     */
+    private static final class Step implements Comparable<Step> {
+        private final long atNanos;
+        private final long sequence;
+        private final int actor;
+
+        Step(long atNanos, long sequence, int actor) {
+            this.atNanos = atNanos;
+            this.sequence = sequence;
+            this.actor = actor;
+        }
+
+        @Override
+        public int compareTo(Step other) {
+            int byTime = Long.compare(atNanos, other.atNanos);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private Simulation(Properties options) {
+        events = LoadGenerator.intOption(options, "events", 5, 1);
+        price = Double.parseDouble(options.getProperty("price", "50"));
+        vendors = LoadGenerator.intOption(options, "vendors", events, 1);
+        customers = LoadGenerator.intOption(options, "customers", 20, 1);
+        durationNanos = TimeUnit.SECONDS.toNanos(LoadGenerator.intOption(options, "duration", 3600, 1));
+        seed = Long.parseLong(options.getProperty("seed", "1").trim());
+        releaseRate = LoadGenerator.intOption(options, "release-rate", 5, 2);
+        retrievalRate = LoadGenerator.intOption(options, "retrieval-rate", 5, 2);
+        capacity = LoadGenerator.intOption(options, "capacity", 10000, 1);
+        totalTickets = LoadGenerator.intOption(options, "total-tickets", 1_000_000, 1);
+        vendorRate = options.getProperty("vendor-rate");
+        customerRate = options.getProperty("customer-rate");
+        profile = RateScheduler.Profile.valueOf(options.getProperty("profile", "STEADY").trim().toUpperCase());
+        jitter = Double.parseDouble(options.getProperty("jitter", "0.5"));
+        burst = LoadGenerator.intOption(options, "burst", 10, 1);
+        reportEveryNanos = TimeUnit.SECONDS.toNanos(LoadGenerator.intOption(options, "report-every",
+                (int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(durationNanos) / 12), 1));
+        if (price <= 0 || jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("Price must be positive and jitter between 0 and 1.");
+        }
+    }
+
+    /**
+     * Builds a simulation from command-line arguments.
+     *
+     * @param args {@code --name=value} options, optionally including {@code --config=file}
+     * @return the configured simulation
+     * @throws IllegalArgumentException if an option is unknown or invalid
+     */
+    public static Simulation fromArguments(String[] args) {
+        return new Simulation(LoadGenerator.parseOptions(args, OPTIONS, "simulation"));
+    }
+
+    /**
+     * Runs the simulation and prints a timeline and summary.
+     */
+    public void run() {
+        // Logging every step would dominate the run, and nothing needs to outlive it by default
+        LoadGenerator.setDefaultProperty("ticket.log.consoleLevel", "WARNING");
+        LoadGenerator.setDefaultProperty("ticket.log.fileLevel", "WARNING");
+        LoadGenerator.setDefaultProperty("ticket.persistence", "memory");
+        if (vendorRate != null) {
+            System.setProperty("ticket.rate.vendorStepsPerSec", vendorRate);
+        }
+        if (customerRate != null) {
+            System.setProperty("ticket.rate.customerStepsPerSec", customerRate);
+        }
+
+        TicketPoolConfiguration configuration = new TicketPoolConfiguration();
+        configuration.setTotalTickets(totalTickets);
+        configuration.setMaxTicketCapacity(capacity);
+        configuration.setTicketReleaseRate(releaseRate);
+        configuration.setCustomerRetrievalRate(retrievalRate);
+        String[] eventNames = new String[events];
+        for (int i = 0; i < events; i++) {
+            eventNames[i] = "Event " + (i + 1);
+            configuration.addEventPrice(eventNames[i], price);
+        }
+        configuration.setConfigured(true);
+
+        DatabaseInterface database = DatabaseInterface.create();
+        TicketPool ticketPool = new TicketPool(database, configuration);
+        ticketPool.setSeed(seed);
+        ticketPool.setExecutionMode(ExecutionMode.SIMULATED, 1);
+        ticketPool.prepareInventories();
+
+        // Vendors first, then customers; the actor index is also the pacing's random stream
+        List<Actor> actors = new ArrayList<>();
+        for (int i = 0; i < vendors; i++) {
+            actors.add(new Vendor(ticketPool, i + 1, eventNames[i % events]));
+        }
+        for (int i = 0; i < customers; i++) {
+            actors.add(new Customer(ticketPool, i + 1));
+        }
+        StepPacing[] pacing = new StepPacing[actors.size()];
+        PriorityQueue<Step> queue = new PriorityQueue<>();
+        long sequence = 0;
+        for (int i = 0; i < actors.size(); i++) {
+            pacing[i] = new StepPacing(profile, jitter, burst, new SplittableRandom(seed * 0x9E3779B97F4A7C15L + i));
+            queue.add(new Step(pacing[i].firstDelay(actors.get(i).stepsPerSecond()), sequence++, i));
+        }
+
+        System.out.printf("Simulation: %d event(s), %d vendor(s), %d customer(s), %s virtual, seed %d, %s load%n",
+                events, vendors, customers, formatVirtual(durationNanos), seed, profile);
+        System.out.printf("%-10s %10s %10s %10s %12s%n", "Time", "Released", "Sold", "On sale", "Total sold");
+
+        long wallStart = System.nanoTime();
+        long clock = 0;
+        long steps = 0;
+        long fingerprint = seed;
+        long nextReport = reportEveryNanos;
+        int addedAtReport = 0;
+        int soldAtReport = 0;
+        while (!queue.isEmpty() && !ticketPool.isSoldOut()) {
+            Step step = queue.poll();
+            if (step.atNanos > durationNanos) {
+                break;
+            }
+            // Print every report interval the clock jumps over
+            while (step.atNanos >= nextReport) {
+                printTimeline(nextReport, ticketPool, addedAtReport, soldAtReport);
+                addedAtReport = ticketPool.getTicketsAdded();
+                soldAtReport = ticketPool.getTicketsSold();
+                nextReport += reportEveryNanos;
+            }
+            clock = step.atNanos;
+            Actor actor = actors.get(step.actor);
+            boolean more = actor.step();
+            steps++;
+            // Mix the step and the pool state it left into the fingerprint
+            fingerprint = (fingerprint ^ clock ^ ((long) step.actor << 32) ^ ticketPool.getTicketsSold()) * 0x100000001B3L;
+            if (more) {
+                queue.add(new Step(clock + pacing[step.actor].nextInterval(actor.stepsPerSecond()), sequence++, step.actor));
+            }
+        }
+        long wallNanos = System.nanoTime() - wallStart;
+        if (ticketPool.getTicketsSold() > soldAtReport || ticketPool.getTicketsAdded() > addedAtReport) {
+            printTimeline(clock, ticketPool, addedAtReport, soldAtReport);
+        }
+
+        ticketPool.close();
+        System.out.println("\n--- Simulation Report ---");
+        System.out.printf("Virtual time: %s%s | Wall time: %.2f s (%.0fx real time)%n",
+                formatVirtual(clock), ticketPool.isSoldOut() ? " (sold out)" : "",
+                wallNanos / 1e9, wallNanos > 0 ? clock / (double) wallNanos : 0.0);
+        System.out.printf("Steps: %d (%.0f steps/sec of wall time)%n", steps, steps / (wallNanos / 1e9));
+        System.out.printf("Tickets: %d released, %d sold, %d on sale at the end%n",
+                ticketPool.getTicketsAdded(), ticketPool.getTicketsSold(), ticketPool.getCurrentTickets());
+        CapacityGate gate = ticketPool.getCapacityGate();
+        if (gate != null) {
+            System.out.printf("Capacity: %d | tickets shed by full pool: %d%n", gate.getCapacity(), gate.getShedTickets());
+        }
+        System.out.printf("Run fingerprint: %016x (identical for identical seed and options)%n", fingerprint);
+        database.close();
+    }
+
+    private void printTimeline(long atNanos, TicketPool ticketPool, int addedBefore, int soldBefore) {
+        System.out.printf("%-10s %10d %10d %10d %12d%n", formatVirtual(atNanos),
+                ticketPool.getTicketsAdded() - addedBefore, ticketPool.getTicketsSold() - soldBefore,
+                ticketPool.getCurrentTickets(), ticketPool.getTicketsSold());
+    }
+
+    // Formats virtual time as h:mm:ss
+    private static String formatVirtual(long nanos) {
+        long seconds = TimeUnit.NANOSECONDS.toSeconds(nanos);
+        return String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+}
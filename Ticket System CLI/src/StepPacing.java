@@ -0,0 +1,69 @@
+import java.util.SplittableRandom;
+
+/**
+ * Spacing of one actor's steps at its current rate, shaped by a {@link RateScheduler.Profile}.
+ * Shared by the real-time {@link RateScheduler} and the virtual-clock {@link Simulation};
+ * given the same seed and rates it produces the same intervals.
+ */
+public class StepPacing {
+    private final RateScheduler.Profile profile;
+    private final double jitter;
+    private final int burst;
+    private final SplittableRandom random;
+
+    // Steps taken so far in the current BURST group
+    private int groupTaken;
+
+    /**
+     * Constructs the pacing of one actor.
+     *
+     * @param profile the shape of the load
+     * @param jitter  the largest relative change to an interval in JITTER mode, from 0 to 1
+     * @param burst   the number of steps per group in BURST mode
+     * @param random  the random numbers for JITTER mode, owned by this pacing
+     */
+    public StepPacing(RateScheduler.Profile profile, double jitter, int burst, SplittableRandom random) {
+        this.profile = profile;
+        this.jitter = jitter;
+        this.burst = profile == RateScheduler.Profile.BURST ? burst : 1;
+        this.random = random;
+    }
+
+    /**
+     * Returns the gap before the next step. Averaged over many steps it is {@code 1 / stepsPerSecond}.
+     *
+     * @param stepsPerSecond the actor's current rate
+     * @return the gap in nanoseconds, 0 inside a burst
+     */
+    public long nextInterval(double stepsPerSecond) {
+        if (stepsPerSecond <= 0) {
+            return 1_000_000_000L; // Paused; look again in a second
+        }
+        double interval = 1e9 / stepsPerSecond;
+        switch (profile) {
+            case JITTER:
+                interval *= 1 + jitter * (2 * random.nextDouble() - 1);
+                break;
+            case BURST:
+                if (++groupTaken < burst) {
+                    return 0;
+                }
+                groupTaken = 0;
+                interval *= burst;
+                break;
+            default:
+                break;
+        }
+        return Math.max(1, Math.round(interval));
+    }
+
+    /**
+     * Returns a random offset within one interval, so actors started together do not step in lockstep.
+     *
+     * @param stepsPerSecond the actor's current rate
+     * @return the offset in nanoseconds
+     */
+    public long firstDelay(double stepsPerSecond) {
+        return stepsPerSecond <= 0 ? 0 : (long) (random.nextDouble() * 1e9 / stepsPerSecond);
+    }
+}
@@ -0,0 +1,93 @@
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tickets taken off sale for one customer until the purchase is confirmed, released or the hold expires.
+ * Created by {@link TicketPool#reserveTickets}; the pool's timing wheel expires it if the
+ * customer does neither in time. Exactly one of confirm, release and expiry wins.
+ */
+public class TicketHold extends TimingWheel.Timeout {
+
+    /**
+     * The lifecycle of a hold; every state but HELD is final.
+     */
+    public enum State {
+        HELD,
+        CONFIRMED,
+        RELEASED,
+        EXPIRED
+    }
+
+    private final long holdId;
+    private final int customerId;
+    private final EventInventory inventory;
+    private final int requested;
+    private final TicketRing tickets;
+    private final long expiresAtNanos;
+    private final AtomicReference<State> state = new AtomicReference<>(State.HELD);
+
+    /**
+     * Constructs a hold over tickets already taken from a partition.
+     *
+     * @param holdId         the ID of the hold
+     * @param customerId     the ID of the customer holding the tickets
+     * @param inventory      the partition the tickets came from
+     * @param requested      the number of tickets the customer asked for
+     * @param tickets        the held tickets
+     * @param expiresAtNanos the {@link System#nanoTime()} the hold expires at
+     */
+    TicketHold(long holdId, int customerId, EventInventory inventory, int requested, TicketRing tickets, long expiresAtNanos) {
+        this.holdId = holdId;
+        this.customerId = customerId;
+        this.inventory = inventory;
+        this.requested = requested;
+        this.tickets = tickets;
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    /**
+     * Moves the hold out of HELD.
+     *
+     * @param outcome the final state
+     * @return true if this call ended the hold, false if it had already ended
+     */
+    boolean finish(State outcome) {
+        return state.compareAndSet(State.HELD, outcome);
+    }
+
+    // Getters for the hold details and state
+    public long getHoldId() {
+        return holdId;
+    }
+
+    public int getCustomerId() {
+        return customerId;
+    }
+
+    public String getEventName() {
+        return inventory.getEventName();
+    }
+
+    public int getTicketCount() {
+        return tickets.size();
+    }
+
+    public long getExpiresAtNanos() {
+        return expiresAtNanos;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    EventInventory getInventory() {
+        return inventory;
+    }
+
+    int getRequested() {
+        return requested;
+    }
+
+    TicketRing getTickets() {
+        return tickets;
+    }
+}
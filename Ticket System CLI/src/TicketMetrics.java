@@ -0,0 +1,198 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms for each stage of a purchase and per-vendor ticket counters.
+ * Each stage's histogram is striped by thread so concurrent buyers rarely touch the same
+ * counters; recording costs one {@link System#nanoTime()} call and one uncontended atomic add.
+ * Snapshots merge the stripes and can be taken at any time while the pool keeps running.
+ * Per-event counters live in each {@link EventInventory}. Set {@code ticket.metrics=off} to
+ * skip all timing.
+ */
+public class TicketMetrics {
+
+    /**
+     * The timed stages of a purchase, plus the writer's batch writes.
+     */
+    public enum Stage {
+        // Waiting in the waiting room until every customer ahead has been served
+        WAITING_ROOM("Waiting room"),
+        // Waiting for a ticket to become available
+        AVAILABILITY_WAIT("Availability wait"),
+        // Reserving tickets on an event partition and dequeuing them
+        TAKE("Reserve + dequeue"),
+        // Handing the transactions to the write-behind sink (includes the flush in WAIT_FOR_FLUSH mode)
+        DB_WRITE("DB write"),
+        // One batch insert by the transaction writer
+        BATCH_WRITE("Batch write");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * Tickets one vendor has released and sold.
+     */
+    public static final class VendorCounters {
+        private final LongAdder released = new LongAdder();
+        private final LongAdder sold = new LongAdder();
+
+        public long getReleased() {
+            return released.sum();
+        }
+
+        public long getSold() {
+            return sold.sum();
+        }
+    }
+
+    private final boolean enabled;
+    private final int stripeMask;
+    private final LatencyHistogram[][] histograms; // [stage][stripe]
+    private final Map<Integer, VendorCounters> vendors = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs metrics with stripes sized to the number of processors.
+     *
+     * @param enabled whether stage latencies are recorded
+     */
+    public TicketMetrics(boolean enabled) {
+        this.enabled = enabled;
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        this.stripeMask = stripes - 1;
+        this.histograms = new LatencyHistogram[Stage.values().length][];
+        for (Stage stage : Stage.values()) {
+            histograms[stage.ordinal()] = new LatencyHistogram[stripes];
+            for (int i = 0; i < stripes; i++) {
+                histograms[stage.ordinal()][i] = new LatencyHistogram();
+            }
+        }
+    }
+
+    /**
+     * Creates metrics configured by the {@code ticket.metrics} system property ({@code on} or {@code off}).
+     *
+     * @return the metrics
+     */
+    public static TicketMetrics fromSystemProperties() {
+        return new TicketMetrics(!"off".equalsIgnoreCase(System.getProperty("ticket.metrics", "on")));
+    }
+
+    /**
+     * Returns a timestamp to start timing a stage from, or 0 when metrics are off.
+     *
+     * @return the current {@link System#nanoTime()}, or 0
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time since {@code start} against a stage.
+     *
+     * @param stage the stage that just finished
+     * @param start the timestamp from {@link #start()} or a previous call
+     * @return the current timestamp, so consecutive stages can share one clock read
+     */
+    public long record(Stage stage, long start) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        histograms[stage.ordinal()][(int) Thread.currentThread().getId() & stripeMask].record(now - start);
+        return now;
+    }
+
+    /**
+     * Records an already measured duration against a stage.
+     *
+     * @param stage the stage
+     * @param nanos the duration in nanoseconds
+     */
+    public void recordNanos(Stage stage, long nanos) {
+        if (enabled) {
+            histograms[stage.ordinal()][(int) Thread.currentThread().getId() & stripeMask].record(nanos);
+        }
+    }
+
+    /**
+     * Counts tickets released by a vendor.
+     */
+    public void vendorReleased(int vendorId, int count) {
+        vendor(vendorId).released.add(count);
+    }
+
+    /**
+     * Counts tickets of a vendor that were sold.
+     */
+    public void vendorSold(int vendorId, int count) {
+        vendor(vendorId).sold.add(count);
+    }
+
+    /**
+     * Merges the stripes of one stage into a snapshot.
+     *
+     * @param stage the stage
+     * @return a histogram independent of further recording
+     */
+    public LatencyHistogram snapshot(Stage stage) {
+        LatencyHistogram snapshot = new LatencyHistogram();
+        for (LatencyHistogram stripe : histograms[stage.ordinal()]) {
+            snapshot.add(stripe);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the counters of every vendor seen so far; the values keep changing while the pool runs.
+     */
+    public Map<Integer, VendorCounters> getVendors() {
+        return vendors;
+    }
+
+    /**
+     * Discards all recorded latencies and counters.
+     */
+    public void reset() {
+        for (LatencyHistogram[] stripes : histograms) {
+            for (LatencyHistogram stripe : stripes) {
+                stripe.reset();
+            }
+        }
+        vendors.clear();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Formats one line per stage that has recorded anything.
+     *
+     * @return the stage latency report
+     */
+    public String describeStages() {
+        StringBuilder report = new StringBuilder();
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram snapshot = snapshot(stage);
+            if (snapshot.getCount() > 0) {
+                report.append(String.format("%-19s %s%n", stage.getLabel() + ":", snapshot.summary(TimeUnit.MICROSECONDS)));
+            }
+        }
+        return report.toString();
+    }
+
+    private VendorCounters vendor(int vendorId) {
+        VendorCounters counters = vendors.get(vendorId);
+        return counters != null ? counters : vendors.computeIfAbsent(vendorId, id -> new VendorCounters());
+    }
+}
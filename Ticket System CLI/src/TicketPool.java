@@ -1,6 +1,10 @@
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.locks.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
 
 /**
  * Manages the ticket pool system, handling ticket addition, purchase,
@@ -11,37 +15,81 @@ public class TicketPool {
 
     // System state flags and tracking variables
     private volatile boolean running = false;
-    private int ticketsAdded = 0; // Tracks total tickets added across all vendors
-    private int ticketsSold = 0;  // Tracks total tickets sold
-    private int currentTickets = 0; // Tracks tickets currently in the pool
+    private final AtomicInteger ticketsAdded = new AtomicInteger(); // Tracks total tickets added across all vendors
+    private final LongAdder ticketsSold = new LongAdder();  // Tracks total tickets sold (striped across threads)
+    private final LongAdder currentTickets = new LongAdder(); // Tracks tickets currently in the pool
 
-    // Shared pool of tickets
-    private final List<Ticket> ticketPool = Collections.synchronizedList(new ArrayList<>());
-    // Lock for ensuring thread safety in ticket operations
-    private final ReentrantLock lock = new ReentrantLock();
+    // Inventory partitions, one per event, each a lock-free queue with its own availability count
+    private volatile EventInventory[] inventories = new EventInventory[0];
+    private final Map<String, EventInventory> inventoriesByName = new ConcurrentHashMap<>();
+    // Inventory shared with other processes through a memory-mapped file; null when selling alone
+    private volatile SharedInventoryFile sharedInventory;
 
-    // Semaphore to signal available tickets
-    private Semaphore ticketsAvailable = new Semaphore(0);
+    // Bounds the tickets on sale at once to the max ticket capacity; null when the bound cannot be reached
+    private volatile CapacityGate capacityGate;
 
-    // Queue for customers waiting to purchase tickets
-    private final BlockingQueue<Integer> customerQueue = new LinkedBlockingQueue<>();
+    // Bounded FIFO of customers waiting for tickets, served in arrival order
+    private final WaitingRoom waitingRoom = WaitingRoom.fromSystemProperties();
 
-    // Database instance for logging transactions
-    private final Database database = new Database();
+    // Timed holds, expired by a single timing wheel created with the first hold
+    private volatile TimingWheel<TicketHold> holdWheel;
+    private final AtomicLong nextHoldId = new AtomicLong();
+    private final LongAdder ticketsHeld = new LongAdder();
+    private final LongAdder holdsCreated = new LongAdder();
+    private final LongAdder holdsConfirmed = new LongAdder();
+    private final LongAdder holdsReleased = new LongAdder();
+    private final LongAdder holdsExpired = new LongAdder();
 
-    // Lists to track vendor and customer threads
-    private final List<Thread> vendorThreads = new ArrayList<>();
-    private final List<Thread> customerThreads = new ArrayList<>();
+    // Persistence backend for logging transactions
+    private final DatabaseInterface database;
+    // Write-behind sink batching transactions off the purchase path
+    private final TransactionWriter transactionWriter;
+    // Stage latencies and per-vendor counters
+    private final TicketMetrics metrics = TicketMetrics.fromSystemProperties();
+    // Live per-event and per-vendor sales figures with rolling windows, answered without the database
+    private final SalesAnalytics analytics = new SalesAnalytics();
+
+    // Runs vendor and customer actors on platform threads, virtual threads or a bounded pool
+    private ActorRunner actorRunner = new ActorRunner(ExecutionMode.fromSystemProperties(),
+            Integer.getInteger("ticket.exec.poolSize", Runtime.getRuntime().availableProcessors() * 2));
+    private int customerCount = Integer.getInteger("ticket.customers", 20);
+
+    // Seed of the vendors' and customers' random numbers; null for unseeded
+    private volatile Long seed = Long.getLong("ticket.seed");
+    private volatile Random purchaseRandom = seed == null ? null : new Random(seed);
+
+    // Per-actor step rates overriding the configured rates when positive, for rates beyond what they express
+    private final double vendorStepsOverride = Double.parseDouble(System.getProperty("ticket.rate.vendorStepsPerSec", "0"));
+    private final double customerStepsOverride = Double.parseDouble(System.getProperty("ticket.rate.customerStepsPerSec", "0"));
+
+    // Throughput tracking for the current run
+    private long runStartNanos;
+    private long soldAtStart;
 
     // Flags for logging and system state
-    private boolean waitingMessageLogged = false;
-    private boolean stopped = false;
+    private volatile boolean waitingMessageLogged = false;
+    private final AtomicBoolean stopped = new AtomicBoolean(false);
 
     /**
      * Constructs a new TicketPool with default configuration and logger setup.
+     *
+     * @param database the persistence backend shared with the rest of the application
      */
-    public TicketPool() {
-        this.configuration = new TicketPoolConfiguration();
+    public TicketPool(DatabaseInterface database) {
+        this(database, new TicketPoolConfiguration());
+    }
+
+    /**
+     * Constructs a TicketPool around an existing configuration, for callers that configure
+     * the system without the interactive wizard.
+     *
+     * @param database      the persistence backend shared with the rest of the application
+     * @param configuration the configuration to run with
+     */
+    public TicketPool(DatabaseInterface database, TicketPoolConfiguration configuration) {
+        this.configuration = configuration;
+        this.database = database;
+        this.transactionWriter = TransactionWriter.fromSystemProperties(database, metrics);
         TicketSystemLogger.configureLogger();
     }
 
@@ -53,16 +101,40 @@ public class TicketPool {
      * @throws IllegalArgumentException if the event name is not found
      */
     public double getEventPrice(String eventName) {
-        Map<String, Double> eventPrices = configuration.getEventPrices();
-        if (!eventPrices.containsKey(eventName)) {
-            TicketSystemLogger.warning("Event name not found: " + eventName + ". Available events: " + eventPrices.keySet());
+        return configuration.snapshot().getEventPrice(getEventId(eventName));
+    }
+
+    /**
+     * Retrieves the price of an event by its ID, with a single array load.
+     *
+     * @param eventId the ID of the event, from {@link #getEventId}
+     * @return the price of the event
+     */
+    public double getEventPrice(int eventId) {
+        return configuration.snapshot().getEventPrice(eventId);
+    }
+
+    /**
+     * Looks up the dense ID the configuration gave an event.
+     *
+     * @param eventName the name of the event
+     * @return the ID of the event
+     * @throws IllegalArgumentException if the event name is not found
+     */
+    public int getEventId(String eventName) {
+        ConfigurationSnapshot snapshot = configuration.snapshot();
+        int eventId = snapshot.eventId(eventName);
+        if (eventId < 0) {
+            int events = snapshot.getEventCount();
+            TicketSystemLogger.warning("Event name not found: " + eventName + ". Available events: " +
+                    (events <= TicketPoolConfiguration.LISTED_EVENTS ? snapshot.getEventPrices().keySet() : events + " events"));
             throw new IllegalArgumentException("Event name not found: " + eventName);
         }
-        return eventPrices.get(eventName);
+        return eventId;
     }
 
     // Configures the ticket system
-    public void configureSystem(Scanner scanner, Database database) {
+    public void configureSystem(Scanner scanner, DatabaseInterface database) {
         configuration.configureSystem(scanner, database);
     }
 
@@ -72,8 +144,9 @@ public class TicketPool {
     }
 
     /**
-     * Starts ticket handling by creating vendor and customer threads.
-     * Dynamically assigns vendors to events and starts customer threads.
+     * Starts ticket handling by creating vendor and customer actors.
+     * Dynamically assigns vendors to events and starts the configured number of customers
+     * in the configured execution mode.
      */
     public void startTicketHandling() {
         // Check if system is already running
@@ -81,27 +154,128 @@ public class TicketPool {
             System.out.println("\nSystem is already running.");
             return;
         }
+        // Prepare the threads or pool first; this fails if the execution mode is unavailable
+        actorRunner.start();
         running = true;
 
-        // Start vendor threads for each event
-        int vendorId = 1;
-        Map<String, Double> eventPrices = configuration.getEventPrices();
-        for (Map.Entry<String, Double> entry : eventPrices.entrySet()) {
-            String eventName = entry.getKey();
-            Thread vendorThread = new Thread(new Vendor(this, vendorId, eventName));
-            vendorThread.start();
-            vendorThreads.add(vendorThread);
-            vendorId++;
+        // Build one inventory partition per configured event
+        ConfigurationSnapshot snapshot = configuration.snapshot();
+        buildInventories(snapshot.getEventPrices().keySet());
+        configureCapacity();
+
+        runStartNanos = System.nanoTime();
+        soldAtStart = ticketsSold.sum();
+
+        // Start a vendor for each event
+        for (int eventId = 0; eventId < snapshot.getEventCount(); eventId++) {
+            if (!snapshot.isRetired(eventId)) {
+                actorRunner.startVendor(new Vendor(this, eventId + 1, snapshot.getEventName(eventId)));
+            }
         }
 
-        // Start customer threads
-        for (int i = 1; i <= 20; i++) { // 20 customers
-            Thread customerThread = new Thread(new Customer(this, i));
-            customerThread.start();
-            customerThreads.add(customerThread);
+        // Start customers
+        for (int i = 1; i <= customerCount; i++) {
+            actorRunner.startCustomer(new Customer(this, i));
         }
 
-        TicketSystemLogger.info("System started. Vendors and customers are now active.");
+        TicketSystemLogger.info("System started. Vendors and customers are now active (" + customerCount +
+                " customers, " + actorRunner.getMode() + " execution).");
+    }
+
+    /**
+     * Changes rates and events while vendors and customers keep running.
+     * The new configuration is published in one step and read by every vendor and customer on its
+     * next release or purchase. Nothing is drained or paused: new events get a partition, and a vendor
+     * if the system is running, while retired events stop releasing but keep their tickets on sale.
+     *
+     * @param change the changes to apply
+     * @throws IllegalArgumentException if any change is invalid, in which case nothing is changed
+     * @throws IllegalStateException    if the system has not been configured
+     */
+    public synchronized void reconfigure(ConfigurationChange change) {
+        if (!configuration.isConfigured()) {
+            throw new IllegalStateException("Configuration incomplete. Please configure the system first.");
+        }
+        ConfigurationSnapshot before = configuration.snapshot();
+        if (sharedInventory != null) {
+            for (String eventName : change.getEventPrices().keySet()) {
+                if (before.eventId(eventName) < 0) {
+                    throw new IllegalStateException("Events cannot be added while the inventory is shared with other processes.");
+                }
+            }
+        }
+        ConfigurationSnapshot after = configuration.apply(change, database);
+        // Partitions exist once the pool has been started or prepared; otherwise starting creates them
+        if (inventories.length > 0) {
+            buildInventories(after.getEventPrices().keySet());
+        }
+        if (running) {
+            for (int eventId = before.getEventCount(); eventId < after.getEventCount(); eventId++) {
+                if (!after.isRetired(eventId)) {
+                    actorRunner.startVendor(new Vendor(this, eventId + 1, after.getEventName(eventId)));
+                }
+            }
+        }
+        TicketSystemLogger.info("System Reconfigured While Running - " + change.describe());
+    }
+
+    /**
+     * Creates the inventory partitions for the configured events without starting any actors.
+     * Lets benchmarks and load drivers call {@link #addTickets} and the purchase methods directly.
+     */
+    public void prepareInventories() {
+        buildInventories(configuration.getEventPrices().keySet());
+        configureCapacity();
+    }
+
+    /**
+     * Applies the max ticket capacity by creating the gate vendors pass before adding tickets.
+     * No gate is needed when the ticket limit fits within the capacity, nor with a shared inventory,
+     * where tickets one process adds are sold by others and each event's ring in the file holds
+     * at most the capacity instead.
+     */
+    private void configureCapacity() {
+        int capacity = configuration.getMaxTicketCapacity();
+        if (capacity <= 0 || capacity >= configuration.getTotalTickets() || sharedInventory != null) {
+            capacityGate = null;
+            return;
+        }
+        capacityGate = CapacityGate.fromSystemProperties(capacity, (int) currentTickets.sum());
+    }
+
+    /**
+     * Creates an inventory partition for every event that does not have one yet.
+     * Existing partitions are kept so tickets already in the pool survive a restart.
+     *
+     * @param eventNames the names of the configured events
+     */
+    private void buildInventories(Collection<String> eventNames) {
+        List<EventInventory> partitions = new ArrayList<>(Arrays.asList(inventories));
+        // One event can hold every ticket on sale, which is at most the capacity or the ticket limit
+        int partitionCapacity = configuration.getTotalTickets();
+        if (configuration.getMaxTicketCapacity() > 0) {
+            partitionCapacity = Math.min(partitionCapacity, configuration.getMaxTicketCapacity());
+        }
+        if (sharedInventory == null && SharedInventoryFile.isEnabled()) {
+            // Laid out for every configured event, in event ID order, so processes agree on the file
+            ConfigurationSnapshot snapshot = configuration.snapshot();
+            List<String> allEvents = new ArrayList<>();
+            for (int eventId = 0; eventId < snapshot.getEventCount(); eventId++) {
+                allEvents.add(snapshot.getEventName(eventId));
+            }
+            sharedInventory = SharedInventoryFile.fromSystemProperties(allEvents, Math.min(Math.max(1, partitionCapacity), EventInventory.MAX_TICKETS));
+        }
+        SharedInventoryFile shared = sharedInventory;
+        for (String eventName : eventNames) {
+            if (!inventoriesByName.containsKey(eventName)) {
+                EventInventory inventory = shared != null
+                        ? new SharedEventInventory(partitions.size(), eventName, shared.partition(eventName), metrics)
+                        : new EventInventory(partitions.size(), eventName, Math.max(1, partitionCapacity), metrics);
+                partitions.add(inventory);
+                inventoriesByName.put(eventName, inventory);
+            }
+        }
+        inventories = partitions.toArray(new EventInventory[0]);
     }
 
     /**
@@ -116,154 +290,719 @@ public class TicketPool {
 
         // Log system statistics
         TicketSystemLogger.info("System Stopped - Total Statistics:");
-        TicketSystemLogger.info("Total Tickets Added to Pool: " + ticketsAdded);
-        TicketSystemLogger.info("Total Tickets Sold: " + ticketsSold);
+        TicketSystemLogger.info("Total Tickets Added to Pool: " + ticketsAdded.get());
+        TicketSystemLogger.info("Total Tickets Sold: " + ticketsSold.sum());
+        SharedInventoryFile shared = sharedInventory;
+        if (shared != null) {
+            TicketSystemLogger.info(shared.describe());
+        }
+        TicketSystemLogger.info("Waiting room: " + waitingRoom.getAdmitted() + " customer(s) waited, " +
+                waitingRoom.getRejected() + " turned away (capacity " + waitingRoom.getCapacity() + ")");
+        if (holdsCreated.sum() > 0) {
+            TicketSystemLogger.info(describeHolds());
+        }
+        CapacityGate gate = capacityGate;
+        if (gate != null) {
+            TicketSystemLogger.info("Capacity " + gate.getCapacity() + " (" + gate.getPolicy() + "): vendors waited " +
+                    gate.getWaits() + " time(s), " + gate.getShedTickets() + " ticket(s) shed");
+        }
+        logThroughput();
+        TicketSystemLogger.info(this::describeMetrics);
         TicketSystemLogger.info("System stopped. All operations halted.");
 
-        // Interrupt all vendor and customer threads
-        vendorThreads.forEach(Thread::interrupt);
-        customerThreads.forEach(Thread::interrupt);
+        // Stop all vendors and customers
+        actorRunner.stop();
+
+        // Make sure every queued transaction reaches the database
+        drainTransactions();
+    }
+
+    /**
+     * Waits for the write-behind sink to flush every queued transaction.
+     */
+    private void drainTransactions() {
+        // A customer that triggers the sold-out stop has just interrupted itself; wait regardless
+        boolean interrupted = Thread.interrupted();
+        try {
+            transactionWriter.drain();
+            TicketSystemLogger.info("Orders written: " + transactionWriter.getRecordsWritten() +
+                    " in " + transactionWriter.getBatchesWritten() + " batch(es), failed: " + transactionWriter.getRecordsFailed());
+            TicketSystemLogger.info(database.describe());
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
     /**
      * Adds tickets to the pool by a vendor.
+     * Nothing is locked: the global ticket limit is claimed with a CAS and the tickets are
+     * published to the event's lock-free queue.
+     * When the pool is at its max ticket capacity the vendor waits, times out or sheds the
+     * release according to the capacity policy; vendors stepped on shared threads (BOUNDED or
+     * SCHEDULED mode, or PLATFORM vendors past the thread limit) never wait.
      *
      * @param eventName the name of the event
      * @param vendorId  the ID of the vendor
      * @param ticketsToAdd the number of tickets to add
      * @param price the price of each ticket
+     * @return false once the total ticket limit has been reached, or the vendor was interrupted, and it should stop
      */
-    public void addTickets(String eventName, int vendorId, int ticketsToAdd, double price) {
-        lock.lock();
-        try {
-            int totalTickets = configuration.getTotalTickets();
-            if (ticketsAdded >= totalTickets) {
-                // Stop the vendor thread gracefully
+    public boolean addTickets(String eventName, int vendorId, int ticketsToAdd, double price) {
+        EventInventory inventory = getInventory(eventName);
+
+        // Tell the vendor to stop gracefully before it waits for space it will never use
+        int totalTickets = configuration.getTotalTickets();
+        SharedInventoryFile shared = sharedInventory;
+        if ((shared != null ? shared.getTicketsAdded() : ticketsAdded.get()) >= totalTickets) {
+            return false;
+        }
+
+        // Wait for space in the pool
+        CapacityGate gate = capacityGate;
+        if (gate != null) {
+            int admitted;
+            try {
+                admitted = gate.admit(ticketsToAdd, actorRunner.mayBlock());
+            } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
-                return;
+                return false;
+            }
+            if (admitted == 0) {
+                int shed = ticketsToAdd;
+                TicketSystemLogger.info(() -> "Pool is at capacity. Vendor " + vendorId + " could not add " + shed + " ticket(s) for " + eventName);
+                return true;
+            }
+            ticketsToAdd = admitted;
+        }
+        int admitted = ticketsToAdd;
+
+        // Claim a share of the remaining ticket limit, in the shared file when other processes sell too
+        if (shared != null) {
+            ticketsToAdd = shared.claimQuota(ticketsToAdd, totalTickets);
+            ticketsAdded.addAndGet(ticketsToAdd);
+        } else {
+            int added;
+            do {
+                added = ticketsAdded.get();
+                if (added >= totalTickets) {
+                    ticketsToAdd = 0;
+                    break;
+                }
+                // Calculate remaining ticket capacity
+                ticketsToAdd = Math.min(ticketsToAdd, totalTickets - added);
+            } while (ticketsToAdd > 0 && !ticketsAdded.compareAndSet(added, added + ticketsToAdd));
+        }
+
+        // Hand back space admitted for tickets beyond the limit
+        if (gate != null) {
+            gate.release(admitted - ticketsToAdd);
+        }
+        if (ticketsToAdd == 0) {
+            return false;
+        }
+
+        // Count the tickets before buyers can see them, so the pool size never reads negative
+        currentTickets.add(ticketsToAdd);
+
+        // Add tickets to the event's partition and notify waiting customers
+        int published = inventory.add(vendorId, ticketsToAdd, price);
+        if (published < ticketsToAdd) {
+            // The event's partition is full; hand back the limit and space claimed for the rest
+            int unused = ticketsToAdd - published;
+            returnQuota(unused);
+            currentTickets.add(-unused);
+            if (gate != null) {
+                gate.release(unused);
             }
+            TicketSystemLogger.info(() -> "Tickets for " + eventName + " are at the partition limit. Vendor " + vendorId + " could not add " + unused + " ticket(s)");
+            if (published == 0) {
+                return true;
+            }
+            ticketsToAdd = published;
+        }
+        metrics.vendorReleased(vendorId, ticketsToAdd);
+        analytics.recordRelease(eventName, vendorId, ticketsToAdd);
 
-            // Calculate remaining ticket capacity
-            int remainingCapacity = totalTickets - ticketsAdded;
-            ticketsToAdd = Math.min(ticketsToAdd, remainingCapacity);
+        int released = ticketsToAdd;
+        TicketSystemLogger.info(() -> "Vendor " + vendorId + " added " + released + " ticket(s) for " + eventName + " (Price: $" + String.format("%.2f", price) + ")");
+        logCurrentTickets(); // Log the current tickets after adding
 
-            // Add tickets to the pool and notify waiting customers
-            if (ticketsToAdd > 0) {
-                for (int i = 0; i < ticketsToAdd; i++) {
-                    Ticket ticket = new Ticket(eventName, price, vendorId);
-                    ticketPool.add(ticket);
-                    ticketsAvailable.release(); // Notify waiting customers
+        // Reset the waiting message flag when tickets are added
+        waitingMessageLogged = false;
+        return true;
+    }
 
-                }
+    /**
+     * Allows a customer to purchase tickets from any event that has tickets on sale.
+     * Partitions are scanned starting from a customer-specific offset so buyers spread
+     * across events instead of piling onto the first one.
+     * A customer buys straight away when nobody is waiting and tickets are on sale; otherwise
+     * it joins the back of the waiting room and is served once everyone ahead of it has bought.
+     * When the waiting room is full the customer is turned away and this attempt ends.
+     *
+     * @param customerId the ID of the customer making the purchase
+     */
+    public void purchaseTickets(int customerId) {
+        // Check if the system is stopped and stop customers from purchasing if all tickets are sold
+        if (stopped.get()) {
+            TicketSystemLogger.info(() -> "System is stopped. Customer " + customerId + " cannot purchase any tickets.");
+            return;
+        }
 
-                // Update tracking variables
-                ticketsAdded += ticketsToAdd;
-                currentTickets += ticketsToAdd;
-                TicketSystemLogger.info("Vendor " + vendorId + " added " + ticketsToAdd + " ticket(s) for " + eventName + " (Price: $" + String.format("%.2f", price) + ")");
-                logCurrentTickets(); // Log the current tickets after adding
+        EventInventory[] partitions = inventories;
+        if (partitions.length == 0) {
+            return;
+        }
 
-                // Reset the waiting message flag when tickets are added
-                waitingMessageLogged = false;
+        int ticketsToBuy = nextPurchaseSize();
+        int home = Math.floorMod(customerId, partitions.length);
+        TicketRing purchased = waitingRoom.isEmpty() ? takeAvailable(partitions, home, ticketsToBuy) : null;
+        try {
+            if (purchased == null) {
+                purchased = waitForTickets(customerId, partitions, home, ticketsToBuy);
+                if (purchased == null) {
+                    return;
+                }
             }
+            completePurchase(customerId, partitions[purchased.eventIndexAt(0)], ticketsToBuy, purchased);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Restore the interrupt status
+        }
+    }
 
+    /**
+     * Queues a customer in the waiting room and, once it reaches the front, takes tickets from
+     * any partition, waiting on the home partition while all are empty.
+     *
+     * @return the tickets taken, or null if the room was full or the system stopped
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private TicketRing waitForTickets(int customerId, EventInventory[] partitions, int home, int ticketsToBuy) throws InterruptedException {
+        long start = metrics.start();
+        WaitingRoom.Place place = waitingRoom.enter(customerId);
+        if (place == null) {
+            TicketSystemLogger.info(() -> "Waiting room is full (" + waitingRoom.getCapacity() + " customers). Customer " + customerId + " was turned away.");
+            return null;
+        }
+        TicketSystemLogger.info(() -> "Customer " + customerId + " is waiting for tickets at position " + place.getPosition() + ".");
+        try {
+            waitingRoom.awaitFront(place);
+            start = metrics.record(TicketMetrics.Stage.WAITING_ROOM, start);
+
+            TicketRing purchased;
+            while (!stopped.get()) {
+                if ((purchased = takeAvailable(partitions, home, ticketsToBuy)) != null) {
+                    metrics.record(TicketMetrics.Stage.AVAILABILITY_WAIT, start);
+                    return purchased;
+                }
+                logWaiting();
+                partitions[home].awaitAvailable(50, TimeUnit.MILLISECONDS);
+                stopIfSoldOutElsewhere();
+            }
+            return null;
         } finally {
-            lock.unlock();
+            waitingRoom.leave(place);
         }
     }
 
     /**
-     * Allows a customer to purchase tickets from the pool.
+     * Makes a single purchase attempt across all events without waiting for tickets.
+     * Used when customers are stepped on a bounded pool, where blocking would hold a pool thread.
+     * The attempt gives way to customers already in the waiting room.
      *
      * @param customerId the ID of the customer making the purchase
+     * @return true if any tickets were bought
      */
-    public void purchaseTickets(int customerId) {
+    public boolean tryPurchaseTickets(int customerId) {
+        EventInventory[] partitions = inventories;
+        if (stopped.get() || partitions.length == 0 || !waitingRoom.isEmpty()) {
+            return false;
+        }
+        int ticketsToBuy = nextPurchaseSize();
+        TicketRing purchased = takeAvailable(partitions, Math.floorMod(customerId, partitions.length), ticketsToBuy);
+        if (purchased == null) {
+            logWaiting();
+            stopIfSoldOutElsewhere();
+            return false;
+        }
         try {
-            // Add customer to the waiting queue (FIFO order)
-            customerQueue.put(customerId);
+            completePurchase(customerId, partitions[purchased.eventIndexAt(0)], ticketsToBuy, purchased);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
 
-            // Check if the system is stopped and stop customers from purchasing if all tickets are sold
-            if (stopped) {
-                TicketSystemLogger.info("System is stopped. Customer " + customerId + " cannot purchase any tickets.");
-                return;
+    /**
+     * Takes tickets from the first partition that has any, scanning from a home partition.
+     * All tickets come from one partition, so the ring's event index identifies it.
+     *
+     * @param partitions   the partitions to scan
+     * @param home         the index to start scanning from
+     * @param ticketsToBuy the most tickets to take
+     * @return the tickets taken, or null if no event has tickets; empty attempts allocate nothing
+     */
+    private TicketRing takeAvailable(EventInventory[] partitions, int home, int ticketsToBuy) {
+        TicketRing purchased = null;
+        for (int i = 0; i < partitions.length; i++) {
+            EventInventory candidate = partitions[(home + i) % partitions.length];
+            if (candidate.size() == 0) {
+                continue;
+            }
+            if (purchased == null) {
+                // Sized to the request; a per-customer buffer would cost memory for every idle virtual thread
+                purchased = new TicketRing(ticketsToBuy);
+            }
+            int taken = candidate.take(ticketsToBuy, purchased);
+            if (taken > 0) {
+                currentTickets.add(-taken);
+                return purchased;
             }
+        }
+        return null;
+    }
 
-            // Wait for tickets to become available
-            ticketsAvailable.acquire();
+    /**
+     * Picks how many tickets a customer tries to buy, between 1 and the retrieval rate.
+     */
+    private int nextPurchaseSize() {
+        Random random = purchaseRandom;
+        if (random == null) {
+            random = ThreadLocalRandom.current();
+        }
+        return random.nextInt(configuration.getCustomerRetrievalRate()) + 1;
+    }
 
-            // Lock the critical section
-            lock.lock();
-            try {
-                // Check stopped flag again to ensure thread-safety
-                if (stopped) {
-                    ticketsAvailable.release(); // Release the semaphore if stopped
-                    return;
+    /**
+     * Seeds every random choice the pool and the vendors it creates make from now on.
+     * Runs are only reproducible when the actors are stepped by one thread, as in a {@link Simulation}.
+     *
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        this.purchaseRandom = new Random(seed);
+    }
+
+    /**
+     * Creates the random numbers for one actor: derived from the seed when there is one.
+     *
+     * @param stream a number telling the actors apart, such as the vendor ID
+     * @return the random number generator
+     */
+    public Random newRandom(int stream) {
+        Long current = seed;
+        return current == null ? new Random() : new Random(current * 0x9E3779B97F4A7C15L + stream);
+    }
+
+    /**
+     * Allows a customer to purchase tickets for a specific event.
+     * Only that event's partition is waited on; the customer does not join the waiting room,
+     * where it would hold up customers happy to buy for any event.
+     *
+     * @param customerId the ID of the customer making the purchase
+     * @param eventName  the name of the event to buy tickets for
+     * @throws IllegalArgumentException if the event name is not found
+     */
+    public void purchaseTickets(int customerId, String eventName) {
+        EventInventory inventory = getInventory(eventName);
+        try {
+            long start = metrics.start();
+            if (stopped.get()) {
+                TicketSystemLogger.info(() -> "System is stopped. Customer " + customerId + " cannot purchase any tickets.");
+                return;
+            }
+
+            // Wait for tickets to become available for this event
+            int ticketsToBuy = nextPurchaseSize();
+            TicketRing purchased = new TicketRing(ticketsToBuy);
+            while (inventory.take(ticketsToBuy, purchased) == 0) {
+                logWaiting();
+                if (sharedInventory != null) {
+                    inventory.awaitAvailable(50, TimeUnit.MILLISECONDS);
+                    stopIfSoldOutElsewhere();
+                } else {
+                    inventory.awaitAvailable();
                 }
-                // Ensure there are tickets available for purchase
-                if (ticketPool.isEmpty()) {
-                    // Log message only once
-                    if (!waitingMessageLogged) {
-                        TicketSystemLogger.info("Customers are waiting for tickets to become available.");
-                        waitingMessageLogged = true; // Set the flag to prevent duplicate logging
-                    }
-                    return; // Exit early if no tickets are available
+                if (stopped.get()) {
+                    return;
                 }
+            }
+            currentTickets.add(-purchased.size());
+            metrics.record(TicketMetrics.Stage.AVAILABILITY_WAIT, start);
 
-                // Generate a random number of tickets the customer will attempt to buy
-                Random random = new Random();
-                int ticketsToBuy = random.nextInt(1,configuration.getCustomerRetrievalRate()) + 1;
-
-                // If the requested tickets exceed the available tickets, adjust the purchase to the available amount.
-                int availableTickets = ticketPool.size();
-                if (ticketsToBuy > availableTickets) {
-                    TicketSystemLogger.info("Customer " + customerId + " requested " + ticketsToBuy +
-                            " tickets, but only " + availableTickets +
-                            " tickets available in pool. Purchasing available tickets.");
-                    ticketsToBuy = availableTickets;
-                }
+            completePurchase(customerId, inventory, ticketsToBuy, purchased);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Restore the interrupt status
+        }
+    }
 
-                // Track the total price for the purchased tickets
-                double totalPrice = 0.0;
-                List<String> eventNames = new ArrayList<>(); // To store the event names for purchased tickets
-
-                // Process the purchase
-                for (int i = 0; i < ticketsToBuy; i++) {
-                    Ticket ticket = ticketPool.remove(0); // Remove one ticket from the pool for each purchase
-                    ticketsSold++;
-                    currentTickets--;
-                    totalPrice += ticket.getPrice();  // Add ticket price to the total
-                    eventNames.add(ticket.getEventName()); // Add event name to the list
-                    database.logTransaction(
-                            ticket.getEventName(),
-                            ticket.getPrice(),
-                            ticket.getVendorId(),
-                            customerId,
-                            1
-                    );
-                }
+    /**
+     * Records the transactions for tickets already taken from a partition
+     * and stops the system once everything is sold.
+     *
+     * @param customerId   the ID of the customer making the purchase
+     * @param inventory    the partition the tickets came from
+     * @param ticketsToBuy the number of tickets the customer asked for
+     * @param purchased    the tickets taken
+     * @throws IllegalStateException if the order could not be stored
+     */
+    private void completePurchase(int customerId, EventInventory inventory, int ticketsToBuy, TicketRing purchased) throws InterruptedException {
+        int bought = purchased.size();
+
+        // If the requested tickets exceed the available tickets, the purchase was adjusted to the available amount.
+        if (bought < ticketsToBuy) {
+            int requested = ticketsToBuy;
+            TicketSystemLogger.info(() -> "Customer " + customerId + " requested " + requested +
+                    " tickets, but only " + bought +
+                    " tickets available for " + inventory.getEventName() + ". Purchasing available tickets.");
+        }
+
+        // One order for the whole purchase, its tickets grouped into line items by vendor and price
+        TransactionRecord order = TransactionRecord.order(inventory.getEventName(), customerId, purchased);
+        long totalCents = order.getTotalCents();
+        ticketsSold.add(bought);
+        SharedInventoryFile shared = sharedInventory;
+        long soldEverywhere = shared != null ? shared.recordSold(bought) : -1;
+        // Free the space in the pool, waking a vendor waiting for it
+        CapacityGate gate = capacityGate;
+        if (gate != null) {
+            gate.release(bought);
+        }
+        inventory.recordSale(bought, totalCents);
+        countVendorSales(inventory.getEventName(), purchased, bought);
 
-                // Log the total number of tickets purchased, the events, and the total price in one log entry
-                String eventsPurchased = String.join(", ", eventNames);
-                TicketSystemLogger.info("Customer " + customerId + " purchased " + ticketsToBuy + " ticket(s) for events: " + eventsPurchased +
-                        " | Total Price: $" + String.format("%.2f", totalPrice));
+        try {
+            // Hand the order to the write-behind sink; this throws if the order could not be stored
+            long start = metrics.start();
+            transactionWriter.submit(order);
+            metrics.record(TicketMetrics.Stage.DB_WRITE, start);
+
+            // Log the total number of tickets purchased, the events, and the total price in one log entry.
+            // Every ticket of a purchase comes from the same event partition.
+            double orderPrice = order.getTotalPrice();
+            TicketSystemLogger.info(() -> "Customer " + customerId + " purchased " + bought + " ticket(s) for events: " +
+                    String.join(", ", Collections.nCopies(bought, inventory.getEventName())) +
+                    " | Total Price: $" + String.format("%.2f", orderPrice));
 
-                logCurrentTickets(); // Log the current ticket count after purchase
+            logCurrentTickets(); // Log the current ticket count after purchase
+        } finally {
+            // If all tickets are sold, by this process or any sharing the inventory, stop the system
+            if ((shared != null ? soldEverywhere : ticketsSold.sum()) >= configuration.getTotalTickets()) {
+                stopSoldOut();
+            }
+        }
+    }
+
+    /**
+     * Stops the system once the ticket limit has been sold. Only the first buyer to notice does this.
+     */
+    private void stopSoldOut() {
+        if (stopped.compareAndSet(false, true)) {
+            TicketSystemLogger.info("All tickets have been sold, and the ticket limit has been reached. Stopping the system...");
+            // A pool driven directly (load generator, benchmarks) has no actors to stop
+            if (running) {
+                System.out.println("\nPress Enter to continue..\n");
+                stopTicketHandling(); // Stop the entire system, including vendors and customers
+            }
+        }
+    }
 
-                // If all tickets are sold, stop the system
-                if (ticketsSold >= configuration.getTotalTickets() && ticketPool.isEmpty()) {
-                    TicketSystemLogger.info("All tickets have been sold, and the ticket limit has been reached. Stopping the system...");
-                    stopped = true; // Set the stopped flag to true
-                    System.out.println("\nPress Enter to continue..\n");
-                    stopTicketHandling(); // Stop the entire system, including vendors and customers
+    /**
+     * Stops the system if processes sharing the inventory have sold the last tickets, or nothing is
+     * left to sell because a process died holding the rest, so customers here do not wait for tickets
+     * that will never be released. Tickets held here may still go back on sale, so those are waited for.
+     */
+    private void stopIfSoldOutElsewhere() {
+        SharedInventoryFile shared = sharedInventory;
+        if (shared == null) {
+            return;
+        }
+        int totalTickets = configuration.getTotalTickets();
+        long sold = shared.getTicketsSold();
+        if (sold >= totalTickets) {
+            stopSoldOut();
+        } else if (ticketsHeld.sum() == 0 && shared.isExhausted(totalTickets) && !stopped.get()) {
+            TicketSystemLogger.warning((totalTickets - sold) + " ticket(s) were taken by a process that stopped " +
+                    "before recording their sale; nothing is left on sale in " + shared.getPath());
+            stopSoldOut();
+        }
+    }
 
+    /**
+     * Hands back part of the ticket limit claimed for tickets that never went, or went back, on sale.
+     *
+     * @param tickets the number of tickets
+     */
+    private void returnQuota(int tickets) {
+        ticketsAdded.addAndGet(-tickets);
+        SharedInventoryFile shared = sharedInventory;
+        if (shared != null) {
+            shared.returnQuota(tickets);
+        }
+    }
+
+    /**
+     * Takes up to {@code count} tickets of any event off sale and holds them for a customer.
+     * The tickets leave availability at once and go back on sale unless the hold is confirmed
+     * with {@link #confirmHold} or given up with {@link #releaseHold} within the hold time.
+     * Like {@link #tryPurchaseTickets} this never waits and gives way to customers in the waiting room.
+     *
+     * @param customerId the ID of the customer
+     * @param count      the number of tickets wanted; fewer are held if a partition has fewer
+     * @param holdTime   how long the tickets are held
+     * @param unit       the unit of the hold time
+     * @return the hold, or null if no tickets are on sale
+     * @throws IllegalStateException if the pool has been closed; any tickets taken are put back on sale
+     */
+    public TicketHold reserveTickets(int customerId, int count, long holdTime, TimeUnit unit) {
+        EventInventory[] partitions = inventories;
+        if (stopped.get() || partitions.length == 0 || !waitingRoom.isEmpty()) {
+            return null;
+        }
+        TicketRing held = takeAvailable(partitions, Math.floorMod(customerId, partitions.length), count);
+        return held == null ? null : hold(customerId, partitions[held.eventIndexAt(0)], count, held, holdTime, unit);
+    }
+
+    /**
+     * Takes up to {@code count} tickets of one event off sale and holds them for a customer.
+     *
+     * @param customerId the ID of the customer
+     * @param eventName  the name of the event
+     * @param count      the number of tickets wanted
+     * @param holdTime   how long the tickets are held
+     * @param unit       the unit of the hold time
+     * @return the hold, or null if the event has no tickets on sale
+     * @throws IllegalArgumentException if the event name is not found
+     * @throws IllegalStateException    if the pool has been closed; any tickets taken are put back on sale
+     */
+    public TicketHold reserveTickets(int customerId, String eventName, int count, long holdTime, TimeUnit unit) {
+        EventInventory inventory = getInventory(eventName);
+        if (stopped.get()) {
+            return null;
+        }
+        TicketRing held = new TicketRing(count);
+        int taken = inventory.take(count, held);
+        if (taken == 0) {
+            return null;
+        }
+        currentTickets.add(-taken);
+        return hold(customerId, inventory, count, held, holdTime, unit);
+    }
+
+    /**
+     * Registers taken tickets as a hold and schedules its expiry.
+     * If the pool was closed meanwhile, the tickets go back on sale before the closed wheel's exception is rethrown.
+     */
+    private TicketHold hold(int customerId, EventInventory inventory, int requested, TicketRing held, long holdTime, TimeUnit unit) {
+        TicketHold hold = new TicketHold(nextHoldId.incrementAndGet(), customerId, inventory, requested, held,
+                System.nanoTime() + unit.toNanos(holdTime));
+        ticketsHeld.add(held.size());
+        try {
+            holdWheel().schedule(hold, holdTime, unit);
+        } catch (IllegalStateException e) {
+            hold.finish(TicketHold.State.RELEASED);
+            returnToPool(hold);
+            throw e;
+        }
+        holdsCreated.increment();
+        TicketSystemLogger.info(() -> "Customer " + customerId + " is holding " + held.size() + " ticket(s) for " +
+                inventory.getEventName() + " (hold #" + hold.getHoldId() + ", " + unit.toMillis(holdTime) + " ms)");
+        return hold;
+    }
+
+    /**
+     * Buys the tickets of a hold.
+     *
+     * @param hold the hold to confirm
+     * @return false if the hold had already expired or been released, so nothing was bought
+     * @throws InterruptedException if interrupted while handing the transactions to the writer
+     */
+    public boolean confirmHold(TicketHold hold) throws InterruptedException {
+        if (!hold.finish(TicketHold.State.CONFIRMED)) {
+            return false;
+        }
+        holdWheel().cancel(hold);
+        ticketsHeld.add(-hold.getTicketCount());
+        holdsConfirmed.increment();
+        completePurchase(hold.getCustomerId(), hold.getInventory(), hold.getRequested(), hold.getTickets());
+        return true;
+    }
+
+    /**
+     * Gives up a hold, putting its tickets back on sale.
+     *
+     * @param hold the hold to release
+     * @return false if the hold had already been confirmed, released or expired
+     */
+    public boolean releaseHold(TicketHold hold) {
+        if (!hold.finish(TicketHold.State.RELEASED)) {
+            return false;
+        }
+        holdWheel().cancel(hold);
+        holdsReleased.increment();
+        returnToPool(hold);
+        TicketSystemLogger.info(() -> "Customer " + hold.getCustomerId() + " released hold #" + hold.getHoldId());
+        return true;
+    }
+
+    /**
+     * Called by the timing wheel when a hold was neither confirmed nor released in time.
+     */
+    private void expireHold(TicketHold hold) {
+        if (hold.finish(TicketHold.State.EXPIRED)) {
+            holdsExpired.increment();
+            returnToPool(hold);
+            TicketSystemLogger.info(() -> "Hold #" + hold.getHoldId() + " of customer " + hold.getCustomerId() +
+                    " expired; " + hold.getTicketCount() + " ticket(s) are back on sale for " + hold.getEventName());
+        }
+    }
+
+    /**
+     * Puts a hold's tickets back into their partition. Tickets that no longer fit are dropped,
+     * handing their share of the ticket limit and capacity back so vendors can release them again.
+     */
+    private void returnToPool(TicketHold hold) {
+        int count = hold.getTicketCount();
+        ticketsHeld.add(-count);
+        int restored = hold.getInventory().restore(hold.getTickets());
+        currentTickets.add(restored);
+        if (restored < count) {
+            int dropped = count - restored;
+            returnQuota(dropped);
+            CapacityGate gate = capacityGate;
+            if (gate != null) {
+                gate.release(dropped);
+            }
+            TicketSystemLogger.warning("Partition for " + hold.getEventName() + " is full; " + dropped + " held ticket(s) were dropped.");
+        }
+        waitingMessageLogged = false;
+    }
+
+    /**
+     * Returns the timing wheel for holds, starting it on first use.
+     */
+    private TimingWheel<TicketHold> holdWheel() {
+        TimingWheel<TicketHold> wheel = holdWheel;
+        if (wheel == null) {
+            synchronized (this) {
+                wheel = holdWheel;
+                if (wheel == null) {
+                    wheel = new TimingWheel<>("ticket-hold-wheel", Long.getLong("ticket.hold.tickMillis", 10),
+                            TimeUnit.MILLISECONDS, Integer.getInteger("ticket.hold.wheelSize", 512), this::expireHold);
+                    holdWheel = wheel;
                 }
-            } finally {
-                lock.unlock(); // Ensure the lock is always released
             }
+        }
+        return wheel;
+    }
 
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt(); // Restore the interrupt status
+    /**
+     * Summarises the holds made so far.
+     *
+     * @return a one-line hold report
+     */
+    public String describeHolds() {
+        return "Holds: " + holdsCreated.sum() + " created, " + holdsConfirmed.sum() + " confirmed, " +
+                holdsReleased.sum() + " released, " + holdsExpired.sum() + " expired | " +
+                ticketsHeld.sum() + " ticket(s) held now";
+    }
+
+    /**
+     * Credits sold tickets to their vendors and the sales analytics, one update per run of
+     * tickets from the same vendor.
+     */
+    private void countVendorSales(String eventName, TicketRing purchased, int bought) {
+        int runStart = 0;
+        long runCents = 0;
+        for (int i = 0; i < bought; i++) {
+            runCents += purchased.priceCentsAt(i);
+            if (i + 1 == bought || purchased.vendorIdAt(i + 1) != purchased.vendorIdAt(runStart)) {
+                int vendorId = purchased.vendorIdAt(runStart);
+                metrics.vendorSold(vendorId, i + 1 - runStart);
+                analytics.recordSale(eventName, vendorId, i + 1 - runStart, runCents);
+                runStart = i + 1;
+                runCents = 0;
+            }
+        }
+    }
+
+    /**
+     * Formats the stage latencies and the per-event and per-vendor counters.
+     * Safe to call while the pool is running; counters are read without stopping anyone.
+     *
+     * @return a multi-line metrics report
+     */
+    public String describeMetrics() {
+        StringBuilder report = new StringBuilder("Purchase pipeline latencies:\n");
+        report.append(metrics.isEnabled() ? metrics.describeStages() : "(metrics are off)\n");
+        // Large catalogs list their first events and vendors and total the rest
+        int listed = TicketPoolConfiguration.LISTED_EVENTS;
+        report.append("Events:\n");
+        long released = 0;
+        long sold = 0;
+        for (int i = 0; i < inventories.length; i++) {
+            EventInventory inventory = inventories[i];
+            if (i < listed) {
+                report.append(String.format("  %-20s released: %d | sold: %d | on sale: %d | revenue: $%.2f%n",
+                        inventory.getEventName(), inventory.getTicketsReleased(), inventory.getTicketsSold(),
+                        inventory.size(), inventory.getRevenueCents() / 100.0));
+            } else {
+                released += inventory.getTicketsReleased();
+                sold += inventory.getTicketsSold();
+            }
+        }
+        if (inventories.length > listed) {
+            report.append(String.format("  ... %d more event(s) released: %d | sold: %d%n", inventories.length - listed, released, sold));
+        }
+        report.append("Vendors:\n");
+        int vendor = 0;
+        released = 0;
+        sold = 0;
+        for (Map.Entry<Integer, TicketMetrics.VendorCounters> entry : new TreeMap<>(metrics.getVendors()).entrySet()) {
+            TicketMetrics.VendorCounters counters = entry.getValue();
+            if (vendor++ < listed) {
+                report.append(String.format("  Vendor %-5d released: %d | sold: %d%n",
+                        entry.getKey(), counters.getReleased(), counters.getSold()));
+            } else {
+                released += counters.getReleased();
+                sold += counters.getSold();
+            }
+        }
+        if (vendor > listed) {
+            report.append(String.format("  ... %d more vendor(s) released: %d | sold: %d%n", vendor - listed, released, sold));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Logs that customers are waiting, only once until the next tickets are added.
+     */
+    private void logWaiting() {
+        if (!waitingMessageLogged) {
+            TicketSystemLogger.info("Customers are waiting for tickets to become available.");
+            waitingMessageLogged = true; // Set the flag to prevent duplicate logging
         }
+    }
 
+    /**
+     * Looks up the inventory partition for an event.
+     *
+     * @param eventName the name of the event
+     * @return the event's partition
+     * @throws IllegalArgumentException if the event has no partition
+     */
+    private EventInventory getInventory(String eventName) {
+        EventInventory inventory = inventoriesByName.get(eventName);
+        if (inventory == null) {
+            throw new IllegalArgumentException("Event name not found: " + eventName);
+        }
+        return inventory;
     }
 
     /**
@@ -276,32 +1015,104 @@ public class TicketPool {
         }
 
         // Clear all internal state
-        lock.lock();
-        try {
-            // Reset counters
-            ticketsAdded = 0;
-            ticketsSold = 0;
-            currentTickets = 0;
+        // Reset counters
+        ticketsAdded.set(0);
+        ticketsSold.reset();
+        currentTickets.reset();
 
-            // Clear ticket pool
-            ticketPool.clear();
-            ticketsAvailable = new Semaphore(0);
-            customerQueue.clear();
+        // Clear ticket pool, dropping partitions so a new event list can be picked up
+        for (EventInventory inventory : inventories) {
+            inventory.clear();
+        }
+        inventories = new EventInventory[0];
+        inventoriesByName.clear();
+        // Outstanding holds refer to the dropped partitions; end them without returning their tickets
+        TimingWheel<TicketHold> wheel = holdWheel;
+        if (wheel != null) {
+            for (TicketHold hold : wheel.clear()) {
+                hold.finish(TicketHold.State.RELEASED);
+            }
+        }
+        ticketsHeld.reset();
+        holdsCreated.reset();
+        holdsConfirmed.reset();
+        holdsReleased.reset();
+        holdsExpired.reset();
+        metrics.reset();
+        analytics.reset();
+        capacityGate = null;
 
-            // Clear thread lists
-            vendorThreads.clear();
-            customerThreads.clear();
 
-            // Reset running and stopped flags
-            running = false;
-            stopped = false;
+        // Reset running and stopped flags
+        running = false;
+        stopped.set(false);
 
-            // Clear all transactions from the transactions table in the database.
-            database.clearTransactionsTable();
+        // Clear all transactions from the transactions table in the database,
+        // after anything still queued has been written so it cannot reappear.
+        drainTransactions();
+        database.clearTransactionsTable();
+    }
 
-        } finally {
-            lock.unlock();
+    /**
+     * Stops ticket handling if it is running, waits for the vendors and customers to finish,
+     * and shuts down the write-behind sink, writing any transactions still queued.
+     * The database itself is left open.
+     */
+    public void close() {
+        if (running) {
+            stopTicketHandling();
         }
+        // An actor that stopped the system itself may still be finishing its purchase
+        actorRunner.awaitStopped();
+        TimingWheel<TicketHold> wheel = holdWheel;
+        if (wheel != null) {
+            wheel.close();
+        }
+        SharedInventoryFile shared = sharedInventory;
+        if (shared != null) {
+            shared.close();
+        }
+        transactionWriter.close();
+    }
+
+    /**
+     * Chooses how vendors and customers are run from the next start.
+     *
+     * @param mode     the execution mode
+     * @param poolSize the number of pool threads in BOUNDED mode
+     */
+    public void setExecutionMode(ExecutionMode mode, int poolSize) {
+        if (running) {
+            throw new IllegalStateException("Cannot change the execution mode while the system is running.");
+        }
+        actorRunner = new ActorRunner(mode, poolSize);
+    }
+
+    /**
+     * Sets how many customers are started on the next start.
+     *
+     * @param customerCount the number of customers
+     */
+    public void setCustomerCount(int customerCount) {
+        if (customerCount < 1) {
+            throw new IllegalArgumentException("Customer count must be at least 1.");
+        }
+        this.customerCount = customerCount;
+    }
+
+    /**
+     * Logs the tickets sold per second since the system was started.
+     */
+    private void logThroughput() {
+        double seconds = (System.nanoTime() - runStartNanos) / 1e9;
+        long sold = ticketsSold.sum() - soldAtStart;
+        TicketSystemLogger.info(String.format("Throughput: %d ticket(s) sold in %.2f s (%.1f tickets/sec) by %d customers on %s execution",
+                sold, seconds, seconds > 0 ? sold / seconds : 0.0, customerCount, actorRunner.getMode()));
+    }
+
+    // Checks whether an event is still being released
+    public boolean isEventActive(int eventId) {
+        return !configuration.snapshot().isRetired(eventId);
     }
 
     // Getters for configuration rates and ticket statistics
@@ -311,8 +1122,76 @@ public class TicketPool {
     public int getTicketReleaseRate() {
         return configuration.getTicketReleaseRate();
     }
+
+    // How often each vendor releases: the release rate per 30 seconds, unless overridden
+    public double getVendorStepsPerSecond() {
+        return vendorStepsOverride > 0 ? vendorStepsOverride : configuration.getTicketReleaseRate() / 30.0;
+    }
+
+    // How often each customer tries to buy: the retrieval rate per 30 seconds, unless overridden
+    public double getCustomerStepsPerSecond() {
+        return customerStepsOverride > 0 ? customerStepsOverride : configuration.getCustomerRetrievalRate() / 30.0;
+    }
     public int getTicketsSold() {
-        return ticketsSold;
+        return ticketsSold.intValue();
+    }
+    public long getCurrentTickets() {
+        return sharedInventory != null ? sharedCurrentTickets() : currentTickets.sum();
+    }
+
+    // Tickets on sale in the shared file, whichever process released them
+    private long sharedCurrentTickets() {
+        long total = 0;
+        for (EventInventory inventory : inventories) {
+            total += inventory.size();
+        }
+        return total;
+    }
+
+    public SharedInventoryFile getSharedInventory() {
+        return sharedInventory;
+    }
+
+    public long getTicketsHeld() {
+        return ticketsHeld.sum();
+    }
+
+    public int getTicketsAdded() {
+        return ticketsAdded.get();
+    }
+
+    // Checks whether the ticket limit has been sold and the pool has stopped selling
+    public boolean isSoldOut() {
+        return stopped.get();
+    }
+
+    // Reservation CAS retries summed over every event partition
+    public long getReservationRetries() {
+        long total = 0;
+        for (EventInventory inventory : inventories) {
+            total += inventory.getReservationRetries();
+        }
+        return total;
+    }
+
+    public WaitingRoom getWaitingRoom() {
+        return waitingRoom;
+    }
+
+    public CapacityGate getCapacityGate() {
+        return capacityGate;
+    }
+
+    public TicketMetrics getMetrics() {
+        return metrics;
+    }
+
+    public SalesAnalytics getAnalytics() {
+        return analytics;
+    }
+
+    public TransactionWriter getTransactionWriter() {
+        return transactionWriter;
     }
 
     public int getTotalTickets() {
@@ -323,9 +1202,13 @@ public class TicketPool {
      * Logs the current ticket pool status, including available tickets, added tickets, and sold tickets.
      */
     private void logCurrentTickets() {
-        TicketSystemLogger.info(String.format("Ticket Pool Status - Current Tickets: %d | Total Tickets Added: %d | Total Tickets Sold: %d",
-                currentTickets,
-                ticketsAdded,
-                ticketsSold));
+        if (!TicketSystemLogger.isLoggable(Level.INFO)) {
+            return;
+        }
+        // Snapshot the counters now; formatting happens when the message is written
+        TicketSystemLogger.info("Ticket Pool Status - Current Tickets: %d | Total Tickets Added: %d | Total Tickets Sold: %d",
+                currentTickets.sum(),
+                ticketsAdded.get(),
+                ticketsSold.sum());
     }
 }
\ No newline at end of file
@@ -3,32 +3,50 @@
  * URL: https://github.com/Pavith19
  */
 
-import java.util.HashMap;
+import java.util.DoubleSummaryStatistics;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.Scanner;
 
 /**
  * Class to configure the ticket pool system, including setting ticket release rates, retrieval rates,
  * and event prices. It also manages the database interactions related to the configuration.
+ * Every change is compiled into an immutable {@link ConfigurationSnapshot} published through one
+ * volatile field; the getters read that snapshot, so running vendors and customers always see a
+ * consistent configuration without locking or copying.
  */
 public class TicketPoolConfiguration {
+    // Upper limit for the total number of tickets entered in the wizard
+    static final int MAX_TOTAL_TICKETS = 1_000_000;
+    // Upper limits for the number of events typed into the wizard and held by any configuration
+    private static final int MAX_WIZARD_EVENTS = 20;
+    static final int MAX_EVENTS = 100_000;
+    // Events listed one by one in displays and logs; larger catalogs are summarised
+    static final int LISTED_EVENTS = 20;
+
     private int totalTickets;
     private int ticketReleaseRate;
     private int customerRetrievalRate;
     private int maxTicketCapacity;
-    private final Map<String, Double> eventPrices = new HashMap<>();
-    private boolean configured = false;
+    // Insertion order, which fixes the event IDs in the snapshot
+    private final Map<String, Double> eventPrices = new LinkedHashMap<>();
+    // Events retired by a live reconfiguration; they keep their place, and so their ID, in eventPrices
+    private final Set<String> retiredEvents = new HashSet<>();
+    private volatile boolean configured = false;
+
+    // The configuration as readers see it, replaced whole on every change
+    private volatile ConfigurationSnapshot snapshot = ConfigurationSnapshot.EMPTY;
 
     /**
      * Configures the ticket system by loading existing configuration from the database,
      * allowing reconfiguration if desired, and asking the user for inputs for various system settings.
+     * Stored transactions are kept when the existing configuration is, and cleared when it is replaced.
      * @param scanner the Scanner object to read user inputs
      * @param database the Database object to interact with the system's database
      */
-    public void configureSystem(Scanner scanner, Database database) {
-
-        // Clear any previous transactions in the database
-        database.clearTransactionsTable();
+    public void configureSystem(Scanner scanner, DatabaseInterface database) {
 
         // Load existing configuration from the database
         if (database.loadConfiguration(this)) {
@@ -57,10 +75,9 @@ public class TicketPoolConfiguration {
                 configured = true;
                 return;
             }
-            // Clear all previous event records in the events table
-            database.clearEventsTable();
-            // Clear the eventPrices map to reset event details
+            // Clear the eventPrices map to reset event details; the saved events are replaced at the end
             eventPrices.clear();
+            retiredEvents.clear();
         }else {
             System.out.println("\nNo existing configuration found. Let's configure the system...");
         }
@@ -71,10 +88,10 @@ public class TicketPoolConfiguration {
         maxTicketCapacity = getValidInput(scanner, 10, 10000,
                 "Max ticket capacity must be between 10 and 10000.");
 
-        // Get total tickets with context of max capacity
-        System.out.printf(">> Enter total number of tickets (min: 1, max: %d): ", maxTicketCapacity);
-        totalTickets = getValidInput(scanner, 1, maxTicketCapacity,
-                "Total tickets must be between 1 and " + maxTicketCapacity + ".");
+        // Get total tickets; max capacity only bounds how many are on sale at once
+        System.out.printf(">> Enter total number of tickets (min: 1, max: %d): ", MAX_TOTAL_TICKETS);
+        totalTickets = getValidInput(scanner, 1, MAX_TOTAL_TICKETS,
+                "Total tickets must be between 1 and " + MAX_TOTAL_TICKETS + ".");
 
         // Ticket release rate input
         while (true) {
@@ -93,9 +110,9 @@ public class TicketPoolConfiguration {
         }
 
         // Configure events and their prices
-        System.out.print("\n>> Enter the number of events (min: 1, max: 20): ");
-        int eventCount = getValidInput(scanner, 1, 20,
-                "Number of events must be between 1 and 20.");
+        System.out.print("\n>> Enter the number of events (min: 1, max: " + MAX_WIZARD_EVENTS + "): ");
+        int eventCount = getValidInput(scanner, 1, MAX_WIZARD_EVENTS,
+                "Number of events must be between 1 and " + MAX_WIZARD_EVENTS + ".");
 
         for (int i = 1; i <= eventCount; i++) {
             // Event name input
@@ -126,9 +143,6 @@ public class TicketPoolConfiguration {
             double price = getValidDoubleInput(scanner, 1, 10000,
                     "Ticket price must be between $1 and $10,000.");
 
-            // Save event details to the database
-            database.saveEventDetails(i, eventName, price);
-
             // Store in memory for runtime usage
             eventPrices.put(eventName, price);
         }
@@ -146,9 +160,175 @@ public class TicketPoolConfiguration {
             TicketSystemLogger.info("Event: " + entry.getKey() + " | Ticket Price: $" + String.format("%.2f", entry.getValue()));
         }
 
-        database.saveConfiguration(totalTickets, ticketReleaseRate, customerRetrievalRate, maxTicketCapacity);
+        // Transactions of the previous configuration are cleared only once it is replaced
+        database.clearTransactionsTable();
+        database.replaceConfiguration(totalTickets, ticketReleaseRate, customerRetrievalRate, maxTicketCapacity, eventPrices);
         System.out.println("\nSystem configured successfully.\n");
+        publish();
+        configured = true;
+    }
+
+    /**
+     * Replaces the whole configuration without asking anything, as loaded from a file by
+     * {@link ConfigurationImporter}, and saves it with one {@link DatabaseInterface#replaceConfiguration} call.
+     * Everything is validated before anything is changed.
+     *
+     * @param totalTickets          the total number of tickets
+     * @param ticketReleaseRate     the ticket release rate
+     * @param customerRetrievalRate the customer retrieval rate
+     * @param maxTicketCapacity     the max ticket capacity
+     * @param prices                the ticket price of each event, in event ID order
+     * @param database              where the configuration is saved
+     * @return the published snapshot
+     * @throws IllegalArgumentException if any setting or event is invalid
+     */
+    public synchronized ConfigurationSnapshot importConfiguration(int totalTickets, int ticketReleaseRate,
+                                                                  int customerRetrievalRate, int maxTicketCapacity,
+                                                                  Map<String, Double> prices, DatabaseInterface database) {
+        if (maxTicketCapacity < 10 || maxTicketCapacity > 10000) {
+            throw new IllegalArgumentException("Max ticket capacity must be between 10 and 10000.");
+        }
+        if (totalTickets < 1 || totalTickets > MAX_TOTAL_TICKETS) {
+            throw new IllegalArgumentException("Total tickets must be between 1 and " + MAX_TOTAL_TICKETS + ".");
+        }
+        if (ticketReleaseRate < 1 || ticketReleaseRate > totalTickets) {
+            throw new IllegalArgumentException("Ticket release rate must be between 1 and " + totalTickets + " tickets.");
+        }
+        if (customerRetrievalRate < 1 || customerRetrievalRate > totalTickets) {
+            throw new IllegalArgumentException("Customer retrieval rate must be between 1 and " + totalTickets + " tickets.");
+        }
+        if (prices.isEmpty() || prices.size() > MAX_EVENTS) {
+            throw new IllegalArgumentException("Number of events must be between 1 and " + MAX_EVENTS + ".");
+        }
+        Set<String> names = new HashSet<>();
+        for (Map.Entry<String, Double> entry : prices.entrySet()) {
+            String problem = checkEvent(entry.getKey(), entry.getValue());
+            if (problem != null) {
+                throw new IllegalArgumentException(problem);
+            }
+            if (!names.add(entry.getKey().toLowerCase())) {
+                throw new IllegalArgumentException("An event with this name already exists: " + entry.getKey());
+            }
+        }
+
+        database.replaceConfiguration(totalTickets, ticketReleaseRate, customerRetrievalRate, maxTicketCapacity, prices);
+        this.totalTickets = totalTickets;
+        this.ticketReleaseRate = ticketReleaseRate;
+        this.customerRetrievalRate = customerRetrievalRate;
+        this.maxTicketCapacity = maxTicketCapacity;
+        eventPrices.clear();
+        eventPrices.putAll(prices);
+        retiredEvents.clear();
+        publish();
         configured = true;
+        TicketSystemLogger.info("System Configured From Import - Total Tickets: " + totalTickets +
+                ", Max Ticket Capacity: " + maxTicketCapacity + ", Ticket Release Rate: " + ticketReleaseRate +
+                ", Customer Retrieval Rate: " + customerRetrievalRate + ", Events: " + prices.size());
+        return snapshot;
+    }
+
+    /**
+     * Checks an event name and ticket price against the limits the wizard enforces.
+     *
+     * @param eventName the event name
+     * @param price     the ticket price
+     * @return what is wrong with the event, or null if it is valid
+     */
+    static String checkEvent(String eventName, double price) {
+        if (eventName.length() < 3 || eventName.length() > 20) {
+            return "Invalid event name. Must be between 3 and 20 characters.";
+        }
+        if (!(price >= 1 && price <= 10000)) {
+            return "Ticket price must be between $1 and $10,000.";
+        }
+        return null;
+    }
+
+    /**
+     * Compiles the current settings into a new snapshot and publishes it.
+     */
+    private synchronized void publish() {
+        snapshot = new ConfigurationSnapshot(totalTickets, ticketReleaseRate, customerRetrievalRate,
+                maxTicketCapacity, eventPrices, retiredEvents);
+    }
+
+    /**
+     * Applies a set of changes as one new snapshot, so readers see either none or all of them,
+     * and saves the resulting configuration. Every change is validated and the result saved
+     * before anything is published, so a rejected or unsaved change leaves nothing changed.
+     *
+     * @param change   the changes to apply
+     * @param database where the new configuration is saved
+     * @return the published snapshot
+     * @throws IllegalArgumentException if any change is invalid
+     * @throws IllegalStateException    if the new configuration could not be saved
+     */
+    public synchronized ConfigurationSnapshot apply(ConfigurationChange change, DatabaseInterface database) {
+        Integer releaseRate = change.getTicketReleaseRate();
+        if (releaseRate != null && (releaseRate < 1 || releaseRate > totalTickets)) {
+            throw new IllegalArgumentException("Ticket release rate must be between 1 and " + totalTickets + " tickets.");
+        }
+        Integer retrievalRate = change.getCustomerRetrievalRate();
+        if (retrievalRate != null && (retrievalRate < 1 || retrievalRate > totalTickets)) {
+            throw new IllegalArgumentException("Customer retrieval rate must be between 1 and " + totalTickets + " tickets.");
+        }
+        int activeEvents = eventPrices.size() - retiredEvents.size();
+        Set<String> addedNames = new HashSet<>();
+        for (Map.Entry<String, Double> entry : change.getEventPrices().entrySet()) {
+            String eventName = entry.getKey();
+            if (entry.getValue() < 1 || entry.getValue() > 10000) {
+                throw new IllegalArgumentException("Ticket price must be between $1 and $10,000.");
+            }
+            if (retiredEvents.contains(eventName)) {
+                throw new IllegalArgumentException("Event " + eventName + " has been retired and cannot be changed.");
+            }
+            if (!eventPrices.containsKey(eventName)) {
+                String problem = checkEvent(eventName, entry.getValue());
+                if (problem != null) {
+                    throw new IllegalArgumentException(problem);
+                }
+                if (!addedNames.add(eventName.toLowerCase())
+                        || eventPrices.keySet().stream().anyMatch(existingName -> existingName.equalsIgnoreCase(eventName))) {
+                    throw new IllegalArgumentException("An event with this name already exists: " + eventName);
+                }
+                activeEvents++;
+            }
+        }
+        for (String eventName : change.getRetiredEvents()) {
+            if (!eventPrices.containsKey(eventName) && !change.getEventPrices().containsKey(eventName)) {
+                throw new IllegalArgumentException("Event name not found: " + eventName);
+            }
+            if (!retiredEvents.contains(eventName)) {
+                activeEvents--;
+            }
+        }
+        if (activeEvents < 1 || activeEvents > MAX_EVENTS) {
+            throw new IllegalArgumentException("Number of events must be between 1 and " + MAX_EVENTS + ".");
+        }
+
+        int newReleaseRate = releaseRate != null ? releaseRate : ticketReleaseRate;
+        int newRetrievalRate = retrievalRate != null ? retrievalRate : customerRetrievalRate;
+        Map<String, Double> newPrices = new LinkedHashMap<>(eventPrices);
+        newPrices.putAll(change.getEventPrices());
+        Set<String> newRetired = new HashSet<>(retiredEvents);
+        newRetired.addAll(change.getRetiredEvents());
+        ConfigurationSnapshot next = new ConfigurationSnapshot(totalTickets, newReleaseRate, newRetrievalRate,
+                maxTicketCapacity, newPrices, newRetired);
+
+        // Save what a restart should load, the new rates and the events still being released, before readers see it
+        try {
+            database.replaceConfiguration(totalTickets, newReleaseRate, newRetrievalRate, maxTicketCapacity,
+                    next.getEventPrices());
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("The configuration could not be saved: " + e.getMessage() + ".", e);
+        }
+
+        ticketReleaseRate = newReleaseRate;
+        customerRetrievalRate = newRetrievalRate;
+        eventPrices.putAll(change.getEventPrices());
+        retiredEvents.addAll(change.getRetiredEvents());
+        snapshot = next;
+        return next;
     }
 
     /**
@@ -210,58 +390,81 @@ public class TicketPoolConfiguration {
         System.out.println("Max Ticket Capacity: " + maxTicketCapacity);
 
         System.out.println("\n< Events and Prices >");
-        if (eventPrices.isEmpty()) {
+        if (getEventPrices().isEmpty()) {
             System.out.println("No events configured yet.");
         } else {
-            eventPrices.forEach((eventName, price) ->
-                    System.out.println("Event: " + eventName + " | Ticket Price: ₹" + String.format("%.2f", price))
+            Map<String, Double> prices = getEventPrices();
+            prices.entrySet().stream().limit(LISTED_EVENTS).forEach(entry ->
+                    System.out.println("Event: " + entry.getKey() + " | Ticket Price: ₹" + String.format("%.2f", entry.getValue()))
             );
+            if (prices.size() > LISTED_EVENTS) {
+                DoubleSummaryStatistics range = prices.values().stream().mapToDouble(Double::doubleValue).summaryStatistics();
+                System.out.println("... and " + (prices.size() - LISTED_EVENTS) + " more event(s); " + prices.size() +
+                        " in all, priced ₹" + String.format("%.2f", range.getMin()) + " to ₹" + String.format("%.2f", range.getMax()));
+            }
         }
     }
 
-    // Getters for the configuration properties
+    // Getters for the configuration properties, read from the published snapshot
+    public ConfigurationSnapshot snapshot() {
+        return snapshot;
+    }
+
     public int getTotalTickets() {
-        return totalTickets;
+        return snapshot.getTotalTickets();
     }
 
     public int getTicketReleaseRate() {
-        return ticketReleaseRate;
+        return snapshot.getTicketReleaseRate();
     }
 
     public int getCustomerRetrievalRate() {
-        return customerRetrievalRate;
+        return snapshot.getCustomerRetrievalRate();
     }
 
     public int getMaxTicketCapacity() {
-        return maxTicketCapacity;
+        return snapshot.getMaxTicketCapacity();
     }
 
+    // Read-only view of the events and prices, in event ID order
     public Map<String, Double> getEventPrices() {
-        return new HashMap<>(eventPrices);
+        return snapshot.getEventPrices();
     }
 
     public boolean isConfigured() {
         return configured;
     }
 
-    // Setter methods for the configuration properties
-    public void setTotalTickets(int totalTickets) {
+    // Setter methods for the configuration properties; each publishes a new snapshot
+    public synchronized void setTotalTickets(int totalTickets) {
         this.totalTickets = totalTickets;
+        publish();
     }
 
-    public void setTicketReleaseRate(int ticketReleaseRate) {
+    public synchronized void setTicketReleaseRate(int ticketReleaseRate) {
         this.ticketReleaseRate = ticketReleaseRate;
+        publish();
     }
 
-    public void setCustomerRetrievalRate(int customerRetrievalRate) {
+    public synchronized void setCustomerRetrievalRate(int customerRetrievalRate) {
         this.customerRetrievalRate = customerRetrievalRate;
+        publish();
     }
-    public void setMaxTicketCapacity(int maxTicketCapacity) {
+
+    public synchronized void setMaxTicketCapacity(int maxTicketCapacity) {
         this.maxTicketCapacity = maxTicketCapacity;
+        publish();
     }
 
-    public void addEventPrice(String eventName, double price) {
+    public synchronized void addEventPrice(String eventName, double price) {
         this.eventPrices.put(eventName, price);
+        publish();
+    }
+
+    // Adds a whole catalog with one snapshot; adding it event by event copies it once per event
+    public synchronized void addEventPrices(Map<String, Double> prices) {
+        this.eventPrices.putAll(prices);
+        publish();
     }
 
     public void setConfigured(boolean configured) {
@@ -0,0 +1,113 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free multi-producer/multi-consumer FIFO of one event's tickets.
+ * Each slot carries a sequence number that tells producers whether it is free and consumers
+ * whether it has been published (Dmitry Vyukov's bounded MPMC queue). Producers and consumers
+ * claim positions with a CAS on their own counter and never block one another; ticket data is
+ * stored in primitive arrays and published by a release store of the slot's sequence.
+ */
+public class TicketQueue {
+    // Spins before a consumer waiting for a slot still being written yields its CPU
+    private static final int SPINS_BEFORE_YIELD = 64;
+
+    private final AtomicLongArray sequences;
+    private final int[] vendorIds;
+    private final long[] priceCents;
+    private final int mask;
+
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private final AtomicLong dequeuePosition = new AtomicLong();
+
+    /**
+     * Constructs a queue holding at least the given number of tickets.
+     *
+     * @param capacity the number of tickets the queue must hold, rounded up to a power of two
+     */
+    public TicketQueue(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Ticket queue capacity must be between 1 and 2^30: " + capacity);
+        }
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        vendorIds = new int[size];
+        priceCents = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Appends a ticket if there is room.
+     *
+     * @param vendorId the ID of the vendor releasing the ticket
+     * @param cents    the price of the ticket in cents
+     * @return false if the queue is full
+     */
+    public boolean offer(int vendorId, long cents) {
+        while (true) {
+            long position = enqueuePosition.get();
+            int slot = (int) position & mask;
+            long difference = sequences.getAcquire(slot) - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    vendorIds[slot] = vendorId;
+                    priceCents[slot] = cents;
+                    sequences.setRelease(slot, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false; // The slot still holds a ticket from the previous lap
+            }
+            // Otherwise another producer took this position; retry with a fresh one
+        }
+    }
+
+    /**
+     * Removes the oldest ticket and appends it to a ring.
+     * The caller must already have reserved a published ticket, so one is always coming:
+     * if its slot is still being written, this spins until the producer publishes it.
+     *
+     * @param eventIndex the event index stored with the ticket in the target ring
+     * @param target     the ring receiving the ticket
+     */
+    public void pollReservedInto(int eventIndex, TicketRing target) {
+        long position = dequeuePosition.getAndIncrement();
+        int slot = awaitPublished(position);
+        target.add(eventIndex, vendorIds[slot], priceCents[slot], 1);
+        sequences.setRelease(slot, position + mask + 1);
+    }
+
+    /**
+     * Removes the oldest ticket without reading it. The caller must already have reserved it.
+     */
+    public void discardReserved() {
+        long position = dequeuePosition.getAndIncrement();
+        sequences.setRelease(awaitPublished(position), position + mask + 1);
+    }
+
+    /**
+     * Waits for the producer that claimed a position to publish its ticket.
+     *
+     * @param position the dequeue position
+     * @return the slot holding the ticket
+     */
+    private int awaitPublished(long position) {
+        int slot = (int) position & mask;
+        int spins = 0;
+        while (sequences.getAcquire(slot) != position + 1) {
+            if (++spins < SPINS_BEFORE_YIELD) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        return slot;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
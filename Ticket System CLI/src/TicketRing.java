@@ -0,0 +1,122 @@
+/**
+ * Primitive FIFO store of tickets backed by parallel arrays arranged as a ring.
+ * Each ticket is an event index, a vendor ID and a price in cents, so adding tickets
+ * is O(1) and allocates nothing once the ring has grown to its working size.
+ * The ring is not thread-safe: it holds the tickets of one purchase or hold and belongs to
+ * the thread that made it, while tickets on sale live in each event's {@link TicketQueue}.
+ */
+public class TicketRing {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] eventIndexes;
+    private int[] vendorIds;
+    private long[] priceCents;
+    private int mask;
+    private int head = 0; // Position of the oldest ticket
+    private int size = 0; // Number of tickets in the ring
+
+    /**
+     * Constructs a ring with a small default capacity.
+     */
+    public TicketRing() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a ring able to hold at least the given number of tickets before growing.
+     *
+     * @param initialCapacity the expected number of tickets
+     */
+    public TicketRing(int initialCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, initialCapacity - 1)) << 1;
+        eventIndexes = new int[capacity];
+        vendorIds = new int[capacity];
+        priceCents = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Appends tickets with identical details to the tail of the ring.
+     *
+     * @param eventIndex the index of the event
+     * @param vendorId   the ID of the vendor releasing the tickets
+     * @param cents      the price of each ticket in cents
+     * @param count      the number of tickets to append
+     */
+    public void add(int eventIndex, int vendorId, long cents, int count) {
+        ensureCapacity(size + count);
+        for (int i = 0; i < count; i++) {
+            int slot = (head + size) & mask;
+            eventIndexes[slot] = eventIndex;
+            vendorIds[slot] = vendorId;
+            priceCents[slot] = cents;
+            size++;
+        }
+    }
+
+    /**
+     * Removes every ticket while keeping the allocated arrays for reuse.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    // Accessors for the ticket at a position counted from the head
+    public int eventIndexAt(int position) {
+        return eventIndexes[slot(position)];
+    }
+
+    public int vendorIdAt(int position) {
+        return vendorIds[slot(position)];
+    }
+
+    public long priceCentsAt(int position) {
+        return priceCents[slot(position)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Maps a position counted from the head to an array slot.
+     */
+    private int slot(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " outside ring of size " + size);
+        }
+        return (head + position) & mask;
+    }
+
+    /**
+     * Doubles the arrays until the ring can hold {@code required} tickets, unrolling the wrap-around.
+     */
+    private void ensureCapacity(int required) {
+        if (required <= eventIndexes.length) {
+            return;
+        }
+        int capacity = eventIndexes.length;
+        while (capacity < required) {
+            capacity <<= 1;
+        }
+        int[] newEventIndexes = new int[capacity];
+        int[] newVendorIds = new int[capacity];
+        long[] newPriceCents = new long[capacity];
+        for (int i = 0; i < size; i++) {
+            int slot = (head + i) & mask;
+            newEventIndexes[i] = eventIndexes[slot];
+            newVendorIds[i] = vendorIds[slot];
+            newPriceCents[i] = priceCents[slot];
+        }
+        eventIndexes = newEventIndexes;
+        vendorIds = newVendorIds;
+        priceCents = newPriceCents;
+        mask = capacity - 1;
+        head = 0;
+    }
+}
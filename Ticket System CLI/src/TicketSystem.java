@@ -3,7 +3,10 @@
  * URL: https://github.com/Pavith19
  */
 
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main class for the Ticket System application.
@@ -15,13 +18,39 @@ public class TicketSystem {
      * Entry point of the Ticket System application.
      * Initializes the TicketPool, Database, and manages user input through a menu-driven interface.
      *
-     * @param args Command-line arguments (not used in this context).
+     * With {@code --load} as the first argument, runs a headless load test instead; see {@link LoadGenerator}.
+     * With {@code --simulate}, replays an on-sale on a virtual clock; see {@link Simulation}.
+     * With {@code --export}, writes every sold order to a file; see {@link OrderExporter}.
+     * With {@code --import}, saves a configuration and event catalog read from files; see {@link ConfigurationImporter}.
+     *
+     * @param args Command-line arguments: none for the interactive menu, or {@code --load}, {@code --simulate},
+     *             {@code --export} or {@code --import} followed by their options.
      */
     public static void main(String[] args) {
-        // Initialize input scanner, ticket pool, and database
+        if (args.length > 0 && args[0].equals("--load")) {
+            runLoadTest(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--simulate")) {
+            runSimulation(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--export")) {
+            runExport(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--import")) {
+            runImport(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        // Initialize input scanner, database, and a ticket pool sharing it
+        long mainStart = System.nanoTime();
         Scanner scanner = new Scanner(System.in);
-        TicketPool ticketPool = new TicketPool();
-        Database database = new Database();
+        DatabaseInterface database = DatabaseInterface.create();
+        long persistenceReady = System.nanoTime();
+        TicketPool ticketPool = new TicketPool(database);
+        logStartup(mainStart, persistenceReady, System.nanoTime());
 
         System.out.println("\n\n\t\t<< Welcome to the Real-Time Ticketing System >>");
 
@@ -45,7 +74,8 @@ public class TicketSystem {
                             if (ticketPool.getTicketsSold() >= ticketPool.getTotalTickets()) {
                                 System.out.println("\nAll tickets have been sold out. Please reset the ticket system before starting again.");
                             } else {
-                                System.out.println("\nTicket system is running. Press 3 to stop the system at any time.\n");
+                                System.out.println("\nTicket system is running. Press 3 to stop the system at any time, " +
+                                        "R to change rates and events while it runs, or A for live sales analytics.\n");
 
                                 // Begin ticket sales process
                                 ticketPool.startTicketHandling();
@@ -59,8 +89,20 @@ public class TicketSystem {
                                         break;
                                     }
 
+                                    // Change rates and events without stopping
+                                    if (userInput.equals("r") && !ticketPool.isSoldOut()) {
+                                        reconfigureLive(scanner, ticketPool);
+                                        continue;
+                                    }
+
+                                    // Show live sales figures without stopping
+                                    if (userInput.equals("a")) {
+                                        showAnalytics(ticketPool);
+                                        continue;
+                                    }
+
                                     // If system auto-stops due to all tickets sold
-                                    if (ticketPool.getTicketsSold() >= ticketPool.getTotalTickets()) {
+                                    if (ticketPool.isSoldOut()) {
 
                                         // Prompt for reset after auto-stop
                                         while (true) {
@@ -103,9 +145,15 @@ public class TicketSystem {
                     case "5": // Exit the application
                         System.out.println("\nExiting the system... Goodbye!");
                         TicketSystemLogger.info("Exiting the system. Application is stopping.");
+                        ticketPool.close();
+                        database.close();
                         System.exit(0); // Terminate the application.
                         break;
 
+                    case "6": // Show sales analytics
+                        showAnalytics(ticketPool);
+                        break;
+
                     default:
                         // Throw exception for unrecognized menu choices
                         throw new IllegalArgumentException("Invalid choice. Please enter a valid option from the menu.");
@@ -120,6 +168,155 @@ public class TicketSystem {
         }
     }
 
+    /**
+     * Runs a headless load test and exits with a non-zero status if it could not run.
+     *
+     * @param args the load test options
+     */
+    private static void runLoadTest(String[] args) {
+        try {
+            LoadGenerator.fromArguments(args).run();
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.exit(2);
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Logs how long the application took to become ready, split into JVM startup before {@code main},
+     * opening the persistence backend and creating the ticket pool. The MySQL backend connects on
+     * first use and logs its own connect and schema times then.
+     *
+     * @param mainStart        when {@code main} started, from {@link System#nanoTime()}
+     * @param persistenceReady when the persistence backend was open
+     * @param poolReady        when the ticket pool was created
+     */
+    private static void logStartup(long mainStart, long persistenceReady, long poolReady) {
+        long mainStartMillis = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - mainStart);
+        String jvm = ProcessHandle.current().info().startInstant()
+                .map(started -> (mainStartMillis - started.toEpochMilli()) + " ms")
+                .orElse("unknown");
+        TicketSystemLogger.info(String.format("Startup: ready in %d ms after main (JVM %s, persistence %d ms, ticket pool %d ms)",
+                TimeUnit.NANOSECONDS.toMillis(poolReady - mainStart), jvm,
+                TimeUnit.NANOSECONDS.toMillis(persistenceReady - mainStart),
+                TimeUnit.NANOSECONDS.toMillis(poolReady - persistenceReady)));
+    }
+
+    /**
+     * Runs a discrete-event simulation and exits with a non-zero status if it could not run.
+     *
+     * @param args the simulation options
+     */
+    private static void runSimulation(String[] args) {
+        try {
+            Simulation.fromArguments(args).run();
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.exit(2);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Exports the stored orders and exits with a non-zero status if they could not be exported.
+     *
+     * @param args the export options
+     */
+    private static void runExport(String[] args) {
+        try {
+            OrderExporter.fromArguments(args).run();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.out.println(e.getMessage());
+            System.exit(2);
+        } catch (UncheckedIOException e) {
+            System.out.println(e.getMessage() + ": " + e.getCause().getMessage());
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Imports a configuration and exits with a non-zero status if it was invalid or could not be read.
+     *
+     * @param args the import options
+     */
+    private static void runImport(String[] args) {
+        try {
+            ConfigurationImporter.fromArguments(args).run();
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.exit(2);
+        } catch (UncheckedIOException e) {
+            System.out.println(e.getMessage() + ": " + e.getCause().getMessage());
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Asks for rate and event changes and applies them to the running ticket pool.
+     * Blank answers leave a setting unchanged.
+     *
+     * @param scanner    the Scanner object to read user inputs
+     * @param ticketPool the running ticket pool
+     */
+    private static void reconfigureLive(Scanner scanner, TicketPool ticketPool) {
+        ConfigurationChange change = new ConfigurationChange();
+        try {
+            System.out.print("\n>> New ticket release rate (blank to keep " + ticketPool.getTicketReleaseRate() + "): ");
+            String input = scanner.nextLine().trim();
+            if (!input.isEmpty()) {
+                change.setTicketReleaseRate(Integer.parseInt(input));
+            }
+            System.out.print(">> New customer retrieval rate (blank to keep " + ticketPool.getCustomerRetrievalRate() + "): ");
+            input = scanner.nextLine().trim();
+            if (!input.isEmpty()) {
+                change.setCustomerRetrievalRate(Integer.parseInt(input));
+            }
+            System.out.print(">> Event to add or reprice (blank for none): ");
+            String eventName = scanner.nextLine().trim();
+            if (!eventName.isEmpty()) {
+                System.out.print(">> Enter ticket price for " + eventName + " ($1 to $10,000): $");
+                change.setEventPrice(eventName, Double.parseDouble(scanner.nextLine().trim()));
+            }
+            System.out.print(">> Event to retire (blank for none): ");
+            eventName = scanner.nextLine().trim();
+            if (!eventName.isEmpty()) {
+                change.retireEvent(eventName);
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("\nInvalid input. Nothing was changed.\n");
+            return;
+        }
+        if (change.isEmpty()) {
+            System.out.println("\nNothing was changed.\n");
+            return;
+        }
+        try {
+            ticketPool.reconfigure(change);
+            System.out.println("\nApplied: " + change.describe() + "\n");
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.out.println("\n" + e.getMessage() + " Nothing was changed.\n");
+        }
+    }
+
+    /**
+     * Prints the live sales figures per event and per vendor, read from memory rather than the database.
+     *
+     * @param ticketPool the ticket pool
+     */
+    private static void showAnalytics(TicketPool ticketPool) {
+        System.out.println("\n--- Sales Analytics ---");
+        System.out.println(ticketPool.getAnalytics().describe());
+    }
+
     /**
      * Displays the menu options for the ticket system.
      * Shows available actions user can take in the system.
@@ -131,5 +328,6 @@ public class TicketSystem {
         System.out.println("3. Stop Ticket Handling");
         System.out.println("4. Reset System");
         System.out.println("5. Exit");
+        System.out.println("6. Sales Analytics");
     }
 }
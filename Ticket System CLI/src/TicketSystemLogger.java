@@ -4,11 +4,16 @@
  */
 
 import java.io.IOException;
+import java.util.function.Supplier;
 import java.util.logging.*;
 
 /**
  * Logger class for the Ticket System.
  * Configures and handles logging to both console and file for the ticket system.
+ * With {@code ticket.log.mode=async}, messages are handed to an {@link AsyncLogger} and
+ * written by a background thread instead of the calling thread; {@code ticket.log.mode=off}
+ * discards every message. The console and file sinks
+ * filter on their own levels, set by {@code ticket.log.consoleLevel} and {@code ticket.log.fileLevel}.
  */
 public class TicketSystemLogger {
     private static final Logger logger = Logger.getLogger(TicketSystemLogger.class.getName());
@@ -16,6 +21,13 @@ public class TicketSystemLogger {
     // Constant for the log file name
     private static final String LOG_FILE = "ticket_system.log";
 
+    // Background writer, null when logging synchronously
+    private static volatile AsyncLogger asyncLogger;
+    // Lowest level accepted by any sink, checked before a message is built
+    private static volatile int minimumLevel = Level.INFO.intValue();
+    // Set once the hook draining the background writer at exit has been registered
+    private static boolean shutdownHookAdded = false;
+
     private TicketSystemLogger() {
         // Prevents instantiation of the utility class
     }
@@ -23,8 +35,10 @@ public class TicketSystemLogger {
     /**
      * Configures the logger to log messages both to a file and the console.
      * This method sets up the file handler, console handler, and log level.
+     * Calling it again closes the sinks of the previous configuration first, so the log file
+     * is released and reopened rather than left locked, which would send output to another file.
      */
-    public static void configureLogger() {
+    public static synchronized void configureLogger() {
         try {
             // Remove any pre-existing log handlers to prevent duplicate logging
             Logger rootLogger = Logger.getLogger("");
@@ -33,22 +47,59 @@ public class TicketSystemLogger {
                 rootLogger.removeHandler(handler);
             }
 
+            // Close the sinks of a previous configuration: a background writer closes its own
+            AsyncLogger previous = asyncLogger;
+            if (previous != null) {
+                asyncLogger = null;
+                previous.shutdown();
+            }
+            for (Handler handler : logger.getHandlers()) {
+                logger.removeHandler(handler);
+                handler.close();
+            }
+
+            String mode = System.getProperty("ticket.log.mode", "sync");
+            if ("off".equalsIgnoreCase(mode)) {
+                // No-op mode for benchmarks: no sinks are opened and no message is built
+                logger.setLevel(Level.OFF);
+                minimumLevel = Level.OFF.intValue();
+                return;
+            }
+
             // File Handler: Logs messages to a file, appending to existing logs
             FileHandler fileHandler = new FileHandler(LOG_FILE, true);
             fileHandler.setFormatter(new SimpleFormatter());
+            fileHandler.setLevel(Level.parse(System.getProperty("ticket.log.fileLevel", "INFO")));
 
             // Console Handler: Logs messages to the console
             ConsoleHandler consoleHandler = new ConsoleHandler();
             consoleHandler.setFormatter(new SimpleFormatter());
+            consoleHandler.setLevel(Level.parse(System.getProperty("ticket.log.consoleLevel", "INFO")));
 
-            // Add handlers to the logger
-            // Disable parent handlers to prevent duplicate logging
-            logger.addHandler(fileHandler);
-            logger.addHandler(consoleHandler);
+            // Set logging level to the most verbose of the two sinks
+            Level level = fileHandler.getLevel().intValue() < consoleHandler.getLevel().intValue()
+                    ? fileHandler.getLevel() : consoleHandler.getLevel();
+            logger.setLevel(level);
             logger.setUseParentHandlers(false);
+            minimumLevel = level.intValue();
 
-            // Set logging level (you can adjust as needed)
-            logger.setLevel(Level.INFO);
+            if ("async".equalsIgnoreCase(mode)) {
+                // Async mode: a background thread formats and writes to both handlers
+                AsyncLogger.OverflowPolicy overflowPolicy = AsyncLogger.OverflowPolicy.valueOf(
+                        System.getProperty("ticket.log.overflow", "BLOCK").toUpperCase());
+                asyncLogger = new AsyncLogger(Integer.getInteger("ticket.log.bufferSize", 8192), overflowPolicy,
+                        Integer.getInteger("ticket.log.sampleRate", 10), TicketSystemLogger.class.getName(),
+                        fileHandler, consoleHandler);
+                if (!shutdownHookAdded) {
+                    Runtime.getRuntime().addShutdownHook(new Thread(TicketSystemLogger::shutdown, "async-logger-shutdown"));
+                    shutdownHookAdded = true;
+                }
+            } else {
+                // Add handlers to the logger
+                // Disable parent handlers to prevent duplicate logging
+                logger.addHandler(fileHandler);
+                logger.addHandler(consoleHandler);
+            }
 
         } catch (IOException e) {
             // Handle any errors during logger configuration
@@ -58,13 +109,55 @@ public class TicketSystemLogger {
 
     }
 
+    /**
+     * Checks whether a message at the given level would reach any sink.
+     * Callers can use this to skip building expensive messages.
+     *
+     * @param level the level to check
+     * @return true if messages at this level are written
+     */
+    public static boolean isLoggable(Level level) {
+        return level.intValue() >= minimumLevel;
+    }
+
     /**
      * Convenience method to log an informational message.
      *
      * @param message The message to be logged as an info-level message.
      */
     public static void info(String message) {
-        logger.info(message);
+        log(Level.INFO, message);
+    }
+
+    /**
+     * Logs an informational message built only if info messages are written.
+     * In async mode the message is built on the background thread.
+     *
+     * @param message Supplies the message to be logged.
+     */
+    public static void info(Supplier<String> message) {
+        log(Level.INFO, message);
+    }
+
+    /**
+     * Logs an informational message from a {@link String#format} template.
+     * The arguments are stored as they are and formatted only when the message is written.
+     *
+     * @param format The format template.
+     * @param arg1   The first template argument.
+     * @param arg2   The second template argument.
+     * @param arg3   The third template argument, may be null if unused.
+     */
+    public static void info(String format, Object arg1, Object arg2, Object arg3) {
+        if (!isLoggable(Level.INFO)) {
+            return;
+        }
+        AsyncLogger async = asyncLogger;
+        if (async != null) {
+            async.publish(Level.INFO, format, arg1, arg2, arg3);
+        } else {
+            logger.info(String.format(format, arg1, arg2, arg3));
+        }
     }
 
     /**
@@ -73,7 +166,16 @@ public class TicketSystemLogger {
      * @param message The message to be logged as a warning-level message.
      */
     public static void warning(String message) {
-        logger.warning(message);
+        log(Level.WARNING, message);
+    }
+
+    /**
+     * Logs a warning message built only if warnings are written.
+     *
+     * @param message Supplies the message to be logged.
+     */
+    public static void warning(Supplier<String> message) {
+        log(Level.WARNING, message);
     }
 
     /**
@@ -82,6 +184,60 @@ public class TicketSystemLogger {
      * @param message The message to be logged as a severe-level message.
      */
     public static void severe(String message) {
-        logger.severe(message);
+        log(Level.SEVERE, message);
+    }
+
+    /**
+     * Logs a severe error message built only if severe messages are written.
+     *
+     * @param message Supplies the message to be logged.
+     */
+    public static void severe(Supplier<String> message) {
+        log(Level.SEVERE, message);
+    }
+
+    /**
+     * Waits until every queued message has been written; does nothing in sync mode.
+     */
+    public static void flush() {
+        AsyncLogger async = asyncLogger;
+        if (async != null) {
+            async.flush();
+        }
+    }
+
+    /**
+     * Writes every queued message and stops the background writer, if any.
+     */
+    public static void shutdown() {
+        AsyncLogger async = asyncLogger;
+        if (async != null) {
+            asyncLogger = null;
+            async.shutdown();
+        }
+    }
+
+    private static void log(Level level, String message) {
+        if (!isLoggable(level)) {
+            return;
+        }
+        AsyncLogger async = asyncLogger;
+        if (async != null) {
+            async.publish(level, message, null, null, null);
+        } else {
+            logger.log(level, message);
+        }
+    }
+
+    private static void log(Level level, Supplier<String> message) {
+        if (!isLoggable(level)) {
+            return;
+        }
+        AsyncLogger async = asyncLogger;
+        if (async != null) {
+            async.publish(level, message);
+        } else {
+            logger.log(level, message);
+        }
     }
 }
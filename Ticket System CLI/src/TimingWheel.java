@@ -0,0 +1,251 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel that expires large numbers of timeouts with one thread.
+ * Time is cut into ticks and a timeout is filed in the bucket its deadline tick hashes to;
+ * the ticker thread visits one bucket per tick and expires whatever is due there, leaving
+ * timeouts due on a later revolution in place. Scheduling and cancelling lock only the one
+ * bucket and unlink an intrusive node, so each costs O(1) whatever the number outstanding.
+ * Timeouts fire up to two ticks late, never early.
+ *
+ * @param <T> the type of timeout; the wheel links timeouts through the fields of {@link Timeout}
+ */
+public class TimingWheel<T extends TimingWheel.Timeout> {
+
+    /**
+     * Base class of anything the wheel can time out. A timeout is in at most one wheel at a time.
+     */
+    public abstract static class Timeout {
+        private volatile Bucket bucket;
+        private Timeout previous;
+        private Timeout next;
+        private long deadlineTick;
+
+        // Checks whether the timeout is still waiting in a wheel
+        public boolean isScheduled() {
+            Bucket current = bucket;
+            if (current == null) {
+                return false;
+            }
+            synchronized (current) {
+                return bucket == current;
+            }
+        }
+    }
+
+    /**
+     * One slot of the wheel: a doubly linked list of timeouts guarded by its own monitor.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private int size;
+
+        void link(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.previous = null;
+            timeout.next = head;
+            if (head != null) {
+                head.previous = timeout;
+            }
+            head = timeout;
+            size++;
+        }
+
+        void unlink(Timeout timeout) {
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            }
+            timeout.bucket = null;
+            timeout.previous = null;
+            timeout.next = null;
+            size--;
+        }
+    }
+
+    private final Bucket[] buckets;
+    private final int mask;
+    private final long tickNanos;
+    private final Consumer<T> onExpiry;
+    private final Thread tickerThread;
+    private final long startNanos;
+
+    // The last tick the ticker has started to process
+    private volatile long currentTick = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * Constructs a wheel and starts its ticker thread.
+     *
+     * @param name      the name of the ticker thread
+     * @param tick      the duration of one tick, which is also the expiry resolution
+     * @param unit      the unit of the tick
+     * @param wheelSize the number of buckets, rounded up to a power of two
+     * @param onExpiry  called on the ticker thread for each timeout that expires; must not block for long
+     */
+    public TimingWheel(String name, long tick, TimeUnit unit, int wheelSize, Consumer<T> onExpiry) {
+        if (tick <= 0 || wheelSize < 1 || wheelSize > 1 << 20) {
+            throw new IllegalArgumentException("Invalid timing wheel: tick " + tick + ", size " + wheelSize);
+        }
+        int size = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        this.buckets = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.tickNanos = unit.toNanos(tick);
+        this.onExpiry = onExpiry;
+        this.startNanos = System.nanoTime();
+        this.tickerThread = new Thread(this::runTicker, name);
+        this.tickerThread.setDaemon(true);
+        this.tickerThread.start();
+    }
+
+    /**
+     * Files a timeout to expire after the given delay.
+     *
+     * @param timeout the timeout, which must not already be scheduled
+     * @param delay   the time until it expires
+     * @param unit    the unit of the delay
+     */
+    public void schedule(T timeout, long delay, TimeUnit unit) {
+        if (closed) {
+            throw new IllegalStateException("Timing wheel is closed");
+        }
+        // Round up, plus one for the part of the current tick already gone, so a timeout never fires early.
+        // Count from the clock rather than currentTick, which lags behind it when the ticker is late
+        long ticks = (unit.toNanos(delay) + tickNanos - 1) / tickNanos + 1;
+        long deadline = (System.nanoTime() - startNanos) / tickNanos + ticks;
+        Timeout node = timeout; // The link fields are private to Timeout, so reach them through the base type
+        while (true) {
+            Bucket bucket = buckets[(int) deadline & mask];
+            synchronized (bucket) {
+                // If the ticker reached the deadline meanwhile it may have visited this bucket already
+                if (currentTick < deadline) {
+                    node.deadlineTick = deadline;
+                    bucket.link(node);
+                    return;
+                }
+            }
+            deadline = currentTick + 1; // Due already, so file it for the next tick
+        }
+    }
+
+    /**
+     * Removes a timeout before it expires.
+     *
+     * @param timeout the timeout
+     * @return true if it was removed, false if it had already expired or was never scheduled
+     */
+    public boolean cancel(T timeout) {
+        Timeout node = timeout;
+        Bucket bucket = node.bucket;
+        if (bucket == null) {
+            return false;
+        }
+        synchronized (bucket) {
+            if (node.bucket != bucket) {
+                return false; // Expired or cancelled by another thread meanwhile
+            }
+            bucket.unlink(node);
+            return true;
+        }
+    }
+
+    /**
+     * Counts the timeouts still waiting, visiting every bucket.
+     *
+     * @return the number of scheduled timeouts
+     */
+    public int size() {
+        int total = 0;
+        for (Bucket bucket : buckets) {
+            synchronized (bucket) {
+                total += bucket.size;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Removes every scheduled timeout without expiring it.
+     *
+     * @return the removed timeouts
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> clear() {
+        List<T> removed = new ArrayList<>();
+        for (Bucket bucket : buckets) {
+            synchronized (bucket) {
+                while (bucket.head != null) {
+                    removed.add((T) bucket.head);
+                    bucket.unlink(bucket.head);
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Stops the ticker thread. Scheduled timeouts are left unexpired.
+     */
+    public void close() {
+        closed = true;
+        tickerThread.interrupt();
+    }
+
+    /**
+     * Advances one bucket per tick, catching up if the thread fell behind, and expires what is due.
+     */
+    private void runTicker() {
+        List<T> expired = new ArrayList<>();
+        while (!closed) {
+            long wakeAt = startNanos + (currentTick + 1) * tickNanos;
+            long sleep = wakeAt - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+                if (Thread.interrupted() && closed) {
+                    return;
+                }
+                continue;
+            }
+            long tick = currentTick + 1;
+            currentTick = tick;
+            collectExpired(buckets[(int) tick & mask], tick, expired);
+            for (T timeout : expired) {
+                try {
+                    onExpiry.accept(timeout);
+                } catch (RuntimeException e) {
+                    TicketSystemLogger.severe("Timeout expiry failed: " + e.getMessage());
+                }
+            }
+            expired.clear();
+        }
+    }
+
+    /**
+     * Unlinks the timeouts of a bucket that are due by the given tick.
+     */
+    @SuppressWarnings("unchecked")
+    private void collectExpired(Bucket bucket, long tick, List<T> expired) {
+        synchronized (bucket) {
+            Timeout timeout = bucket.head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.deadlineTick <= tick) {
+                    bucket.unlink(timeout);
+                    expired.add((T) timeout);
+                }
+                timeout = next;
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One purchase waiting to be written: an order of one or more tickets for a single event,
+ * broken down into line items of tickets from the same vendor at the same price.
+ * A record may carry a completion that is finished once the batch containing it has been flushed.
+ */
+public class TransactionRecord {
+    private static final int[] NO_VENDORS = new int[0];
+    private static final int[] NO_COUNTS = new int[0];
+    private static final long[] NO_PRICES = new long[0];
+
+    private final String eventName;
+    private final int customerId;
+    private final int ticketCount;
+    private final long totalCents;
+    // Line items: vendor, number of tickets and price of each ticket in cents
+    private final int[] itemVendorIds;
+    private final int[] itemCounts;
+    private final long[] itemPriceCents;
+    private final CompletableFuture<Void> flushed;
+    private final long createdNanos; // When the sale was recorded, for measuring flush lag
+
+    /**
+     * Constructs an order of tickets from one vendor at one price that nobody waits on.
+     *
+     * @param eventName   the name of the event
+     * @param ticketPrice the price of each ticket
+     * @param vendorId    the ID of the vendor
+     * @param customerId  the ID of the customer
+     * @param ticketCount the number of tickets involved in the transaction
+     */
+    public TransactionRecord(String eventName, double ticketPrice, int vendorId, int customerId, int ticketCount) {
+        this(eventName, ticketPrice, vendorId, customerId, ticketCount, null);
+    }
+
+    /**
+     * Constructs an order of tickets from one vendor at one price with an optional flush completion.
+     *
+     * @param eventName   the name of the event, or null for a flush marker carrying no data
+     * @param ticketPrice the price of each ticket
+     * @param vendorId    the ID of the vendor
+     * @param customerId  the ID of the customer
+     * @param ticketCount the number of tickets involved in the transaction
+     * @param flushed     completed once the record is written, may be null
+     */
+    public TransactionRecord(String eventName, double ticketPrice, int vendorId, int customerId,
+                             int ticketCount, CompletableFuture<Void> flushed) {
+        this(eventName, customerId, ticketCount, Math.round(ticketPrice * 100) * ticketCount,
+                eventName == null ? NO_VENDORS : new int[]{vendorId},
+                eventName == null ? NO_COUNTS : new int[]{ticketCount},
+                eventName == null ? NO_PRICES : new long[]{Math.round(ticketPrice * 100)}, flushed);
+    }
+
+    private TransactionRecord(String eventName, int customerId, int ticketCount, long totalCents,
+                              int[] itemVendorIds, int[] itemCounts, long[] itemPriceCents,
+                              CompletableFuture<Void> flushed) {
+        this.eventName = eventName;
+        this.customerId = customerId;
+        this.ticketCount = ticketCount;
+        this.totalCents = totalCents;
+        this.itemVendorIds = itemVendorIds;
+        this.itemCounts = itemCounts;
+        this.itemPriceCents = itemPriceCents;
+        this.flushed = flushed;
+        this.createdNanos = System.nanoTime();
+    }
+
+    /**
+     * Builds the order for tickets a customer has just taken, merging tickets of the same
+     * vendor and price into one line item.
+     *
+     * @param eventName  the name of the event every ticket belongs to
+     * @param customerId the ID of the customer
+     * @param purchased  the tickets taken
+     * @return the order
+     */
+    public static TransactionRecord order(String eventName, int customerId, TicketRing purchased) {
+        int tickets = purchased.size();
+        int[] vendorIds = new int[tickets];
+        int[] counts = new int[tickets];
+        long[] prices = new long[tickets];
+        int items = 0;
+        long totalCents = 0;
+        for (int i = 0; i < tickets; i++) {
+            int vendorId = purchased.vendorIdAt(i);
+            long cents = purchased.priceCentsAt(i);
+            totalCents += cents;
+            // Baskets are small, so a linear search beats any map
+            int item = 0;
+            while (item < items && (vendorIds[item] != vendorId || prices[item] != cents)) {
+                item++;
+            }
+            if (item == items) {
+                vendorIds[item] = vendorId;
+                prices[item] = cents;
+                items++;
+            }
+            counts[item]++;
+        }
+        if (items < tickets) {
+            vendorIds = Arrays.copyOf(vendorIds, items);
+            counts = Arrays.copyOf(counts, items);
+            prices = Arrays.copyOf(prices, items);
+        }
+        return new TransactionRecord(eventName, customerId, tickets, totalCents, vendorIds, counts, prices, null);
+    }
+
+    /**
+     * Copies this order with a completion that is finished once the order has been written.
+     *
+     * @param flushed completed when the batch holding the order is written, or exceptionally if it fails
+     * @return the copy
+     */
+    public TransactionRecord withFlushed(CompletableFuture<Void> flushed) {
+        return new TransactionRecord(eventName, customerId, ticketCount, totalCents,
+                itemVendorIds, itemCounts, itemPriceCents, flushed);
+    }
+
+    // Getters for the order and its line items
+    public String getEventName() {
+        return eventName;
+    }
+
+    public int getCustomerId() {
+        return customerId;
+    }
+
+    public int getTicketCount() {
+        return ticketCount;
+    }
+
+    public double getTotalPrice() {
+        return totalCents / 100.0;
+    }
+
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    public int getItemCount() {
+        return itemVendorIds.length;
+    }
+
+    public int getItemVendorId(int item) {
+        return itemVendorIds[item];
+    }
+
+    public int getItemTicketCount(int item) {
+        return itemCounts[item];
+    }
+
+    public double getItemPrice(int item) {
+        return itemPriceCents[item] / 100.0;
+    }
+
+    public CompletableFuture<Void> getFlushed() {
+        return flushed;
+    }
+
+    public long getCreatedNanos() {
+        return createdNanos;
+    }
+
+    // Checks whether this record only marks a flush point and holds no transaction
+    public boolean isMarker() {
+        return eventName == null;
+    }
+}
@@ -0,0 +1,390 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind sink for ticket transactions.
+ * Purchases enqueue one order record each into a bounded queue and a single writer thread flushes them
+ * to the database with batch inserts, either when a batch fills up or when the flush interval elapses.
+ * When the queue is full, purchasing threads block until the writer catches up.
+ * A batch that fails to write fails every purchase waiting on it, and if the writer thread itself
+ * dies, every queued and later purchase fails instead of waiting for it.
+ */
+public class TransactionWriter {
+
+    /**
+     * How long a purchase waits for its transactions to reach the database.
+     */
+    public enum DurabilityMode {
+        // Return as soon as the records are queued
+        FIRE_AND_FORGET,
+        // Return only after the batch holding the records has been written
+        WAIT_FOR_FLUSH
+    }
+
+    // Defaults used when no system property overrides them
+    private static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final long DEFAULT_FLUSH_MILLIS = 50;
+
+    private final DatabaseInterface database;
+    private final BlockingQueue<TransactionRecord> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final DurabilityMode durabilityMode;
+    private final TicketMetrics metrics;
+    private final Thread writerThread;
+
+    // Statistics for sizing the queue and batches
+    private final AtomicLong recordsWritten = new AtomicLong();
+    private final AtomicLong recordsFailed = new AtomicLong();
+    private final AtomicLong batchesWritten = new AtomicLong();
+    private final AtomicLong backpressureWaits = new AtomicLong();
+    // Time from a sale being recorded to its batch being written, taken from the oldest record of each batch
+    private final AtomicLong flushLagNanosTotal = new AtomicLong();
+    private final AtomicLong flushLagNanosMax = new AtomicLong();
+
+    private volatile boolean closed = false;
+    // Why the writer thread died, if it did
+    private volatile Throwable stoppedBy;
+    // Submits between their closed check and their enqueue, waited for by close() and by a dying writer
+    private final AtomicInteger submitting = new AtomicInteger();
+    // Thread parked in close() until the last of those submits has enqueued
+    private volatile Thread closingThread;
+
+    /**
+     * Constructs a writer and starts its background thread.
+     *
+     * @param database        the database to write transactions to
+     * @param queueCapacity   the maximum number of records waiting to be written
+     * @param batchSize       the maximum number of records written in one batch
+     * @param flushInterval   the longest time a record waits before its batch is flushed
+     * @param unit            the unit of the flush interval
+     * @param durabilityMode  whether purchases wait for their records to be flushed
+     * @param metrics         where the duration of each batch write is recorded
+     */
+    public TransactionWriter(DatabaseInterface database, int queueCapacity, int batchSize,
+                             long flushInterval, TimeUnit unit, DurabilityMode durabilityMode,
+                             TicketMetrics metrics) {
+        if (queueCapacity < 1 || batchSize < 1 || flushInterval < 1) {
+            throw new IllegalArgumentException("Queue capacity, batch size and flush interval must be positive");
+        }
+        this.database = database;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = unit.toNanos(flushInterval);
+        this.durabilityMode = durabilityMode;
+        this.metrics = metrics;
+
+        this.writerThread = new Thread(this::runWriter, "transaction-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Creates a writer configured from the {@code ticket.tx.queueCapacity}, {@code ticket.tx.batchSize},
+     * {@code ticket.tx.flushMillis} and {@code ticket.tx.durability} system properties.
+     *
+     * @param database the database to write transactions to
+     * @param metrics  where the duration of each batch write is recorded
+     * @return a started writer
+     */
+    public static TransactionWriter fromSystemProperties(DatabaseInterface database, TicketMetrics metrics) {
+        int queueCapacity = Integer.getInteger("ticket.tx.queueCapacity", DEFAULT_QUEUE_CAPACITY);
+        int batchSize = Integer.getInteger("ticket.tx.batchSize", DEFAULT_BATCH_SIZE);
+        long flushMillis = Long.getLong("ticket.tx.flushMillis", DEFAULT_FLUSH_MILLIS);
+        DurabilityMode mode = DurabilityMode.valueOf(
+                System.getProperty("ticket.tx.durability", DurabilityMode.FIRE_AND_FORGET.name()).toUpperCase());
+        return new TransactionWriter(database, queueCapacity, batchSize, flushMillis, TimeUnit.MILLISECONDS, mode, metrics);
+    }
+
+    /**
+     * Queues the order of one purchase. Once this has started the order is queued even if the
+     * caller is interrupted while waiting for queue space; the interrupt is kept for the caller.
+     * In {@link DurabilityMode#WAIT_FOR_FLUSH} mode this returns only once it has been written.
+     *
+     * @param order the order to write
+     * @throws InterruptedException  if interrupted while waiting for the flush
+     * @throws IllegalStateException if the writer is closed or has stopped, or the order could not be written
+     */
+    public void submit(TransactionRecord order) throws InterruptedException {
+        CompletableFuture<Void> flushed = durabilityMode == DurabilityMode.WAIT_FOR_FLUSH ? new CompletableFuture<>() : null;
+        submitting.incrementAndGet();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Transaction writer is closed");
+            }
+            if (stoppedBy != null) {
+                throw new IllegalStateException("Transaction writer has stopped", stoppedBy);
+            }
+            enqueueUninterruptibly(flushed == null ? order : order.withFlushed(flushed));
+        } finally {
+            leaveSubmit();
+        }
+        if (flushed != null) {
+            try {
+                flushed.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Order was not written: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Blocks until every record queued before this call has been written.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void drain() throws InterruptedException {
+        if (writerThread.isAlive()) {
+            awaitFlush();
+        }
+    }
+
+    /**
+     * Refuses new records, writes every record already queued and stops the writer thread.
+     */
+    public void close() {
+        closingThread = Thread.currentThread();
+        closed = true;
+        // A submit that got past its closed check before it was set is still allowed to enqueue;
+        // the last one to finish unparks this thread, and the timeout covers a second caller of close()
+        while (submitting.get() > 0) {
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        boolean interrupted = Thread.interrupted();
+        while (true) {
+            try {
+                drain();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        writerThread.interrupt();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Ends a submit started by incrementing {@code submitting}, waking a closing thread when it was the last.
+     */
+    private void leaveSubmit() {
+        if (submitting.decrementAndGet() == 0 && closed) {
+            LockSupport.unpark(closingThread);
+        }
+    }
+
+    /**
+     * Puts a record on the queue, counting the times the queue was full.
+     */
+    private void enqueue(TransactionRecord record) throws InterruptedException {
+        if (!queue.offer(record)) {
+            backpressureWaits.incrementAndGet();
+            queue.put(record);
+        }
+    }
+
+    /**
+     * Puts a record on the queue, waiting through interrupts and restoring the interrupt status afterwards.
+     */
+    private void enqueueUninterruptibly(TransactionRecord record) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                enqueue(record);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues a flush marker and waits for the writer to reach it.
+     */
+    private void awaitFlush() throws InterruptedException {
+        CompletableFuture<Void> flushed = new CompletableFuture<>();
+        submitting.incrementAndGet();
+        try {
+            if (stoppedBy != null) {
+                return;
+            }
+            enqueue(new TransactionRecord(null, 0, 0, 0, 0, flushed));
+        } finally {
+            leaveSubmit();
+        }
+        try {
+            flushed.get();
+        } catch (ExecutionException e) {
+            // Failed records are counted and logged by the writer thread
+        }
+    }
+
+    /**
+     * Writer loop: collects records until the batch is full, the flush interval elapses
+     * or a flush marker arrives, then writes them in one batch.
+     * If the writer thread dies, it keeps emptying the queue until no submitter is left waiting to enqueue.
+     */
+    private void runWriter() {
+        List<TransactionRecord> batch = new ArrayList<>(batchSize);
+        List<CompletableFuture<Void>> waiters = new ArrayList<>();
+        try {
+            writeUntilClosed(batch, waiters);
+        } catch (Throwable e) {
+            stoppedBy = e;
+            TicketSystemLogger.severe("Transaction writer stopped: " + e);
+            // Nothing will write these any more; fail them rather than leave their submitters waiting
+            recordsFailed.addAndGet(batch.size());
+            waiters.forEach(waiter -> waiter.completeExceptionally(e));
+            // Submitters blocked on a full queue get room and see the failure; later ones refuse to enqueue
+            failQueued(e);
+            while (submitting.get() > 0) {
+                Thread.yield();
+                failQueued(e);
+            }
+            failQueued(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Empties the queue after the writer has died, failing every record in it.
+     */
+    private void failQueued(Throwable cause) {
+        for (TransactionRecord record; (record = queue.poll()) != null; ) {
+            if (!record.isMarker()) {
+                recordsFailed.incrementAndGet();
+            }
+            if (record.getFlushed() != null) {
+                record.getFlushed().completeExceptionally(cause);
+            }
+        }
+    }
+
+    /**
+     * Writes batches until close() has drained the queue and interrupts this thread. Stopping as soon as
+     * the queue looks empty after close would strand an order from a submitter still blocked on a full
+     * queue, and the flush marker close() queues after it.
+     */
+    private void writeUntilClosed(List<TransactionRecord> batch, List<CompletableFuture<Void>> waiters) {
+        while (true) {
+            try {
+                TransactionRecord first = queue.take();
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                boolean flushNow = collect(first, batch, waiters);
+
+                // Keep collecting until the batch is full, the deadline passes or a marker asks for a flush
+                while (!flushNow && batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    TransactionRecord next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    flushNow = collect(next, batch, waiters);
+                }
+                flush(batch, waiters);
+            } catch (InterruptedException e) {
+                if (closed) {
+                    flush(batch, waiters); // Anything collected before the interrupt
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a record to the batch, or its completion to the waiters.
+     *
+     * @return true if the record was a flush marker
+     */
+    private boolean collect(TransactionRecord record, List<TransactionRecord> batch,
+                            List<CompletableFuture<Void>> waiters) {
+        if (record.getFlushed() != null) {
+            waiters.add(record.getFlushed());
+        }
+        if (record.isMarker()) {
+            return true;
+        }
+        batch.add(record);
+        return false;
+    }
+
+    /**
+     * Writes a batch and completes everyone waiting on it, exceptionally if the write failed.
+     */
+    private void flush(List<TransactionRecord> batch, List<CompletableFuture<Void>> waiters) {
+        Throwable failure = null;
+        if (!batch.isEmpty()) {
+            try {
+                long start = metrics.start();
+                database.logTransactions(batch);
+                metrics.record(TicketMetrics.Stage.BATCH_WRITE, start);
+                recordsWritten.addAndGet(batch.size());
+                batchesWritten.incrementAndGet();
+                long lag = System.nanoTime() - batch.get(0).getCreatedNanos();
+                flushLagNanosTotal.addAndGet(lag);
+                flushLagNanosMax.accumulateAndGet(lag, Math::max);
+            } catch (RuntimeException e) {
+                failure = e;
+                recordsFailed.addAndGet(batch.size());
+                TicketSystemLogger.severe("Failed to write " + batch.size() + " transaction(s): " + e.getMessage());
+            }
+            batch.clear();
+        }
+        for (CompletableFuture<Void> waiter : waiters) {
+            if (failure == null) {
+                waiter.complete(null);
+            } else {
+                waiter.completeExceptionally(failure);
+            }
+        }
+        waiters.clear();
+    }
+
+    // Getters for writer statistics
+    public long getRecordsWritten() {
+        return recordsWritten.get();
+    }
+
+    public long getRecordsFailed() {
+        return recordsFailed.get();
+    }
+
+    public long getBatchesWritten() {
+        return batchesWritten.get();
+    }
+
+    public long getBackpressureWaits() {
+        return backpressureWaits.get();
+    }
+
+    // Average and worst lag between a sale and the write of its batch
+    public long getAverageFlushLagNanos() {
+        long batches = batchesWritten.get();
+        return batches == 0 ? 0 : flushLagNanosTotal.get() / batches;
+    }
+
+    public long getMaxFlushLagNanos() {
+        return flushLagNanosMax.get();
+    }
+
+    public int getQueuedRecords() {
+        return queue.size();
+    }
+
+    public DurabilityMode getDurabilityMode() {
+        return durabilityMode;
+    }
+}
@@ -5,10 +5,12 @@ import java.util.Random;
  * Vendors periodically add tickets for a specific event, with the number of tickets
  * varying each time based on the configured ticket release rate.
  */
-public class Vendor implements Runnable {
+public class Vendor implements Actor {
     private final TicketPool ticketPool;
     private final int vendorId;
     private final String eventName;
+    private final int eventId;
+    private final Random random;
 
     /**
      * Constructs a Vendor for a specific event.
@@ -21,6 +23,8 @@ public class Vendor implements Runnable {
         this.ticketPool = ticketPool;
         this.vendorId = vendorId;
         this.eventName = eventName;
+        this.eventId = ticketPool.getEventId(eventName);
+        this.random = ticketPool.newRandom(vendorId);
     }
 
     /**
@@ -29,24 +33,45 @@ public class Vendor implements Runnable {
      */
     @Override
     public void run() {
-        Random random = new Random();
         try {
-            // Continuously add tickets until interrupted
+            // Continuously add tickets until interrupted or the ticket limit is reached
             while (!Thread.currentThread().isInterrupted()) {
-                // Tickets added range from 1 to the ticket release rate
-                int ticketsToAdd = random.nextInt(1,ticketPool.getTicketReleaseRate()) + 1; // Add 1-5 tickets
-
-                // Retrieve the constant price for the event from TicketPool
-                double price = ticketPool.getEventPrice(eventName);
-
-                // Add tickets with the fixed price
-                ticketPool.addTickets(eventName, vendorId, ticketsToAdd, price);
+                if (!step()) {
+                    break;
+                }
                 // Sleep to control the release rate of tickets (adjust based on ticketReleaseRate)
-                Thread.sleep(30000 / ticketPool.getTicketReleaseRate()); // Adjust sleep duration based on rate
+                Thread.sleep(pauseMillis()); // Adjust sleep duration based on rate
             }
         } catch (InterruptedException e) {
             // Handle interruption and restore interrupt status
             Thread.currentThread().interrupt();
         }
     }
+
+    /**
+     * Releases one batch of tickets for this vendor's event.
+     *
+     * @return false once the total ticket limit has been reached or the event has been retired
+     */
+    @Override
+    public boolean step() {
+        if (!ticketPool.isEventActive(eventId)) {
+            TicketSystemLogger.info("Vendor " + vendorId + " stopped releasing tickets for retired event " + eventName);
+            return false;
+        }
+
+        // Tickets added range from 1 to the ticket release rate
+        int ticketsToAdd = random.nextInt(ticketPool.getTicketReleaseRate()) + 1;
+
+        // Retrieve the constant price for the event from TicketPool
+        double price = ticketPool.getEventPrice(eventId);
+
+        // Add tickets with the fixed price
+        return ticketPool.addTickets(eventName, vendorId, ticketsToAdd, price);
+    }
+
+    @Override
+    public double stepsPerSecond() {
+        return ticketPool.getVendorStepsPerSecond();
+    }
 }
\ No newline at end of file
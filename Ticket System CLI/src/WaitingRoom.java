@@ -0,0 +1,205 @@
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded FIFO of customers waiting for tickets.
+ * Only the customer at the front may take tickets, so waiting customers are served in the order
+ * they arrived as vendors release tickets. A customer arriving at a full room is turned away.
+ * Each waiting customer holds one place, which is freed when it leaves, so memory depends on
+ * how many customers are waiting rather than on how many purchases were attempted.
+ */
+public class WaitingRoom {
+
+    /**
+     * One customer's place in the room.
+     */
+    public static final class Place {
+        private final int customerId;
+        private final Thread thread;
+        private final long enteredNanos;
+        private final int position;
+
+        private Place(int customerId, Thread thread, int position) {
+            this.customerId = customerId;
+            this.thread = thread;
+            this.enteredNanos = System.nanoTime();
+            this.position = position;
+        }
+
+        public int getCustomerId() {
+            return customerId;
+        }
+
+        // Position when the customer joined, 1 being the front
+        public int getPosition() {
+            return position;
+        }
+
+        public long getEnteredNanos() {
+            return enteredNanos;
+        }
+    }
+
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Place> places = new ArrayDeque<>();
+    // The customer allowed to take tickets; read without the lock by parked customers
+    private volatile Place front;
+
+    // Admission statistics
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Constructs an empty waiting room.
+     *
+     * @param capacity the most customers that may wait at once
+     */
+    public WaitingRoom(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Waiting room capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Creates a waiting room sized by the {@code ticket.queue.capacity} system property (default 10000).
+     *
+     * @return the waiting room
+     */
+    public static WaitingRoom fromSystemProperties() {
+        return new WaitingRoom(Integer.getInteger("ticket.queue.capacity", 10000));
+    }
+
+    /**
+     * Joins the back of the room.
+     *
+     * @param customerId the ID of the customer
+     * @return the customer's place, or null if the room is full and the customer is turned away
+     */
+    public Place enter(int customerId) {
+        lock.lock();
+        try {
+            if (places.size() >= capacity) {
+                rejected.increment();
+                return null;
+            }
+            Place place = new Place(customerId, Thread.currentThread(), places.size() + 1);
+            places.addLast(place);
+            if (front == null) {
+                front = place;
+            }
+            admitted.increment();
+            return place;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Parks the calling customer until its place reaches the front.
+     *
+     * @param place the customer's place
+     * @throws InterruptedException if interrupted while waiting; the caller must still {@link #leave} the room
+     */
+    public void awaitFront(Place place) throws InterruptedException {
+        while (front != place) {
+            LockSupport.park(this);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Gives up a place, waking the customer behind it when it was at the front.
+     *
+     * @param place the customer's place
+     */
+    public void leave(Place place) {
+        Place next;
+        lock.lock();
+        try {
+            if (places.peekFirst() == place) {
+                places.pollFirst();
+            } else {
+                places.remove(place); // Only a customer interrupted before reaching the front leaves from the middle
+            }
+            next = places.peekFirst();
+            if (front == next) {
+                return;
+            }
+            front = next;
+        } finally {
+            lock.unlock();
+        }
+        if (next != null) {
+            LockSupport.unpark(next.thread);
+        }
+    }
+
+    /**
+     * Checks whether anyone is waiting, without taking the lock.
+     *
+     * @return true if no customer is waiting
+     */
+    public boolean isEmpty() {
+        return front == null;
+    }
+
+    /**
+     * Finds a customer's current position in the room.
+     *
+     * @param customerId the ID of the customer
+     * @return the position, 1 being the front, or 0 if the customer is not waiting
+     */
+    public int positionOf(int customerId) {
+        lock.lock();
+        try {
+            int position = 1;
+            for (Iterator<Place> it = places.iterator(); it.hasNext(); position++) {
+                if (it.next().customerId == customerId) {
+                    return position;
+                }
+            }
+            return 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns how long the customer at the front has been waiting.
+     *
+     * @return the wait in nanoseconds, 0 if the room is empty
+     */
+    public long getLongestWaitNanos() {
+        Place first = front;
+        return first == null ? 0 : System.nanoTime() - first.enteredNanos;
+    }
+
+    // Getters for the room size and admission statistics
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return places.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,79 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Backpressure checks for {@link CapacityGate}, run as a plain program:
+ * <pre>
+ * javac -encoding UTF-8 -d out src/*.java test/*.java
+ * java -cp out CapacityGateTest
+ * </pre>
+ * Exits with status 1 if a check fails.
+ */
+public class CapacityGateTest {
+    private static final long TIMEOUT_SECONDS = 30;
+
+    public static void main(String[] args) throws InterruptedException {
+        aReleaseTakesWhateverSpaceIsFree();
+        aFullGateShedsOrTimesOut();
+        aBlockedVendorWakesWhenSpaceIsReleased();
+        System.out.println("CapacityGateTest passed");
+    }
+
+    private static void aReleaseTakesWhateverSpaceIsFree() throws InterruptedException {
+        CapacityGate gate = new CapacityGate(10, 4, CapacityGate.Policy.BLOCK, 1, TimeUnit.SECONDS);
+        check(gate.getFreeSpace() == 6, "Expected 6 free with 4 of 10 on sale, found " + gate.getFreeSpace());
+        check(gate.admit(5, true) == 5, "A release that fits was not admitted whole");
+        check(gate.admit(5, true) == 1, "A release larger than the free space did not take what was left");
+        check(gate.getFreeSpace() == 0 && gate.getWaits() == 0, "Counted " + gate.getWaits() + " waits with space free");
+        check(gate.admit(3, false) == 0, "A vendor that may not block was admitted into a full gate");
+        check(gate.getShedTickets() == 3, "Counted " + gate.getShedTickets() + " shed tickets, expected 3");
+    }
+
+    private static void aFullGateShedsOrTimesOut() throws InterruptedException {
+        CapacityGate shed = new CapacityGate(2, 2, CapacityGate.Policy.SHED, 1, TimeUnit.SECONDS);
+        long start = System.nanoTime();
+        check(shed.admit(2, true) == 0, "A full SHED gate admitted a release");
+        check(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500), "A SHED gate waited for space");
+        check(shed.getWaits() == 0 && shed.getShedTickets() == 2, "Shedding counted a wait or lost the shed tickets");
+
+        CapacityGate timeout = new CapacityGate(2, 2, CapacityGate.Policy.TIMEOUT, 100, TimeUnit.MILLISECONDS);
+        start = System.nanoTime();
+        check(timeout.admit(2, true) == 0, "A full TIMEOUT gate admitted a release");
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        check(waitedMillis >= 100, "Gave up after " + waitedMillis + " ms, before the timeout");
+        check(timeout.getWaits() == 1 && timeout.getShedTickets() == 2, "A timed-out release was not counted");
+    }
+
+    /**
+     * A vendor blocked on a full gate is admitted once a customer hands space back,
+     * and takes only the space that was freed.
+     */
+    private static void aBlockedVendorWakesWhenSpaceIsReleased() throws InterruptedException {
+        CapacityGate gate = new CapacityGate(4, 4, CapacityGate.Policy.BLOCK, 1, TimeUnit.SECONDS);
+        AtomicInteger admitted = new AtomicInteger(-1);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread vendor = new Thread(() -> {
+            try {
+                admitted.set(gate.admit(3, true));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+        vendor.start();
+        check(!done.await(200, TimeUnit.MILLISECONDS), "A vendor got past a full BLOCK gate");
+        gate.release(2);
+        check(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "The blocked vendor never woke up");
+        check(admitted.get() == 2, "Admitted " + admitted.get() + " tickets after 2 were freed");
+        check(gate.getWaits() == 1 && gate.getFreeSpace() == 0, "Counted " + gate.getWaits() + " waits, " +
+                gate.getFreeSpace() + " free");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            System.err.println("FAILED: " + message);
+            System.exit(1);
+        }
+    }
+}
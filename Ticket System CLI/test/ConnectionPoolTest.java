@@ -0,0 +1,267 @@
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Checks for {@link ConnectionPool} against an in-process stand-in JDBC driver, run as a plain program:
+ * <pre>
+ * javac -encoding UTF-8 -d out src/*.java test/*.java
+ * java -cp out ConnectionPoolTest
+ * </pre>
+ * Exits with status 1 if a check fails.
+ */
+public class ConnectionPoolTest {
+    private static final String URL = "jdbc:pooltest:";
+
+    // How long the stand-in connections take to validate and to close, in milliseconds
+    private static volatile long validateMillis = 0;
+    private static volatile long closeMillis = 0;
+    private static volatile CountDownLatch closing = new CountDownLatch(1);
+    private static final AtomicInteger statementsPrepared = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        // Validate every idle connection on reuse, so the slow validation below is exercised
+        System.setProperty("ticket.db.validationIntervalMillis", "0");
+        DriverManager.registerDriver(new StandInDriver());
+
+        returnedConnectionsAreReused();
+        borrowersWaitForAReturnedConnection();
+        borrowersTimeOutWhenNoneIsReturned();
+        statementsAreCachedPerConnection();
+        slowValidationDoesNotHoldUpOtherBorrowers();
+        slowEvictionDoesNotHoldUpOtherBorrowers();
+        System.out.println("ConnectionPoolTest passed");
+    }
+
+    private static void returnedConnectionsAreReused() throws SQLException {
+        try (ConnectionPool pool = pool(2, 1000, 60_000)) {
+            Connection first;
+            try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+                first = conn.getConnection();
+            }
+            try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+                check(conn.getConnection() == first, "A returned connection was not reused");
+            }
+            check(pool.getMisses() == 1 && pool.getHits() == 1,
+                    "Expected 1 miss and 1 hit, got " + pool.getMisses() + " and " + pool.getHits());
+            check(pool.getOpenConnections() == 1 && pool.getIdleConnections() == 1, pool.describe());
+        }
+    }
+
+    private static void borrowersWaitForAReturnedConnection() throws Exception {
+        try (ConnectionPool pool = pool(1, 5000, 60_000)) {
+            ConnectionPool.PooledConnection held = pool.borrow();
+            CountDownLatch borrowed = new CountDownLatch(1);
+            Thread waiter = new Thread(() -> {
+                try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+                    borrowed.countDown();
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            waiter.start();
+            check(!borrowed.await(200, TimeUnit.MILLISECONDS), "Borrowed past the pool size");
+            held.close();
+            check(borrowed.await(5, TimeUnit.SECONDS), "The waiting borrower never got the returned connection");
+            waiter.join();
+            check(pool.getWaits() == 1 && pool.getTimeouts() == 0, pool.describe());
+            check(pool.getOpenConnections() == 1, "Opened more connections than the pool size: " + pool.describe());
+        }
+    }
+
+    private static void borrowersTimeOutWhenNoneIsReturned() throws SQLException {
+        try (ConnectionPool pool = pool(1, 100, 60_000);
+             ConnectionPool.PooledConnection held = pool.borrow()) {
+            long start = System.nanoTime();
+            try {
+                pool.borrow().close();
+                check(false, "Borrowed past the pool size");
+            } catch (SQLException expected) {
+                // Timed out
+            }
+            long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            check(waitedMillis >= 100, "Gave up after " + waitedMillis + " ms, before the maximum wait");
+            check(pool.getTimeouts() == 1, pool.describe());
+        }
+    }
+
+    private static void statementsAreCachedPerConnection() throws SQLException {
+        statementsPrepared.set(0);
+        try (ConnectionPool pool = pool(1, 1000, 60_000)) {
+            PreparedStatement first;
+            try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+                first = conn.prepare("SELECT 1");
+                check(conn.prepare("SELECT 1") == first, "The same query was prepared twice");
+                check(conn.prepareReturningKeys("SELECT 1") != first, "A key-returning statement shared the plain one");
+            }
+            try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+                check(conn.prepare("SELECT 1") == first, "The cache was lost when the connection was returned");
+            }
+            check(statementsPrepared.get() == 2, "Prepared " + statementsPrepared.get() + " statements, expected 2");
+        }
+    }
+
+    /**
+     * An idle connection that takes a second to validate holds up the borrower that took it, but no one else.
+     */
+    private static void slowValidationDoesNotHoldUpOtherBorrowers() throws Exception {
+        try (ConnectionPool pool = pool(2, 5000, 60_000)) {
+            pool.borrow().close();
+            validateMillis = 1000;
+            CountDownLatch validating = new CountDownLatch(1);
+            Thread slow = new Thread(() -> {
+                validating.countDown();
+                try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+                    // Got the slow connection
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            slow.start();
+            validating.await();
+            Thread.sleep(100); // Let it take the idle connection and start validating
+
+            long start = System.nanoTime();
+            pool.borrow().close();
+            long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            validateMillis = 0;
+            slow.join();
+            check(tookMillis < 500, "Borrowing took " + tookMillis + " ms while another connection was validated");
+        } finally {
+            validateMillis = 0;
+        }
+    }
+
+    /**
+     * Idle connections that take a second to close are evicted without holding up borrowers.
+     */
+    private static void slowEvictionDoesNotHoldUpOtherBorrowers() throws Exception {
+        try (ConnectionPool pool = pool(2, 5000, 100)) {
+            closing = new CountDownLatch(1);
+            closeMillis = 1000;
+            pool.borrow().close();
+            check(closing.await(5, TimeUnit.SECONDS), "The idle connection was never evicted");
+
+            long start = System.nanoTime();
+            ConnectionPool.PooledConnection conn = pool.borrow();
+            long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            closeMillis = 0;
+            conn.close();
+            check(tookMillis < 500, "Borrowing took " + tookMillis + " ms while an idle connection was closed");
+        } finally {
+            closeMillis = 0;
+        }
+    }
+
+    private static ConnectionPool pool(int size, long maxWaitMillis, long idleTimeoutMillis) {
+        return new ConnectionPool(URL, "user", "password", size, maxWaitMillis, idleTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Connection standInConnection() {
+        boolean[] closed = new boolean[1];
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "isValid":
+                            sleep(validateMillis);
+                            return !closed[0];
+                        case "close":
+                            closing.countDown();
+                            sleep(closeMillis);
+                            closed[0] = true;
+                            return null;
+                        case "isClosed":
+                            return closed[0];
+                        case "getAutoCommit":
+                            return true;
+                        case "prepareStatement":
+                            statementsPrepared.incrementAndGet();
+                            return standInStatement();
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private static PreparedStatement standInStatement() {
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "isClosed":
+                            return false;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    // Opens stand-in connections for the test URL
+    private static final class StandInDriver implements Driver {
+        @Override
+        public Connection connect(String url, Properties info) {
+            return acceptsURL(url) ? standInConnection() : null;
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith(URL);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            System.err.println("FAILED: " + message);
+            System.exit(1);
+        }
+    }
+}
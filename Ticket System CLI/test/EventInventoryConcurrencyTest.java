@@ -0,0 +1,153 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency checks for {@link EventInventory}, run as a plain program:
+ * <pre>
+ * javac -encoding UTF-8 -d out src/*.java test/*.java
+ * java -cp out EventInventoryConcurrencyTest
+ * </pre>
+ * Exits with status 1 if a check fails.
+ */
+public class EventInventoryConcurrencyTest {
+    private static final long TIMEOUT_SECONDS = 30;
+
+    public static void main(String[] args) throws Exception {
+        wholePartitionBuyersDoNotDeadlock();
+        concurrentBuyersNeverOversellOrDuplicate();
+        System.out.println("EventInventoryConcurrencyTest passed");
+    }
+
+    /**
+     * Buyers that each ask for every ticket in the partition, while vendors keep adding,
+     * must all make progress: a buyer may never wait for tickets another buyer has claimed.
+     */
+    private static void wholePartitionBuyersDoNotDeadlock() throws InterruptedException {
+        int capacity = 64;
+        int buyers = 8;
+        int ticketsToSell = 200_000;
+        EventInventory inventory = new EventInventory(0, "Concert", capacity, new TicketMetrics(false));
+        AtomicInteger sold = new AtomicInteger();
+        AtomicBoolean done = new AtomicBoolean();
+        CountDownLatch finished = new CountDownLatch(buyers + 1);
+
+        Thread vendor = new Thread(() -> {
+            int released = 0;
+            while (released < ticketsToSell && !done.get()) {
+                int added = inventory.add(1, Math.min(capacity, ticketsToSell - released), 10.0);
+                released += added;
+                if (added == 0) {
+                    Thread.yield(); // Full; let the buyers run
+                }
+            }
+            finished.countDown();
+        });
+        vendor.start();
+        for (int i = 0; i < buyers; i++) {
+            new Thread(() -> {
+                TicketRing purchased = new TicketRing(capacity);
+                while (sold.get() < ticketsToSell && !done.get()) {
+                    purchased.clear();
+                    int taken = inventory.take(capacity, purchased);
+                    sold.addAndGet(taken);
+                    if (taken == 0) {
+                        Thread.yield(); // Empty; let the vendor run
+                    }
+                }
+                finished.countDown();
+            }).start();
+        }
+
+        boolean completed = finished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        done.set(true);
+        check(completed, "Whole-partition buyers stalled after selling " + sold.get() + " of " + ticketsToSell);
+        check(sold.get() == ticketsToSell, "Sold " + sold.get() + " tickets, expected " + ticketsToSell);
+    }
+
+    /**
+     * Several vendors add uniquely numbered tickets while buyers take random amounts. No ticket may
+     * be taken twice, no more may be sold than were added, and what is left must account for the rest.
+     */
+    private static void concurrentBuyersNeverOversellOrDuplicate() throws InterruptedException {
+        int capacity = 256;
+        int vendors = 4;
+        int buyers = 8;
+        int ticketsPerVendor = 100_000;
+        EventInventory inventory = new EventInventory(0, "Concert", capacity, new TicketMetrics(false));
+        AtomicInteger vendorsRunning = new AtomicInteger(vendors);
+        List<Thread> threads = new ArrayList<>();
+        int[] added = new int[vendors];
+        for (int v = 0; v < vendors; v++) {
+            int vendor = v;
+            threads.add(new Thread(() -> {
+                // The price in cents numbers each ticket, so the vendor ID and price identify it
+                while (added[vendor] < ticketsPerVendor) {
+                    if (inventory.add(vendor, 1, (added[vendor] + 1) / 100.0) == 1) {
+                        added[vendor]++;
+                    } else {
+                        Thread.yield(); // Full; let the buyers run
+                    }
+                }
+                vendorsRunning.decrementAndGet();
+            }));
+        }
+        List<TicketRing> taken = new ArrayList<>();
+        for (int b = 0; b < buyers; b++) {
+            TicketRing bought = new TicketRing();
+            taken.add(bought);
+            threads.add(new Thread(() -> {
+                TicketRing purchase = new TicketRing();
+                while (vendorsRunning.get() > 0 || inventory.size() > 0) {
+                    purchase.clear();
+                    int count = inventory.take(1 + (int) (Math.random() * 5), purchase);
+                    check(count == purchase.size(), "take returned " + count + " but delivered " + purchase.size());
+                    for (int i = 0; i < count; i++) {
+                        bought.add(purchase.eventIndexAt(i), purchase.vendorIdAt(i), purchase.priceCentsAt(i), 1);
+                    }
+                    if (count == 0) {
+                        Thread.yield(); // Empty; let the vendors run
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            check(!thread.isAlive(), "Vendors and buyers did not finish within " + TIMEOUT_SECONDS + " s");
+        }
+
+        long totalAdded = 0;
+        for (int count : added) {
+            totalAdded += count;
+        }
+        BitSet[] seen = new BitSet[vendors];
+        for (int v = 0; v < vendors; v++) {
+            seen[v] = new BitSet(ticketsPerVendor + 1);
+        }
+        long sold = 0;
+        for (TicketRing bought : taken) {
+            for (int i = 0; i < bought.size(); i++) {
+                int ticket = (int) bought.priceCentsAt(i);
+                BitSet vendorTickets = seen[bought.vendorIdAt(i)];
+                check(!vendorTickets.get(ticket), "Ticket " + ticket + " of vendor " + bought.vendorIdAt(i) + " was taken twice");
+                vendorTickets.set(ticket);
+            }
+            sold += bought.size();
+        }
+        check(sold <= totalAdded, "Sold " + sold + " tickets but only " + totalAdded + " were added");
+        check(sold + inventory.size() == totalAdded,
+                "Sold " + sold + " and " + inventory.size() + " left, but " + totalAdded + " were added");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            System.err.println("FAILED: " + message);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Recovery checks for {@link JournalDatabase}, run as a plain program:
+ * <pre>
+ * javac -encoding UTF-8 -d out src/*.java test/*.java
+ * java -cp out JournalDatabaseTest
+ * </pre>
+ * Exits with status 1 if a check fails.
+ */
+public class JournalDatabaseTest {
+    // Must match JournalDatabase, which maps the state journal in segments of this size
+    private static final int STATE_SEGMENT_SIZE = 1 << 20;
+    // State journal record types written by JournalDatabase
+    private static final byte EVENT = 2;
+    private static final byte CATALOG = 4;
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("ticket.log.mode", "off");
+        TicketSystemLogger.configureLogger();
+
+        Path directory = Files.createTempDirectory("journal-database-test");
+        try {
+            aCatalogCutShortByACrashIsNotReplayed(directory);
+            System.out.println("JournalDatabaseTest passed");
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Writes the start of a second catalog the way a crash in replaceConfiguration would leave it:
+     * its configuration and one event, without the end record. On restart the first catalog must
+     * come back whole, and an event saved afterwards must not be taken for part of the broken one.
+     */
+    private static void aCatalogCutShortByACrashIsNotReplayed(Path directory) {
+        Map<String, Double> prices = new LinkedHashMap<>();
+        prices.put("Concert", 100.0);
+        prices.put("Theatre", 50.0);
+        JournalDatabase database = new JournalDatabase(directory);
+        database.replaceConfiguration(100, 5, 2, 50, prices);
+        database.close();
+
+        try (JournalFile journal = new JournalFile(directory.resolve("state.journal"), STATE_SEGMENT_SIZE)) {
+            journal.replay((type, payload) -> { });
+            journal.lock();
+            try {
+                journal.begin(CATALOG, 16).putInt(999).putInt(9).putInt(9).putInt(99);
+                journal.end();
+                byte[] name = "Opera".getBytes(StandardCharsets.UTF_8);
+                ByteBuffer buffer = journal.begin(EVENT, 14 + name.length);
+                buffer.putInt(1).putDouble(75.0).putShort((short) name.length).put(name);
+                journal.end();
+            } finally {
+                journal.unlock();
+            }
+        }
+
+        database = new JournalDatabase(directory);
+        checkLoaded(database, 100, prices);
+        database.saveEventDetails(3, "Opera", 75.0);
+        database.close();
+
+        Map<String, Double> withOpera = new LinkedHashMap<>(prices);
+        withOpera.put("Opera", 75.0);
+        database = new JournalDatabase(directory);
+        checkLoaded(database, 100, withOpera);
+        database.close();
+    }
+
+    private static void checkLoaded(JournalDatabase database, int totalTickets, Map<String, Double> prices) {
+        TicketPoolConfiguration configuration = new TicketPoolConfiguration();
+        check(database.loadConfiguration(configuration), "No configuration was replayed");
+        check(configuration.getTotalTickets() == totalTickets,
+                "Replayed " + configuration.getTotalTickets() + " total tickets, expected " + totalTickets);
+        check(configuration.getEventPrices().equals(prices),
+                "Replayed events " + configuration.getEventPrices() + ", expected " + prices);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            System.err.println("FAILED: " + message);
+            System.exit(1);
+        }
+    }
+}
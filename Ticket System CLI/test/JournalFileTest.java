@@ -0,0 +1,89 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replay checks for {@link JournalFile}, run as a plain program:
+ * <pre>
+ * javac -encoding UTF-8 -d out src/*.java test/*.java
+ * java -cp out JournalFileTest
+ * </pre>
+ * Exits with status 1 if a check fails.
+ */
+public class JournalFileTest {
+    private static final int SEGMENT_SIZE = 1 << 16;
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("journal-test");
+        try {
+            recordsFromBeforeTruncationAreNotReplayed(directory.resolve("truncated.journal"));
+            System.out.println("JournalFileTest passed");
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Truncates a journal, appends one record and then loses the terminator after it, so the next
+     * old record sits exactly where replay looks. Replay must stop there instead of resurrecting it.
+     */
+    private static void recordsFromBeforeTruncationAreNotReplayed(Path path) throws IOException {
+        try (JournalFile journal = new JournalFile(path, SEGMENT_SIZE)) {
+            journal.replay((type, payload) -> { });
+            for (int i = 0; i < 3; i++) {
+                append(journal, i);
+            }
+            journal.force();
+        }
+        byte[] before = Files.readAllBytes(path);
+
+        long end;
+        try (JournalFile journal = new JournalFile(path, SEGMENT_SIZE)) {
+            check(replay(journal).size() == 3, "Expected 3 records before truncation");
+            journal.truncate();
+            append(journal, 100);
+            end = journal.getWritePosition();
+        }
+
+        // Put the old bytes back after the new record, as if the write of its terminator was lost
+        byte[] after = Files.readAllBytes(path);
+        System.arraycopy(before, (int) end, after, (int) end, 64);
+        Files.write(path, after);
+
+        try (JournalFile journal = new JournalFile(path, SEGMENT_SIZE)) {
+            List<Integer> replayed = replay(journal);
+            check(replayed.equals(List.of(100)), "Replayed " + replayed + " after truncation, expected [100]");
+        }
+    }
+
+    private static void append(JournalFile journal, int value) {
+        journal.lock();
+        try {
+            journal.begin((byte) 1, 4).putInt(value);
+            journal.end();
+        } finally {
+            journal.unlock();
+        }
+    }
+
+    private static List<Integer> replay(JournalFile journal) {
+        List<Integer> values = new ArrayList<>();
+        journal.replay((type, payload) -> values.add(payload.getInt()));
+        return values;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            System.err.println("FAILED: " + message);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multi-process checks for {@link SharedInventoryFile}, run as a plain program:
+ * <pre>
+ * javac -encoding UTF-8 -d out src/*.java test/*.java
+ * java -cp out SharedInventoryFileTest
+ * </pre>
+ * Starts a second JVM on the same file. Exits with status 1 if a check fails.
+ */
+public class SharedInventoryFileTest {
+    private static final int TICKETS = 100;
+    private static final int TAKEN_BY_CHILD = 30;
+    private static final long LEASE_MILLIS = 500;
+    private static final long TIMEOUT_SECONDS = 30;
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("ticket.inventory.leaseMillis", String.valueOf(LEASE_MILLIS));
+        System.setProperty("ticket.inventory.heartbeatMillis", "50");
+        if (args.length == 2 && args[0].equals("child")) {
+            takeAndDie(Path.of(args[1]));
+            return;
+        }
+        Path file = Files.createTempFile("shared-inventory-test", ".shm");
+        try {
+            ticketsLostByADeadProcessStillSellOut(file);
+            System.out.println("SharedInventoryFileTest passed");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * A process that takes tickets and dies before recording their sale leaves the sold counter short
+     * of the limit for good. Once the rest are sold and nothing is left on sale, the process still
+     * running must see the inventory as exhausted, but not while tickets are still on sale.
+     */
+    private static void ticketsLostByADeadProcessStillSellOut(Path file) throws Exception {
+        try (SharedInventoryFile shared = new SharedInventoryFile(file, List.of("Concert"), TICKETS)) {
+            SharedInventoryFile.Partition partition = shared.partition("Concert");
+            check(shared.claimQuota(TICKETS, TICKETS) == TICKETS, "Could not claim the whole limit");
+            for (int i = 0; i < TICKETS; i++) {
+                check(partition.offer(1, 1000), "Could not put ticket " + i + " on sale");
+            }
+
+            Process child = new ProcessBuilder(ProcessHandle.current().info().command().orElse("java"),
+                    "-cp", System.getProperty("java.class.path"), SharedInventoryFileTest.class.getName(),
+                    "child", file.toString())
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            check(child.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS), "The child process did not finish");
+            check(child.exitValue() == 0, "The child process failed with status " + child.exitValue());
+            check(partition.size() == TICKETS - TAKEN_BY_CHILD, "Expected " + (TICKETS - TAKEN_BY_CHILD) +
+                    " tickets on sale after the child took some, found " + partition.size());
+
+            // Tickets are still on sale, so however long the inventory is quiet it is not exhausted
+            Thread.sleep(3 * LEASE_MILLIS);
+            check(!shared.isExhausted(TICKETS), "Exhausted while tickets were still on sale");
+
+            TicketRing bought = new TicketRing();
+            int taken = partition.take(0, TICKETS, bought);
+            check(taken == TICKETS - TAKEN_BY_CHILD, "Took " + taken + " tickets, expected " + (TICKETS - TAKEN_BY_CHILD));
+            long sold = shared.recordSold(taken);
+            check(sold < TICKETS, "The child's lost tickets were counted as sold");
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            while (!shared.isExhausted(TICKETS)) {
+                check(System.nanoTime() < deadline, "Never exhausted with " + sold + " of " + TICKETS +
+                        " sold and nothing on sale");
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    // Runs in the child process: takes tickets, then halts before recording the sale
+    private static void takeAndDie(Path file) {
+        SharedInventoryFile shared = new SharedInventoryFile(file, List.of("Concert"), TICKETS);
+        int taken = shared.partition("Concert").take(0, TAKEN_BY_CHILD, new TicketRing());
+        Runtime.getRuntime().halt(taken == TAKEN_BY_CHILD ? 0 : 2);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            System.err.println("FAILED: " + message);
+            System.exit(1);
+        }
+    }
+}
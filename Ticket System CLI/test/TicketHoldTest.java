@@ -0,0 +1,94 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks for the timed holds of {@link TicketPool}, run as a plain program:
+ * <pre>
+ * javac -encoding UTF-8 -d out src/*.java test/*.java
+ * java -cp out TicketHoldTest
+ * </pre>
+ * Exits with status 1 if a check fails.
+ */
+public class TicketHoldTest {
+    private static final int TICKETS = 10;
+    private static final long TIMEOUT_SECONDS = 30;
+
+    public static void main(String[] args) throws InterruptedException {
+        System.setProperty("ticket.log.mode", "off");
+
+        releasedAndExpiredHoldsGoBackOnSale();
+        holdsRefusedByAClosedPoolGoBackOnSale();
+        System.out.println("TicketHoldTest passed");
+    }
+
+    private static void releasedAndExpiredHoldsGoBackOnSale() throws InterruptedException {
+        TicketPool pool = pool();
+        TicketHold released = pool.reserveTickets(1, "Concert", 3, 1, TimeUnit.MINUTES);
+        check(released != null && released.getTicketCount() == 3, "Could not hold 3 tickets");
+        check(pool.getCurrentTickets() == TICKETS - 3 && pool.getTicketsHeld() == 3,
+                "Holding 3 left " + pool.getCurrentTickets() + " on sale and " + pool.getTicketsHeld() + " held");
+        check(pool.releaseHold(released), "Could not release the hold");
+        check(pool.getCurrentTickets() == TICKETS, "Released tickets did not go back on sale");
+
+        TicketHold expiring = pool.reserveTickets(2, "Concert", 4, 50, TimeUnit.MILLISECONDS);
+        check(expiring != null, "Could not hold 4 tickets");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (expiring.getState() != TicketHold.State.EXPIRED) {
+            check(System.nanoTime() < deadline, "The hold never expired");
+            Thread.sleep(10);
+        }
+        check(pool.getCurrentTickets() == TICKETS && pool.getTicketsHeld() == 0,
+                "Expired tickets did not go back on sale: " + pool.describeHolds());
+        check(!pool.confirmHold(expiring), "An expired hold was confirmed");
+        pool.close();
+    }
+
+    /**
+     * Once the pool is closed its timing wheel refuses new holds. The tickets taken for the hold
+     * must go back on sale rather than be lost with it.
+     */
+    private static void holdsRefusedByAClosedPoolGoBackOnSale() {
+        TicketPool pool = pool();
+        TicketHold first = pool.reserveTickets(1, "Concert", 1, 1, TimeUnit.MINUTES); // Starts the wheel
+        check(pool.releaseHold(first), "Could not release the hold");
+        pool.close();
+
+        try {
+            pool.reserveTickets(2, "Concert", 4, 1, TimeUnit.MINUTES);
+            check(false, "A closed pool made a hold");
+        } catch (IllegalStateException expected) {
+            // Refused
+        }
+        try {
+            pool.reserveTickets(3, 4, 1, TimeUnit.MINUTES);
+            check(false, "A closed pool made a hold");
+        } catch (IllegalStateException expected) {
+            // Refused
+        }
+        check(pool.getCurrentTickets() == TICKETS && pool.getTicketsHeld() == 0,
+                "Tickets were lost by refused holds: " + pool.getCurrentTickets() + " on sale and " +
+                        pool.getTicketsHeld() + " held");
+    }
+
+    // A prepared pool with one event and TICKETS tickets on sale
+    private static TicketPool pool() {
+        TicketPoolConfiguration configuration = new TicketPoolConfiguration();
+        configuration.setTotalTickets(100);
+        configuration.setMaxTicketCapacity(50);
+        configuration.setTicketReleaseRate(TICKETS);
+        configuration.setCustomerRetrievalRate(5);
+        configuration.addEventPrice("Concert", 100.0);
+        configuration.setConfigured(true);
+        TicketPool pool = new TicketPool(new InMemoryDatabase(), configuration);
+        pool.prepareInventories();
+        check(pool.addTickets("Concert", 1, TICKETS, 100.0), "Could not add tickets");
+        check(pool.getCurrentTickets() == TICKETS, "Expected " + TICKETS + " tickets on sale, found " + pool.getCurrentTickets());
+        return pool;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            System.err.println("FAILED: " + message);
+            System.exit(1);
+        }
+    }
+}
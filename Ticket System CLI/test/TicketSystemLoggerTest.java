@@ -0,0 +1,82 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Checks for {@link TicketSystemLogger}, run as a plain program:
+ * <pre>
+ * javac -encoding UTF-8 -d out src/*.java test/*.java
+ * java -cp out TicketSystemLoggerTest
+ * </pre>
+ * Runs the logger in a second JVM inside a temporary directory, so the log file of the working tree
+ * is left alone. Exits with status 1 if a check fails.
+ */
+public class TicketSystemLoggerTest {
+    private static final long TIMEOUT_SECONDS = 30;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 1 && args[0].equals("child")) {
+            configureTwiceAndLog();
+            return;
+        }
+        reconfiguringKeepsWritingToTheSameFile("sync");
+        reconfiguringKeepsWritingToTheSameFile("async");
+        System.out.println("TicketSystemLoggerTest passed");
+    }
+
+    /**
+     * A handler left open by the first configuration keeps the lock on the log file, and the second
+     * configuration then writes to ticket_system.log.1 instead; one left attached logs every message twice.
+     */
+    private static void reconfiguringKeepsWritingToTheSameFile(String mode) throws Exception {
+        Path dir = Files.createTempDirectory("ticket-logger-test");
+        try {
+            Process child = new ProcessBuilder(ProcessHandle.current().info().command().orElse("java"),
+                    "-Dticket.log.mode=" + mode, "-cp", Path.of(System.getProperty("java.class.path")).toAbsolutePath().toString(),
+                    TicketSystemLoggerTest.class.getName(), "child")
+                    .directory(dir.toFile())
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            check(child.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS), mode + ": the child process did not finish");
+            check(child.exitValue() == 0, mode + ": the child process failed with status " + child.exitValue());
+
+            check(!Files.exists(dir.resolve("ticket_system.log.1")), mode + ": output moved to ticket_system.log.1");
+            String log = Files.readString(dir.resolve("ticket_system.log"));
+            check(count(log, "before reconfiguring") == 1, mode + ": the first message was logged " +
+                    count(log, "before reconfiguring") + " times");
+            check(count(log, "after reconfiguring") == 1, mode + ": the second message was logged " +
+                    count(log, "after reconfiguring") + " times");
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    // Runs in the child process, in the temporary directory
+    private static void configureTwiceAndLog() {
+        TicketSystemLogger.configureLogger();
+        TicketSystemLogger.info("before reconfiguring");
+        TicketSystemLogger.configureLogger();
+        TicketSystemLogger.info("after reconfiguring");
+        TicketSystemLogger.shutdown();
+    }
+
+    private static int count(String text, String word) {
+        int count = 0;
+        for (int i = text.indexOf(word); i >= 0; i = text.indexOf(word, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            System.err.println("FAILED: " + message);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Timing checks for {@link TimingWheel}, run as a plain program:
+ * <pre>
+ * javac -encoding UTF-8 -d out src/*.java test/*.java
+ * java -cp out TimingWheelTest
+ * </pre>
+ * Exits with status 1 if a check fails.
+ */
+public class TimingWheelTest {
+    private static final long TIMEOUT_SECONDS = 30;
+
+    public static void main(String[] args) throws InterruptedException {
+        timeoutsNeverFireEarly();
+        cancelRacingExpiryWinsExactlyOnce();
+        aClosedWheelRefusesNewTimeouts();
+        System.out.println("TimingWheelTest passed");
+    }
+
+    /**
+     * Delays spread over several revolutions of a small wheel, so many share a bucket with
+     * timeouts due on a later revolution. Each must fire no sooner than its delay.
+     */
+    private static void timeoutsNeverFireEarly() throws InterruptedException {
+        int count = 500;
+        AtomicInteger fired = new AtomicInteger();
+        TimingWheel<Task> wheel = new TimingWheel<>("test-wheel", 2, TimeUnit.MILLISECONDS, 8, task -> {
+            task.firedNanos = System.nanoTime();
+            task.fired.incrementAndGet();
+            fired.incrementAndGet();
+        });
+        Random random = new Random(42);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Task task = new Task(TimeUnit.MICROSECONDS.toNanos(random.nextInt(100_000)));
+            tasks.add(task);
+            task.scheduledNanos = System.nanoTime();
+            wheel.schedule(task, task.delayNanos, TimeUnit.NANOSECONDS);
+            if (i % 50 == 0) {
+                Thread.sleep(random.nextInt(5)); // Schedule at different points of a tick
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (fired.get() < count) {
+            check(System.nanoTime() < deadline, "Only " + fired.get() + " of " + count + " timeouts fired");
+            Thread.sleep(10);
+        }
+        for (Task task : tasks) {
+            long waited = task.firedNanos - task.scheduledNanos;
+            check(waited >= task.delayNanos, "A timeout of " + task.delayNanos + " ns fired after " + waited + " ns");
+            check(task.fired.get() == 1, "A timeout fired " + task.fired.get() + " times");
+        }
+        check(wheel.size() == 0, wheel.size() + " timeouts are left in the wheel");
+        wheel.close();
+    }
+
+    /**
+     * Cancels timeouts at about the moment they are due. Either the cancel wins and the timeout
+     * never fires, or the expiry wins and the cancel reports it; never both and never neither.
+     */
+    private static void cancelRacingExpiryWinsExactlyOnce() throws InterruptedException {
+        int rounds = 2000;
+        TimingWheel<Task> wheel = new TimingWheel<>("test-wheel", 1, TimeUnit.MILLISECONDS, 64,
+                task -> task.fired.incrementAndGet());
+        Random random = new Random(7);
+        List<Task> cancelled = new ArrayList<>();
+        List<Task> expired = new ArrayList<>();
+        for (int i = 0; i < rounds; i++) {
+            Task task = new Task(0);
+            wheel.schedule(task, 1, TimeUnit.MILLISECONDS);
+            long until = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(1000 + random.nextInt(2000));
+            while (System.nanoTime() < until) {
+                Thread.onSpinWait();
+            }
+            (wheel.cancel(task) ? cancelled : expired).add(task);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        for (Task task : expired) {
+            while (task.fired.get() == 0) {
+                check(System.nanoTime() < deadline, "A timeout whose cancel lost never fired");
+                Thread.sleep(1);
+            }
+        }
+        Thread.sleep(20); // Several ticks, long enough for a wrongly kept timeout to come round again
+        for (Task task : cancelled) {
+            check(task.fired.get() == 0, "A cancelled timeout fired");
+            check(!task.isScheduled(), "A cancelled timeout is still scheduled");
+        }
+        for (Task task : expired) {
+            check(task.fired.get() == 1, "A timeout fired " + task.fired.get() + " times");
+        }
+        check(!cancelled.isEmpty() && !expired.isEmpty(), "The race was never run: " + cancelled.size() +
+                " cancelled and " + expired.size() + " expired of " + rounds);
+        wheel.close();
+    }
+
+    private static void aClosedWheelRefusesNewTimeouts() {
+        TimingWheel<Task> wheel = new TimingWheel<>("test-wheel", 1, TimeUnit.MILLISECONDS, 8, task -> { });
+        wheel.close();
+        try {
+            wheel.schedule(new Task(0), 1, TimeUnit.SECONDS);
+            check(false, "A closed wheel accepted a timeout");
+        } catch (IllegalStateException expected) {
+            // Refused
+        }
+    }
+
+    private static final class Task extends TimingWheel.Timeout {
+        private final long delayNanos;
+        private final AtomicInteger fired = new AtomicInteger();
+        private volatile long scheduledNanos;
+        private volatile long firedNanos;
+
+        private Task(long delayNanos) {
+            this.delayNanos = delayNanos;
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            System.err.println("FAILED: " + message);
+            System.exit(1);
+        }
+    }
+}
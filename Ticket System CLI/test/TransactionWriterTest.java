@@ -0,0 +1,171 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks for {@link TransactionWriter} against an in-memory database, run as a plain program:
+ * <pre>
+ * javac -encoding UTF-8 -d out src/*.java test/*.java
+ * java -cp out TransactionWriterTest
+ * </pre>
+ * Exits with status 1 if a check fails.
+ */
+public class TransactionWriterTest {
+    private static final long TIMEOUT_SECONDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("ticket.log.mode", "off");
+        TicketSystemLogger.configureLogger();
+
+        fullBatchesAreWrittenAtOnce();
+        theFlushIntervalWritesAPartialBatch();
+        aFailedBatchFailsItsWaitingPurchase();
+        closeWaitsForASubmitBlockedOnAFullQueue();
+        System.out.println("TransactionWriterTest passed");
+    }
+
+    /**
+     * With an hour-long flush interval only a full batch or a flush marker makes the writer write.
+     */
+    private static void fullBatchesAreWrittenAtOnce() throws InterruptedException {
+        RecordingDatabase database = new RecordingDatabase();
+        TransactionWriter writer = writer(database, 100, 3, TimeUnit.HOURS.toMillis(1),
+                TransactionWriter.DurabilityMode.FIRE_AND_FORGET);
+        for (int i = 0; i < 7; i++) {
+            writer.submit(order(i));
+        }
+        writer.drain(); // The marker flushes the seventh order without waiting out the interval
+        check(database.batchSizes().equals(List.of(3, 3, 1)), "Expected batches of [3, 3, 1], got " + database.batchSizes());
+        check(writer.getRecordsWritten() == 7 && writer.getBatchesWritten() == 3,
+                "Counted " + writer.getRecordsWritten() + " records in " + writer.getBatchesWritten() + " batches");
+        writer.close();
+    }
+
+    private static void theFlushIntervalWritesAPartialBatch() throws InterruptedException {
+        RecordingDatabase database = new RecordingDatabase();
+        TransactionWriter writer = writer(database, 100, 100, 50, TransactionWriter.DurabilityMode.FIRE_AND_FORGET);
+        writer.submit(order(1));
+        writer.submit(order(2));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (writer.getRecordsWritten() < 2) {
+            check(System.nanoTime() < deadline, "A partial batch was never written after the flush interval");
+            Thread.sleep(10);
+        }
+        check(database.batchSizes().equals(List.of(2)), "Expected one batch of 2, got " + database.batchSizes());
+        writer.close();
+    }
+
+    /**
+     * In {@link TransactionWriter.DurabilityMode#WAIT_FOR_FLUSH} mode a purchase whose batch fails to
+     * write fails too, and the writer keeps running for later batches.
+     */
+    private static void aFailedBatchFailsItsWaitingPurchase() throws InterruptedException {
+        RecordingDatabase database = new RecordingDatabase();
+        database.failing = true;
+        TransactionWriter writer = writer(database, 100, 10, 50, TransactionWriter.DurabilityMode.WAIT_FOR_FLUSH);
+        try {
+            writer.submit(order(1));
+            check(false, "A purchase whose batch failed returned normally");
+        } catch (IllegalStateException expected) {
+            check(expected.getMessage().contains("disk full"), "Unexpected failure: " + expected.getMessage());
+        }
+        check(writer.getRecordsFailed() == 1, "Counted " + writer.getRecordsFailed() + " failed records, expected 1");
+
+        database.failing = false;
+        writer.submit(order(2));
+        check(writer.getRecordsWritten() == 1, "The writer did not recover after a failed batch");
+        writer.close();
+    }
+
+    /**
+     * A purchase blocked on a full queue when the writer is closed still gets its order written,
+     * and close() returns once it has.
+     */
+    private static void closeWaitsForASubmitBlockedOnAFullQueue() throws InterruptedException {
+        RecordingDatabase database = new RecordingDatabase();
+        database.blocked = new CountDownLatch(1);
+        TransactionWriter writer = writer(database, 1, 1, 50, TransactionWriter.DurabilityMode.FIRE_AND_FORGET);
+        writer.submit(order(1)); // Taken by the writer, which then blocks in the database
+        while (writer.getQueuedRecords() > 0) {
+            Thread.sleep(10);
+        }
+        writer.submit(order(2)); // Fills the queue
+        Thread submitter = startThread(() -> {
+            try {
+                writer.submit(order(3));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (writer.getBackpressureWaits() == 0) {
+            Thread.sleep(10);
+        }
+        CountDownLatch closed = new CountDownLatch(1);
+        startThread(() -> {
+            writer.close();
+            closed.countDown();
+        });
+        check(!closed.await(200, TimeUnit.MILLISECONDS), "close() returned while an order was still being submitted");
+
+        database.blocked.countDown();
+        check(closed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "close() never returned");
+        submitter.join();
+        check(writer.getRecordsWritten() == 3, "Wrote " + writer.getRecordsWritten() + " of 3 orders before closing");
+    }
+
+    private static TransactionWriter writer(DatabaseInterface database, int queueCapacity, int batchSize,
+                                            long flushMillis, TransactionWriter.DurabilityMode mode) {
+        return new TransactionWriter(database, queueCapacity, batchSize, flushMillis, TimeUnit.MILLISECONDS,
+                mode, new TicketMetrics(false));
+    }
+
+    private static TransactionRecord order(int customerId) {
+        return new TransactionRecord("Concert", 100.0, 1, customerId, 1);
+    }
+
+    private static Thread startThread(Runnable task) {
+        Thread thread = new Thread(task);
+        thread.start();
+        return thread;
+    }
+
+    // Records the size of every batch written, and can fail or hold up writes
+    private static final class RecordingDatabase extends InMemoryDatabase {
+        private final List<Integer> batchSizes = new ArrayList<>();
+        private volatile boolean failing = false;
+        private volatile CountDownLatch blocked;
+
+        @Override
+        public void logTransactions(List<TransactionRecord> records) {
+            CountDownLatch latch = blocked;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failing) {
+                throw new IllegalStateException("disk full");
+            }
+            synchronized (batchSizes) {
+                batchSizes.add(records.size());
+            }
+            super.logTransactions(records);
+        }
+
+        private List<Integer> batchSizes() {
+            synchronized (batchSizes) {
+                return new ArrayList<>(batchSizes);
+            }
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            System.err.println("FAILED: " + message);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ordering checks for {@link WaitingRoom}, run as a plain program:
+ * <pre>
+ * javac -encoding UTF-8 -d out src/*.java test/*.java
+ * java -cp out WaitingRoomTest
+ * </pre>
+ * Exits with status 1 if a check fails.
+ */
+public class WaitingRoomTest {
+    private static final long TIMEOUT_SECONDS = 30;
+
+    public static void main(String[] args) throws InterruptedException {
+        customersAreServedInArrivalOrder();
+        anInterruptedCustomerLeavesFromTheMiddle();
+        aFullRoomTurnsCustomersAway();
+        System.out.println("WaitingRoomTest passed");
+    }
+
+    /**
+     * The main thread holds the front while customers queue up behind it one at a time,
+     * then steps aside; they must reach the front in the order they entered.
+     */
+    private static void customersAreServedInArrivalOrder() throws InterruptedException {
+        int customers = 20;
+        WaitingRoom room = new WaitingRoom(100);
+        WaitingRoom.Place holder = room.enter(0);
+        List<Integer> served = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 1; i <= customers; i++) {
+            threads.add(startCustomer(room, i, served));
+            awaitWaiting(room, i + 1); // Enter strictly one after the other
+        }
+        check(room.positionOf(customers) == customers + 1, "The last customer is at " + room.positionOf(customers));
+
+        room.leave(holder);
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            check(!thread.isAlive(), "A customer never reached the front");
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 1; i <= customers; i++) {
+            expected.add(i);
+        }
+        check(served.equals(expected), "Served out of order: " + served);
+        check(room.isEmpty() && room.getWaiting() == 0, "The room is not empty after everyone left");
+    }
+
+    /**
+     * A customer interrupted while waiting behind others leaves from the middle of the room;
+     * the customers on either side keep their order and are still served.
+     */
+    private static void anInterruptedCustomerLeavesFromTheMiddle() throws InterruptedException {
+        WaitingRoom room = new WaitingRoom(10);
+        WaitingRoom.Place holder = room.enter(0);
+        List<Integer> served = new ArrayList<>();
+        Thread first = startCustomer(room, 1, served);
+        awaitWaiting(room, 2);
+        Thread middle = startCustomer(room, 2, served);
+        awaitWaiting(room, 3);
+        Thread last = startCustomer(room, 3, served);
+        awaitWaiting(room, 4);
+
+        middle.interrupt();
+        middle.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        check(!middle.isAlive(), "The interrupted customer did not leave");
+        check(room.positionOf(2) == 0, "The interrupted customer is still waiting");
+        check(room.positionOf(1) == 2 && room.positionOf(3) == 3,
+                "Positions after leaving from the middle: " + room.positionOf(1) + " and " + room.positionOf(3));
+
+        room.leave(holder);
+        first.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        last.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        check(!first.isAlive() && !last.isAlive(), "A customer behind the one who left was never served");
+        check(served.equals(List.of(1, 3)), "Served " + served + ", expected [1, 3]");
+        check(room.isEmpty(), "The room is not empty after everyone left");
+    }
+
+    private static void aFullRoomTurnsCustomersAway() {
+        WaitingRoom room = new WaitingRoom(2);
+        WaitingRoom.Place first = room.enter(1);
+        WaitingRoom.Place second = room.enter(2);
+        check(room.enter(3) == null, "A full room let a customer in");
+        check(room.getAdmitted() == 2 && room.getRejected() == 1,
+                "Counted " + room.getAdmitted() + " admitted and " + room.getRejected() + " rejected");
+        room.leave(first);
+        check(room.enter(4) != null, "A freed place was not reused");
+        check(room.positionOf(2) == 1 && room.positionOf(4) == 2, "The newcomer did not join the back");
+        room.leave(second);
+    }
+
+    // Starts a customer that waits for the front, records that it got there and leaves
+    private static Thread startCustomer(WaitingRoom room, int customerId, List<Integer> served) {
+        Thread thread = new Thread(() -> {
+            WaitingRoom.Place place = room.enter(customerId);
+            try {
+                room.awaitFront(place);
+                synchronized (served) {
+                    served.add(customerId);
+                }
+            } catch (InterruptedException e) {
+                // Gave up waiting
+            } finally {
+                room.leave(place);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitWaiting(WaitingRoom room, int waiting) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (room.getWaiting() < waiting) {
+            check(System.nanoTime() < deadline, "Only " + room.getWaiting() + " of " + waiting + " customers entered");
+            Thread.sleep(1);
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            System.err.println("FAILED: " + message);
+            System.exit(1);
+        }
+    }
+}